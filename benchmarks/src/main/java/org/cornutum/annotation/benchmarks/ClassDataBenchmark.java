@@ -0,0 +1,68 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation.benchmarks;
+
+import org.cornutum.annotation.AllAnnotated;
+import org.cornutum.annotation.ClassData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * Measures {@link ClassData#getAnnotated} for a single class held in memory, with small, typical, and huge constant pools.
+ */
+@State( Scope.Benchmark)
+public class ClassDataBenchmark
+  {
+  @Setup
+  public void setUp()
+    {
+    int constants = "small".equals( size)? 20 : "typical".equals( size)? 300 : 20000;
+    int members = "small".equals( size)? 2 : "typical".equals( size)? 20 : 200;
+    bytes_ = new ClassFileGenerator( SEED, constants, members, 0.25).generate( Corpus.ROOT_PACKAGE + ".Generated");
+    }
+
+  @Benchmark
+  public void getAnnotated( ScanCounters counters, Blackhole blackhole)
+    {
+    new BytesClassData( bytes_).getAnnotated( AllAnnotated.INSTANCE).forEachRemaining( blackhole::consume);
+    counters.scanned( 1, bytes_.length);
+    }
+
+  /**
+   * Provides the class data for a class file held in memory.
+   */
+  private static class BytesClassData extends ClassData
+    {
+    public BytesClassData( byte[] bytes)
+      {
+      bytes_ = bytes;
+      }
+
+    protected InputStream getInputStream()
+      {
+      return new ByteArrayInputStream( bytes_);
+      }
+
+    private final byte[] bytes_;
+    }
+
+  @Param({ "small", "typical", "huge"})
+  public String size;
+
+  private byte[] bytes_;
+
+  private static final long SEED = 20250101L;
+  }
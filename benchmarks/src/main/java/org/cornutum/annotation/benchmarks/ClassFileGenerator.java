@@ -0,0 +1,254 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates synthetic class files for benchmarks.
+ * <P/>
+ * Each class file defines an abstract class with the given number of fields and methods and a constant pool padded to
+ * the given size. Each member, and the class itself, is annotated with probability given by the annotation density,
+ * using one of the {@link #ANNOTATIONS}. Results depend only on the seed and the class name, so that every run
+ * of a benchmark uses the same corpus.
+ */
+public class ClassFileGenerator
+  {
+  /**
+   * Creates a new ClassFileGenerator instance.
+   */
+  public ClassFileGenerator( long seed, int constants, int members, double annotationDensity)
+    {
+    seed_ = seed;
+    constants_ = constants;
+    members_ = members;
+    annotationDensity_ = annotationDensity;
+    }
+
+  /**
+   * Returns the class file for the class with the given fully-qualified name.
+   */
+  public byte[] generate( String className)
+    {
+    Random random = new Random( seed_ ^ className.hashCode());
+    ConstantPool pool = new ConstantPool();
+    int thisClass = pool.classRef( className.replace( '.', '/'));
+    int superClass = pool.classRef( "java/lang/Object");
+    int annotationsAttribute = pool.utf8( "RuntimeVisibleAnnotations");
+
+    List<int[]> fields = new ArrayList<int[]>();
+    List<int[]> methods = new ArrayList<int[]>();
+    for( int i = 0; i < members_; i++)
+      {
+      int[] member =
+        i % 2 == 0
+        ? new int[]{ pool.utf8( "field" + i), pool.utf8( "I"), annotation( pool, random)}
+        : new int[]{ pool.utf8( "method" + i), pool.utf8( "()V"), annotation( pool, random)};
+      (i % 2 == 0? fields : methods).add( member);
+      }
+    int classAnnotation = annotation( pool, random);
+
+    // Pad the constant pool with strings and numbers.
+    for( int i = 0; pool.size() < constants_; i++)
+      {
+      if( i % 4 == 3)
+        {
+        pool.integer( random.nextInt());
+        }
+      else
+        {
+        pool.utf8( String.format( "constant%s_%s", i, Long.toString( random.nextLong() & Long.MAX_VALUE, 36)));
+        }
+      }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try( DataOutputStream output = new DataOutputStream( bytes))
+      {
+      output.writeInt( 0xCAFEBABE);
+      output.writeShort( 0);
+      output.writeShort( 52);
+      pool.write( output);
+
+      output.writeShort( ACC_PUBLIC | ACC_SUPER | ACC_ABSTRACT);
+      output.writeShort( thisClass);
+      output.writeShort( superClass);
+      output.writeShort( 0);
+
+      writeMembers( output, fields, ACC_PUBLIC, annotationsAttribute);
+      writeMembers( output, methods, ACC_PUBLIC | ACC_ABSTRACT, annotationsAttribute);
+      writeAttributes( output, classAnnotation, annotationsAttribute);
+      }
+    catch( IOException e)
+      {
+      throw new IllegalStateException( String.format( "Can't generate class=%s", className), e);
+      }
+
+    return bytes.toByteArray();
+    }
+
+  /**
+   * Returns the constant pool index for the type of a randomly chosen annotation, or 0 if not annotated.
+   */
+  private int annotation( ConstantPool pool, Random random)
+    {
+    return
+      random.nextDouble() < annotationDensity_
+      ? pool.utf8( ANNOTATIONS[ random.nextInt( ANNOTATIONS.length)])
+      : 0;
+    }
+
+  /**
+   * Writes the given members.
+   */
+  private void writeMembers( DataOutputStream output, List<int[]> members, int access, int annotationsAttribute) throws IOException
+    {
+    output.writeShort( members.size());
+    for( int[] member : members)
+      {
+      output.writeShort( access);
+      output.writeShort( member[0]);
+      output.writeShort( member[1]);
+      writeAttributes( output, member[2], annotationsAttribute);
+      }
+    }
+
+  /**
+   * Writes the attributes for an element annotated with the given annotation type, if any.
+   */
+  private void writeAttributes( DataOutputStream output, int annotation, int annotationsAttribute) throws IOException
+    {
+    if( annotation == 0)
+      {
+      output.writeShort( 0);
+      }
+    else
+      {
+      output.writeShort( 1);
+      output.writeShort( annotationsAttribute);
+      output.writeInt( 6);
+      output.writeShort( 1);
+      output.writeShort( annotation);
+      output.writeShort( 0);
+      }
+    }
+
+  /**
+   * Builds the constant pool for a class file.
+   */
+  private static class ConstantPool
+    {
+    /**
+     * Returns the index of the given UTF-8 constant.
+     */
+    public int utf8( String value)
+      {
+      return add( "U" + value, output -> {
+        output.writeByte( CONSTANT_UTF8);
+        output.writeUTF( value);
+        });
+      }
+
+    /**
+     * Returns the index of the given class constant.
+     */
+    public int classRef( String internalName)
+      {
+      int name = utf8( internalName);
+      return add( "C" + internalName, output -> {
+        output.writeByte( CONSTANT_CLASS);
+        output.writeShort( name);
+        });
+      }
+
+    /**
+     * Returns the index of the given integer constant.
+     */
+    public int integer( int value)
+      {
+      return add( "I" + value, output -> {
+        output.writeByte( CONSTANT_INTEGER);
+        output.writeInt( value);
+        });
+      }
+
+    /**
+     * Returns the number of constant pool entries, including the unused entry 0.
+     */
+    public int size()
+      {
+      return entries_.size() + 1;
+      }
+
+    /**
+     * Writes this constant pool.
+     */
+    public void write( DataOutputStream output) throws IOException
+      {
+      output.writeShort( size());
+      for( Entry entry : entries_.values())
+        {
+        entry.write( output);
+        }
+      }
+
+    /**
+     * Returns the index of the given entry, adding it if not already present.
+     */
+    private int add( String key, Entry entry)
+      {
+      Integer index = indices_.get( key);
+      if( index == null)
+        {
+        index = size();
+        indices_.put( key, index);
+        entries_.put( key, entry);
+        }
+      return index;
+      }
+
+    private final Map<String,Integer> indices_ = new LinkedHashMap<String,Integer>();
+    private final Map<String,Entry> entries_ = new LinkedHashMap<String,Entry>();
+
+    private interface Entry
+      {
+      void write( DataOutputStream output) throws IOException;
+      }
+    }
+
+  /**
+   * The raw type names of the annotations used by generated classes.
+   */
+  public static final String[] ANNOTATIONS =
+    {
+      "Ljava/lang/Deprecated;",
+      "Lorg/cornutum/annotation/benchmarks/Marker;",
+      "Lorg/cornutum/annotation/benchmarks/Entity;",
+      "Lorg/cornutum/annotation/benchmarks/Inject;",
+      "Lorg/cornutum/annotation/benchmarks/Route;"
+    };
+
+  private final long seed_;
+  private final int constants_;
+  private final int members_;
+  private final double annotationDensity_;
+
+  private static final int ACC_PUBLIC = 0x0001;
+  private static final int ACC_SUPER = 0x0020;
+  private static final int ACC_ABSTRACT = 0x0400;
+
+  private static final int CONSTANT_UTF8 = 1;
+  private static final int CONSTANT_INTEGER = 3;
+  private static final int CONSTANT_CLASS = 7;
+  }
@@ -0,0 +1,213 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Writes a deterministic corpus of synthetic class path elements for benchmarks.
+ * <P/>
+ * Generated classes belong to packages below {@link #ROOT_PACKAGE}. In a directory tree of the given width and depth,
+ * each directory has <CODE>width</CODE> subpackages named <CODE>p0</CODE>, <CODE>p1</CODE>, ..., down to the given
+ * depth, and each package contains the same number of classes.
+ */
+public class Corpus
+  {
+  /**
+   * Creates a new Corpus instance.
+   */
+  public Corpus( ClassFileGenerator generator)
+    {
+    generator_ = generator;
+    }
+
+  /**
+   * Writes a class directory tree of the given shape. Returns the number of class files written.
+   */
+  public int writeDirectory( File dir, int width, int depth, int classesPerPackage)
+    {
+    int classes = 0;
+    for( String packageName : packages( width, depth))
+      {
+      File packageDir = new File( dir, packageName.replace( '.', '/'));
+      packageDir.mkdirs();
+      for( int i = 0; i < classesPerPackage; i++)
+        {
+        String simpleName = "Class" + i;
+        write( new File( packageDir, simpleName + ".class"), generator_.generate( packageName + '.' + simpleName));
+        classes++;
+        }
+      }
+    bytes_ += sizeOf( dir);
+    return classes;
+    }
+
+  /**
+   * Writes a JAR file containing classes in packages of the given shape. If <CODE>stored</CODE> is true, entries are
+   * stored without compression. Otherwise, entries are deflated. Returns the number of class files written.
+   */
+  public int writeJar( File jar, int width, int depth, int classesPerPackage, boolean stored)
+    {
+    List<String> classNames = new ArrayList<String>();
+    for( String packageName : packages( width, depth))
+      {
+      for( int i = 0; i < classesPerPackage; i++)
+        {
+        classNames.add( packageName + ".Class" + i);
+        }
+      }
+
+    return writeJar( jar, classNames, stored);
+    }
+
+  /**
+   * Writes a JAR file containing the given classes. If <CODE>stored</CODE> is true, entries are
+   * stored without compression. Otherwise, entries are deflated. Returns the number of class files written.
+   */
+  public int writeJar( File jar, Collection<String> classNames, boolean stored)
+    {
+    jar.getParentFile().mkdirs();
+    try( JarOutputStream output = new JarOutputStream( new FileOutputStream( jar)))
+      {
+      for( String className : classNames)
+        {
+        byte[] bytes = generator_.generate( className);
+        ZipEntry entry = new ZipEntry( className.replace( '.', '/') + ".class");
+        if( stored)
+          {
+          CRC32 crc = new CRC32();
+          crc.update( bytes, 0, bytes.length);
+          entry.setMethod( ZipEntry.STORED);
+          entry.setSize( bytes.length);
+          entry.setCompressedSize( bytes.length);
+          entry.setCrc( crc.getValue());
+          }
+        output.putNextEntry( entry);
+        output.write( bytes);
+        output.closeEntry();
+        bytes_ += bytes.length;
+        }
+      }
+    catch( IOException e)
+      {
+      throw new UncheckedIOException( String.format( "Can't write jar=%s", jar), e);
+      }
+
+    return classNames.size();
+    }
+
+  /**
+   * Returns the total size of all class files written by this corpus.
+   */
+  public long getBytes()
+    {
+    return bytes_;
+    }
+
+  /**
+   * Returns the names of all packages in a tree of the given shape, including {@link #ROOT_PACKAGE}.
+   */
+  public static List<String> packages( int width, int depth)
+    {
+    List<String> packages = new ArrayList<String>();
+    addPackages( packages, ROOT_PACKAGE, width, depth);
+    return packages;
+    }
+
+  /**
+   * Adds the given package and its descendants.
+   */
+  private static void addPackages( List<String> packages, String packageName, int width, int depth)
+    {
+    packages.add( packageName);
+    for( int i = 0; depth > 0 && i < width; i++)
+      {
+      addPackages( packages, packageName + ".p" + i, width, depth - 1);
+      }
+    }
+
+  /**
+   * Creates a new temporary directory for a corpus.
+   */
+  public static File createTempDir()
+    {
+    try
+      {
+      return java.nio.file.Files.createTempDirectory( "finder-corpus").toFile();
+      }
+    catch( IOException e)
+      {
+      throw new UncheckedIOException( "Can't create corpus directory", e);
+      }
+    }
+
+  /**
+   * Deletes the given file and all of its descendants.
+   */
+  public static void delete( File file)
+    {
+    try( Stream<Path> paths = java.nio.file.Files.walk( file.toPath()))
+      {
+      paths.sorted( Comparator.reverseOrder()).map( Path::toFile).forEach( File::delete);
+      }
+    catch( IOException e)
+      {
+      throw new UncheckedIOException( String.format( "Can't delete file=%s", file), e);
+      }
+    }
+
+  /**
+   * Writes the given bytes to the given file.
+   */
+  private static void write( File file, byte[] bytes)
+    {
+    try
+      {
+      java.nio.file.Files.write( file.toPath(), bytes);
+      }
+    catch( IOException e)
+      {
+      throw new UncheckedIOException( String.format( "Can't write file=%s", file), e);
+      }
+    }
+
+  /**
+   * Returns the total size of all files in the given directory.
+   */
+  private static long sizeOf( File dir)
+    {
+    try( Stream<Path> paths = java.nio.file.Files.walk( dir.toPath()))
+      {
+      return paths.map( Path::toFile).filter( File::isFile).mapToLong( File::length).sum();
+      }
+    catch( IOException e)
+      {
+      throw new UncheckedIOException( String.format( "Can't read dir=%s", dir), e);
+      }
+    }
+
+  /**
+   * The parent package for all generated classes.
+   */
+  public static final String ROOT_PACKAGE = "org.cornutum.corpus";
+
+  private final ClassFileGenerator generator_;
+  private long bytes_;
+  }
@@ -0,0 +1,63 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation.benchmarks;
+
+import org.cornutum.annotation.AllAnnotated;
+import org.cornutum.annotation.DirectoryAnnotated;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+
+/**
+ * Measures {@link DirectoryAnnotated} on a wide, shallow directory tree and on a narrow, deep directory tree
+ * containing a similar number of classes.
+ */
+@State( Scope.Benchmark)
+public class DirectoryAnnotatedBenchmark
+  {
+  @Setup
+  public void setUp()
+    {
+    dir_ = Corpus.createTempDir();
+    Corpus corpus = new Corpus( new ClassFileGenerator( SEED, 300, 20, 0.25));
+    classes_ =
+      "wide".equals( shape)
+      ? corpus.writeDirectory( dir_, 128, 1, 16)
+      : corpus.writeDirectory( dir_, 2, 10, 1);
+    bytes_ = corpus.getBytes();
+    }
+
+  @TearDown
+  public void tearDown()
+    {
+    Corpus.delete( dir_);
+    }
+
+  @Benchmark
+  public void scan( ScanCounters counters, Blackhole blackhole)
+    {
+    new DirectoryAnnotated( dir_, AllAnnotated.INSTANCE).forEachRemaining( blackhole::consume);
+    counters.scanned( classes_, bytes_);
+    }
+
+  @Param({ "wide", "deep"})
+  public String shape;
+
+  private File dir_;
+  private int classes_;
+  private long bytes_;
+
+  private static final long SEED = 20250103L;
+  }
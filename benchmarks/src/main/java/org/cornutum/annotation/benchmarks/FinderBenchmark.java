@@ -0,0 +1,79 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation.benchmarks;
+
+import org.cornutum.annotation.AllAnnotated;
+import org.cornutum.annotation.AnnotationFilter;
+import org.cornutum.annotation.Finder;
+import org.cornutum.annotation.PackageFilter;
+import org.cornutum.annotation.ScanStatistics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+
+/**
+ * Measures {@link Finder#find} over a class directory and several JAR files, using either {@link AllAnnotated} or a
+ * {@link PackageFilter} that selects a few annotations in one package subtree.
+ */
+@State( Scope.Benchmark)
+public class FinderBenchmark
+  {
+  @Setup
+  public void setUp()
+    {
+    dir_ = Corpus.createTempDir();
+    Corpus corpus = new Corpus( new ClassFileGenerator( SEED, 300, 20, 0.25));
+    classPath_ = new File[ JARS + 1];
+    classPath_[0] = new File( dir_, "classes");
+    corpus.writeDirectory( classPath_[0], 4, 2, 20);
+    for( int i = 1; i <= JARS; i++)
+      {
+      classPath_[i] = new File( dir_, String.format( "lib-%s.jar", i));
+      corpus.writeJar( classPath_[i], 4, 2, 20, false);
+      }
+    bytes_ = corpus.getBytes();
+
+    filter_ =
+      "all".equals( filter)
+      ? AllAnnotated.INSTANCE
+      : new PackageFilter( Deprecated.class.getName(), "org.cornutum.annotation.benchmarks.Entity")
+        .inPackage( Corpus.ROOT_PACKAGE + ".p1.**");
+    }
+
+  @TearDown
+  public void tearDown()
+    {
+    Corpus.delete( dir_);
+    }
+
+  @Benchmark
+  public void find( ScanCounters counters, Blackhole blackhole)
+    {
+    ScanStatistics statistics = new ScanStatistics();
+    new Finder( filter_).inClasses( classPath_).statistics( statistics).find().forEach( blackhole::consume);
+    counters.scanned( statistics.getClasses(), bytes_);
+    }
+
+  @Param({ "all", "package"})
+  public String filter;
+
+  private File dir_;
+  private File[] classPath_;
+  private long bytes_;
+  private AnnotationFilter filter_;
+
+  private static final int JARS = 4;
+  private static final long SEED = 20250104L;
+  }
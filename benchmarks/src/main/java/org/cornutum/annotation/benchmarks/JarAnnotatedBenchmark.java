@@ -0,0 +1,61 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation.benchmarks;
+
+import org.cornutum.annotation.AllAnnotated;
+import org.cornutum.annotation.JarAnnotated;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+
+/**
+ * Measures {@link JarAnnotated} on a JAR file with stored or deflated entries.
+ */
+@State( Scope.Benchmark)
+public class JarAnnotatedBenchmark
+  {
+  @Setup
+  public void setUp()
+    {
+    dir_ = Corpus.createTempDir();
+    jar_ = new File( dir_, "corpus.jar");
+    Corpus corpus = new Corpus( new ClassFileGenerator( SEED, 300, 20, 0.25));
+    classes_ = corpus.writeJar( jar_, 8, 2, 30, "stored".equals( method));
+    bytes_ = corpus.getBytes();
+    }
+
+  @TearDown
+  public void tearDown()
+    {
+    Corpus.delete( dir_);
+    }
+
+  @Benchmark
+  public void scan( ScanCounters counters, Blackhole blackhole)
+    {
+    new JarAnnotated( jar_, AllAnnotated.INSTANCE).forEachRemaining( blackhole::consume);
+    counters.scanned( classes_, bytes_);
+    }
+
+  @Param({ "stored", "deflated"})
+  public String method;
+
+  private File dir_;
+  private File jar_;
+  private int classes_;
+  private long bytes_;
+
+  private static final long SEED = 20250102L;
+  }
@@ -0,0 +1,281 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Measures the resources used by a {@link org.cornutum.annotation.Finder Finder} scan of a large synthetic class path.
+ * <P/>
+ * The harness generates a class path of the given scale: the number of JAR files, the number of classes in each JAR,
+ * the annotation density, and the size of each constant pool. It then runs a {@link ScanProbe} in a separate JVM for
+ * each given heap limit, recording the peak heap, bytes allocated per class, open file descriptors, and wall time
+ * as one line of JSON per run. If any run exceeds a given budget, or runs out of memory, the harness exits with
+ * status 1.
+ * <P/>
+ * Options:
+ * <UL>
+ * <LI><CODE>-jars</CODE> <I>count</I> (default: 100)</LI>
+ * <LI><CODE>-classes</CODE> <I>classesPerJar</I> (default: 200)</LI>
+ * <LI><CODE>-density</CODE> <I>annotatedFraction</I> (default: 0.1)</LI>
+ * <LI><CODE>-constants</CODE> <I>constantPoolSize</I> (default: 300)</LI>
+ * <LI><CODE>-members</CODE> <I>membersPerClass</I> (default: 20)</LI>
+ * <LI><CODE>-xmx</CODE> <I>heapLimit</I>[,<I>heapLimit</I>...] (default: 256m)</LI>
+ * <LI><CODE>-parallel</CODE>: use <CODE>findParallel()</CODE></LI>
+ * <LI><CODE>-corpus</CODE> <I>dir</I>: generate the class path in this directory, reusing it if already generated.
+ * By default, a temporary directory is used and deleted afterwards.</LI>
+ * <LI><CODE>-output</CODE> <I>file</I>: also write results to this file</LI>
+ * <LI><CODE>-maxBytesPerClass</CODE> <I>bytes</I>: allocation budget per class scanned</LI>
+ * <LI><CODE>-maxFdsLeaked</CODE> <I>count</I>: open file descriptors allowed to remain after a scan (default: 0)</LI>
+ * <LI><CODE>-maxMillis</CODE> <I>millis</I>: wall time budget for each scan</LI>
+ * </UL>
+ */
+public class ScalabilityHarness
+  {
+  /**
+   * Creates a new ScalabilityHarness instance.
+   */
+  private ScalabilityHarness( Map<String,String> options)
+    {
+    options_ = options;
+    }
+
+  /**
+   * Runs the harness with the given options.
+   */
+  public static void main( String[] args) throws Exception
+    {
+    Map<String,String> options = new HashMap<String,String>();
+    for( int i = 0; i < args.length; i++)
+      {
+      if( !args[i].startsWith( "-"))
+        {
+        throw new IllegalArgumentException( String.format( "Unexpected argument=%s", args[i]));
+        }
+      String name = args[i].substring( 1);
+      options.put( name, "parallel".equals( name)? "true" : args[++i]);
+      }
+
+    System.exit( new ScalabilityHarness( options).run()? 0 : 1);
+    }
+
+  /**
+   * Runs a scan for each heap limit. Returns true if all scans complete within budget.
+   */
+  private boolean run() throws Exception
+    {
+    boolean withinBudget = true;
+    File corpusDir = options_.containsKey( "corpus")? new File( options_.get( "corpus")) : Corpus.createTempDir();
+    try( PrintWriter output = options_.containsKey( "output")? new PrintWriter( new FileWriter( options_.get( "output"), true)) : null)
+      {
+      generate( corpusDir);
+      for( String xmx : option( "xmx", "256m").split( ","))
+        {
+        String result = String.format( "{%s,\"xmx\":\"%s\",%s", getScale(), xmx, probe( corpusDir, xmx).substring( 1));
+        System.out.println( result);
+        if( output != null)
+          {
+          output.println( result);
+          }
+
+        List<String> violations = getViolations( result);
+        violations.forEach( violation -> System.err.println( String.format( "xmx=%s: %s", xmx, violation)));
+        withinBudget &= violations.isEmpty();
+        }
+      }
+    finally
+      {
+      if( !options_.containsKey( "corpus"))
+        {
+        Corpus.delete( corpusDir);
+        }
+      }
+
+    return withinBudget;
+    }
+
+  /**
+   * Generates the class path in the given directory, unless already generated for the same scale.
+   */
+  private void generate( File corpusDir) throws IOException
+    {
+    File marker = new File( corpusDir, "corpus.json");
+    String scale = getScale();
+    if( !(marker.isFile() && new String( java.nio.file.Files.readAllBytes( marker.toPath()), UTF_8).equals( scale)))
+      {
+      File[] jars = corpusDir.listFiles( file -> file.getName().endsWith( ".jar"));
+      for( File jar : jars == null? new File[0] : jars)
+        {
+        jar.delete();
+        }
+
+      Corpus corpus =
+        new Corpus(
+          new ClassFileGenerator(
+            SEED,
+            Integer.parseInt( option( "constants", "300")),
+            Integer.parseInt( option( "members", "20")),
+            Double.parseDouble( option( "density", "0.1"))));
+
+      int jarCount = Integer.parseInt( option( "jars", "100"));
+      int classesPerJar = Integer.parseInt( option( "classes", "200"));
+      for( int i = 0; i < jarCount; i++)
+        {
+        List<String> classNames = new ArrayList<String>( classesPerJar);
+        for( int j = 0; j < classesPerJar; j++)
+          {
+          classNames.add( String.format( "%s.lib%s.p%s.Class%s", Corpus.ROOT_PACKAGE, i, j / CLASSES_PER_PACKAGE, j));
+          }
+        corpus.writeJar( new File( corpusDir, String.format( "lib-%05d.jar", i)), classNames, false);
+        }
+
+      java.nio.file.Files.write( marker.toPath(), scale.getBytes( UTF_8));
+      }
+    }
+
+  /**
+   * Runs a {@link ScanProbe} with the given heap limit and returns its result.
+   */
+  private String probe( File corpusDir, String xmx) throws Exception
+    {
+    List<String> command =
+      new ArrayList<String>(
+        Arrays.asList(
+          new File( new File( System.getProperty( "java.home"), "bin"), "java").getPath(),
+          "-Xmx" + xmx,
+          "-cp",
+          System.getProperty( "java.class.path"),
+          ScanProbe.class.getName(),
+          corpusDir.getPath()));
+    if( options_.containsKey( "parallel"))
+      {
+      command.add( "parallel");
+      }
+
+    Process process = new ProcessBuilder( command).redirectError( ProcessBuilder.Redirect.INHERIT).start();
+    String result = null;
+    try( BufferedReader lines = new BufferedReader( new InputStreamReader( process.getInputStream(), UTF_8)))
+      {
+      for( String line; (line = lines.readLine()) != null; )
+        {
+        if( line.startsWith( "{"))
+          {
+          result = line;
+          }
+        }
+      }
+
+    int exitStatus = process.waitFor();
+    return
+      result != null
+      ? result
+      : String.format( "{\"status\":\"failed\",\"exitStatus\":%s}", exitStatus);
+    }
+
+  /**
+   * Returns the budget violations for the given result.
+   */
+  private List<String> getViolations( String result)
+    {
+    List<String> violations = new ArrayList<String>();
+    if( !"ok".equals( stringField( result, "status")))
+      {
+      violations.add( String.format( "status=%s", stringField( result, "status")));
+      }
+    else
+      {
+      checkBudget( violations, result, "allocatedBytesPerClass", "maxBytesPerClass");
+      checkBudget( violations, result, "wallMillis", "maxMillis");
+
+      long fdsLeaked = longField( result, "openFdsAfter") - longField( result, "openFdsBefore");
+      long maxFdsLeaked = Long.parseLong( option( "maxFdsLeaked", "0"));
+      if( fdsLeaked > maxFdsLeaked)
+        {
+        violations.add( String.format( "openFdsLeaked=%s exceeds %s", fdsLeaked, maxFdsLeaked));
+        }
+      }
+
+    return violations;
+    }
+
+  /**
+   * Adds a violation if the given result field exceeds the budget given by the specified option.
+   */
+  private void checkBudget( List<String> violations, String result, String field, String budgetOption)
+    {
+    if( options_.containsKey( budgetOption))
+      {
+      long value = longField( result, field);
+      long budget = Long.parseLong( options_.get( budgetOption));
+      if( value > budget)
+        {
+        violations.add( String.format( "%s=%s exceeds %s", field, value, budget));
+        }
+      }
+    }
+
+  /**
+   * Returns the JSON fields that describe the scale of the class path.
+   */
+  private String getScale()
+    {
+    return
+      String.format(
+        "\"jars\":%s,\"classesPerJar\":%s,\"density\":%s,\"constants\":%s,\"members\":%s,\"parallel\":%s",
+        option( "jars", "100"),
+        option( "classes", "200"),
+        option( "density", "0.1"),
+        option( "constants", "300"),
+        option( "members", "20"),
+        options_.containsKey( "parallel"));
+    }
+
+  /**
+   * Returns the value of the given option.
+   */
+  private String option( String name, String defaultValue)
+    {
+    return options_.getOrDefault( name, defaultValue);
+    }
+
+  /**
+   * Returns the value of the given numeric field of a JSON result.
+   */
+  private static long longField( String result, String field)
+    {
+    Matcher matcher = Pattern.compile( String.format( "\"%s\":(-?\\d+)", field)).matcher( result);
+    return matcher.find()? Long.parseLong( matcher.group(1)) : 0;
+    }
+
+  /**
+   * Returns the value of the given string field of a JSON result.
+   */
+  private static String stringField( String result, String field)
+    {
+    Matcher matcher = Pattern.compile( String.format( "\"%s\":\"([^\"]*)\"", field)).matcher( result);
+    return matcher.find()? matcher.group(1) : null;
+    }
+
+  private final Map<String,String> options_;
+
+  private static final long SEED = 20250105L;
+  private static final int CLASSES_PER_PACKAGE = 50;
+  }
@@ -0,0 +1,49 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the classes and class file bytes scanned by a benchmark. In throughput mode, JMH reports each counter as a
+ * rate, giving classes/s and bytes/s alongside operations/s.
+ */
+@State( Scope.Thread)
+@AuxCounters( AuxCounters.Type.EVENTS)
+public class ScanCounters
+  {
+  /**
+   * Records a scan of the given number of classes and bytes.
+   */
+  public void scanned( long classes, long bytes)
+    {
+    this.classes += classes;
+    this.bytes += bytes;
+    }
+
+  @Setup( Level.Iteration)
+  public void reset()
+    {
+    classes = 0;
+    bytes = 0;
+    }
+
+  /**
+   * The number of classes scanned.
+   */
+  public long classes;
+
+  /**
+   * The number of class file bytes scanned.
+   */
+  public long bytes;
+  }
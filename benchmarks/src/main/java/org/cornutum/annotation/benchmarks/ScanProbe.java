@@ -0,0 +1,148 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation.benchmarks;
+
+import org.cornutum.annotation.Finder;
+import org.cornutum.annotation.ScanStatistics;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Runs a single {@link Finder} scan of a class path and prints its resource usage as one line of JSON.
+ * <P/>
+ * A {@link ScalabilityHarness} runs each probe in a separate JVM, so that each scan runs with its own fixed heap limit.
+ * Results are counted but never collected, so peak heap reflects only the memory retained by the scan itself.
+ */
+public class ScanProbe
+  {
+  /**
+   * Creates a new ScanProbe instance.
+   */
+  private ScanProbe()
+    {
+    // Static methods only
+    }
+
+  /**
+   * Scans the class path elements in the given directory. If the second argument is "parallel", uses {@link Finder#findParallel}.
+   */
+  public static void main( String[] args) throws Exception
+    {
+    File dir = new File( args[0]);
+    boolean parallel = args.length > 1 && "parallel".equals( args[1]);
+    File[] classPath = dir.listFiles( file -> file.getName().endsWith( ".jar"));
+    Arrays.sort( classPath);
+
+    List<MemoryPoolMXBean> heapPools =
+      ManagementFactory.getMemoryPoolMXBeans().stream()
+      .filter( pool -> pool.getType() == MemoryType.HEAP)
+      .collect( toList());
+
+    System.gc();
+    long fdsBefore = openFileDescriptors();
+    AtomicLong fdsPeak = new AtomicLong( fdsBefore);
+    Thread sampler =
+      new Thread( () -> {
+        while( !Thread.currentThread().isInterrupted())
+          {
+          fdsPeak.accumulateAndGet( openFileDescriptors(), Math::max);
+          try
+            {
+            Thread.sleep( 10);
+            }
+          catch( InterruptedException e)
+            {
+            Thread.currentThread().interrupt();
+            }
+          }
+        });
+    sampler.setDaemon( true);
+
+    heapPools.forEach( MemoryPoolMXBean::resetPeakUsage);
+    long allocatedBefore = allocatedBytes();
+    long start = System.nanoTime();
+    sampler.start();
+
+    String status = "ok";
+    long annotated = 0;
+    ScanStatistics statistics = new ScanStatistics();
+    try
+      {
+      Finder finder = new Finder().inClasses( classPath).statistics( statistics);
+      annotated = (parallel? finder.findParallel() : finder.find()).count();
+      }
+    catch( OutOfMemoryError e)
+      {
+      status = "oom";
+      }
+
+    long wallNanos = System.nanoTime() - start;
+    long allocated = allocatedBytes() - allocatedBefore;
+    sampler.interrupt();
+    sampler.join();
+
+    long peakHeap = heapPools.stream().mapToLong( pool -> pool.getPeakUsage().getUsed()).sum();
+    System.gc();
+    long fdsAfter = openFileDescriptors();
+    long classes = statistics.getClasses();
+
+    System.out.println(
+      String.format(
+        "{\"status\":\"%s\",\"maxHeap\":%s,\"elements\":%s,\"classes\":%s,\"annotated\":%s,\"wallMillis\":%s,"
+        + "\"peakHeapBytes\":%s,\"allocatedBytes\":%s,\"allocatedBytesPerClass\":%s,"
+        + "\"openFdsBefore\":%s,\"openFdsPeak\":%s,\"openFdsAfter\":%s}",
+        status,
+        Runtime.getRuntime().maxMemory(),
+        classPath.length,
+        classes,
+        annotated,
+        wallNanos / 1000000,
+        peakHeap,
+        allocated,
+        classes == 0? 0 : allocated / classes,
+        fdsBefore,
+        fdsPeak.get(),
+        fdsAfter));
+    }
+
+  /**
+   * Returns the total bytes allocated so far by all live threads, or -1 if not supported by this JVM.
+   */
+  private static long allocatedBytes()
+    {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    long allocated = -1;
+    if( threads instanceof com.sun.management.ThreadMXBean)
+      {
+      com.sun.management.ThreadMXBean hotspotThreads = (com.sun.management.ThreadMXBean) threads;
+      allocated = Arrays.stream( hotspotThreads.getThreadAllocatedBytes( threads.getAllThreadIds())).filter( bytes -> bytes > 0).sum();
+      }
+    return allocated;
+    }
+
+  /**
+   * Returns the number of open file descriptors for this process, or -1 if not supported by this JVM.
+   */
+  private static long openFileDescriptors()
+    {
+    OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    return
+      os instanceof com.sun.management.UnixOperatingSystemMXBean
+      ? ((com.sun.management.UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount()
+      : -1;
+    }
+  }
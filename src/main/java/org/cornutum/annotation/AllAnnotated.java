@@ -7,13 +7,33 @@
 
 package org.cornutum.annotation;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * An {@link AnnotationFilter} that accepts all annotated class elements.
+ * <P/>
+ * As a {@link RawAnnotationFilter}, this filter assigns an id to each distinct raw type name the first time it
+ * is seen, so that the annotation class name for each distinct annotation is created only once. Ids are kept in a
+ * {@link DescriptorMap} that grows incrementally as new annotations are seen.
  */
-public class AllAnnotated implements AnnotationFilter
+public class AllAnnotated implements AnnotationFilter, RawAnnotationFilter
   {
+  /**
+   * Creates a new AllAnnotated instance that accepts annotations of the given types of class element. If none are
+   * given, accepts annotations of the {@link Annotated#isDefaultType default types}.
+   */
+  public AllAnnotated( Annotated.Type... types)
+    {
+    types_ =
+      types.length == 0
+      ? Annotated.getDefaultTypes()
+      : EnumSet.copyOf( Arrays.asList( types));
+    }
+
   /**
    * Accepts any annotation.
    */
@@ -30,12 +50,83 @@ public class AllAnnotated implements AnnotationFilter
     return true;
     }
 
+  /**
+   * Returns true if annotations of the given type of class element are accepted.
+   */
+  public boolean acceptType( Annotated.Type type)
+    {
+    return types_.contains( type);
+    }
+
+  /**
+   * Accepts any annotation, returning the id assigned to the given raw type name.
+   */
+  public int acceptDescriptor( ByteBuffer bytes, int offset, int length, int hash)
+    {
+    int id = descriptors_.find( bytes, offset, length, hash);
+    return
+      id == REJECT
+      ? addDescriptor( bytes, offset, length, hash)
+      : id;
+    }
+
+  /**
+   * Returns the annotation class name for the given annotation id.
+   */
+  public String getAnnotation( int id)
+    {
+    return descriptors_.getName( id);
+    }
+
+  /**
+   * Returns true, because every annotation is accepted.
+   */
+  public boolean acceptsAllAnnotations()
+    {
+    return true;
+    }
+
+  /**
+   * Returns a string that identifies this filter.
+   */
+  public Optional<String> getFingerprint()
+    {
+    return
+      Optional.of(
+        types_.equals( Annotated.getDefaultTypes())
+        ? getClass().getName()
+        : String.format( "%s@%s", getClass().getName(), types_));
+    }
+
+  /**
+   * Assigns an id to the given raw type name.
+   */
+  private int addDescriptor( ByteBuffer bytes, int offset, int length, int hash)
+    {
+    String annotation;
+    try
+      {
+      annotation = ClassData.toClassName( Buffers.decodeUtf8( bytes, offset, length));
+      }
+    catch( Exception e)
+      {
+      throw new IllegalArgumentException( "Can't decode raw type name", e);
+      }
+
+    // If already added by another thread, returns the same id.
+    return descriptors_.add( bytes, offset, length, hash, annotation);
+    }
+
   public String toString()
     {
     return
       ToString.of( this)
+      .append( "types", types_)
       .toString();
     }
 
+  private final Set<Annotated.Type> types_;
+  private final DescriptorMap descriptors_ = new DescriptorMap();
+
   public static final AllAnnotated INSTANCE = new AllAnnotated();
   }
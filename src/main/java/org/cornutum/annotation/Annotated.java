@@ -8,15 +8,21 @@
 package org.cornutum.annotation;
 
 import java.io.File;
+import java.util.EnumSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import static java.util.Collections.emptyMap;
 
 /**
  * Defines a class element that references a specified annotation.
+ * <P/>
+ * The {@link #getValues element values} given for the annotation are decoded only when first accessed. Element
+ * values are not compared when comparing Annotated instances.
  */
 public abstract class Annotated
   {
-  public enum Type { CLASS, METHOD, FIELD}
+  public enum Type { CLASS, METHOD, FIELD, PARAMETER, TYPE_USE}
 
   /**
    * Returns true if the annotation is referenced by a class.
@@ -42,6 +48,41 @@ public abstract class Annotated
     return annotated.getType() == Type.FIELD;
     }
 
+  /**
+   * Returns true if the annotation is referenced by a method parameter.
+   */
+  public static boolean isParameter( Annotated annotated)
+    {
+    return annotated.getType() == Type.PARAMETER;
+    }
+
+  /**
+   * Returns true if the annotation is referenced by a use of a type.
+   */
+  public static boolean isTypeUse( Annotated annotated)
+    {
+    return annotated.getType() == Type.TYPE_USE;
+    }
+
+  /**
+   * Returns true if annotations of the given type of class element are found by default. Annotations of
+   * parameters and type uses are found only when a filter accepts them.
+   */
+  public static boolean isDefaultType( Type type)
+    {
+    return type != Type.PARAMETER && type != Type.TYPE_USE;
+    }
+
+  /**
+   * Returns the types of class element found by default.
+   */
+  static EnumSet<Type> getDefaultTypes()
+    {
+    EnumSet<Type> types = EnumSet.allOf( Type.class);
+    types.removeIf( type -> !isDefaultType( type));
+    return types;
+    }
+
   /**
    * Creates a new Annotated instance.
    */
@@ -82,6 +123,43 @@ public abstract class Annotated
     return runtime_;
     }
 
+  /**
+   * Returns the element values given for the annotation, by element name. For the representation of each
+   * element value, see {@link ElementValues}. Any element that uses its default value is not included.
+   */
+  public Map<String,Object> getValues()
+    {
+    return
+      values_ == null
+      ? emptyMap()
+      : values_.getValues();
+    }
+
+  /**
+   * Returns the value given for the specified annotation element. Returns empty if no value is given for
+   * this element.
+   */
+  public Optional<Object> getValue( String element)
+    {
+    return Optional.ofNullable( getValues().get( element));
+    }
+
+  /**
+   * Changes the element values given for the annotation.
+   */
+  void setElementValues( ElementValues values)
+    {
+    values_ = values;
+    }
+
+  /**
+   * Returns the element values given for the annotation. Returns null if no element value is given.
+   */
+  ElementValues getElementValues()
+    {
+    return values_;
+    }
+
   /**
    * Changes the file containing the annotated class.
    */
@@ -127,4 +205,5 @@ public abstract class Annotated
   private final String className_;
   private final boolean runtime_;
   private File file_;
+  private ElementValues values_;
   }
@@ -0,0 +1,111 @@
+//////////////////////////////////////////////////////////////////////////////
+// 
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.File;
+import java.lang.annotation.Annotation;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Defines a method parameter that references a specified annotation.
+ * <P/>
+ * The parameter is identified by its index in the parameter annotations recorded for the method. For most methods,
+ * this is the index of the parameter in the method descriptor. But a compiler may omit synthetic or implicit
+ * parameters, such as the outer instance parameter of an inner class constructor.
+ */
+public class AnnotatedParameter extends Annotated
+  {
+  /**
+   * Creates a new AnnotatedParameter instance.
+   */
+  public AnnotatedParameter( String annotation, String className, String method, int parameter, boolean isRuntime)
+    {
+    this( annotation, className, method, parameter, isRuntime, null);
+    }
+  
+  /**
+   * Creates a new AnnotatedParameter instance.
+   */
+  public AnnotatedParameter( String annotation, String className, String method, int parameter, boolean isRuntime, File file)
+    {
+    super( annotation, className, isRuntime, file);
+    method_ = method;
+    parameter_ = parameter;
+    }
+  
+  /**
+   * Creates a new AnnotatedParameter instance.
+   */
+  public AnnotatedParameter( Class<? extends Annotation> annotation, String className, String method, int parameter, boolean isRuntime, File file)
+    {
+    this( Optional.ofNullable( annotation).map( Class::getName).orElse( null), className, method, parameter, isRuntime, file);
+    }
+
+  /**
+   * Return the class element type.
+   */
+  public Type getType()
+    {
+    return Type.PARAMETER;
+    }
+
+  /**
+   * Returns the method with the parameter that references the annotation.
+   */
+  public String getMethod()
+    {
+    return method_;
+    }
+
+  /**
+   * Returns the index of the parameter that references the annotation.
+   */
+  public int getParameter()
+    {
+    return parameter_;
+    }
+
+  public int hashCode()
+    {
+    return
+      super.hashCode()
+      ^ Objects.hashCode( getMethod())
+      ^ getParameter()
+      ;
+    }
+
+  public boolean equals( Object object)
+    {
+    AnnotatedParameter other = 
+      super.equals( object)
+      ? (AnnotatedParameter) object
+      : null;
+
+    return
+      other != null
+      && Objects.equals( other.getMethod(), getMethod())
+      && other.getParameter() == getParameter();
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( ToString.simpleClassName( getAnnotation()))
+      .append( "class", getClassName())
+      .append( "method", getMethod())
+      .append( "parameter", getParameter())
+      .append( "runtime", isRuntime())
+      .append( "file", Optional.ofNullable( getFile()).map( File::getName).orElse( null))
+      .toString();
+    }
+
+  private String method_;
+  private int parameter_;
+  }
@@ -0,0 +1,240 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Reads and writes a compact binary form of the {@link Annotated} instances found in a class path element.
+ * <P/>
+ * Each distinct string is written once, in a string table, and each record refers to its strings by table index.
+ * The file for each {@link Annotated} instance is written as a path relative to the class path element.
+ * Records for annotated parameters and type uses also contain the parameter or target, so that records for
+ * other class elements are unchanged. Each record ends with the {@link ElementValues} snapshot for the annotation,
+ * which is decoded only when accessed.
+ */
+final class AnnotatedRecords
+  {
+  /**
+   * Creates a new AnnotatedRecords instance.
+   */
+  private AnnotatedRecords()
+    {
+    // Static methods only
+    }
+
+  /**
+   * Writes the given {@link Annotated} instances found in the given class path element.
+   */
+  public static void write( DataOutput output, File element, List<Annotated> annotated) throws IOException
+    {
+    Map<String,Integer> ids = new HashMap<String,Integer>();
+    List<String> strings = new ArrayList<String>();
+    int[][] records = new int[ annotated.size()][];
+    byte[][] snapshots = new byte[ records.length][];
+    for( int i = 0; i < records.length; i++)
+      {
+      Annotated next = annotated.get(i);
+      records[i] =
+        new int[]
+        {
+          next.getType().ordinal(),
+          next.isRuntime()? 1 : 0,
+          stringId( ids, strings, next.getAnnotation()),
+          stringId( ids, strings, next.getClassName()),
+          stringId( ids, strings, getMember( next)),
+          stringId( ids, strings, relativePath( element, next.getFile())),
+          getTarget( next),
+          getTargetIndex( next)
+        };
+      snapshots[i] = Optional.ofNullable( next.getElementValues()).map( ElementValues::getSnapshot).orElse( null);
+      }
+
+    output.writeInt( strings.size());
+    for( String string : strings)
+      {
+      output.writeUTF( string);
+      }
+
+    output.writeInt( records.length);
+    for( int i = 0; i < records.length; i++)
+      {
+      int[] record = records[i];
+      output.writeByte( record[0]);
+      output.writeBoolean( record[1] != 0);
+      for( int j = 2; j < 6; j++)
+        {
+        output.writeInt( record[j]);
+        }
+      if( record[0] == Annotated.Type.TYPE_USE.ordinal())
+        {
+        output.writeByte( record[6]);
+        }
+      if( record[0] == Annotated.Type.PARAMETER.ordinal() || record[0] == Annotated.Type.TYPE_USE.ordinal())
+        {
+        output.writeInt( record[7]);
+        }
+
+      byte[] values = snapshots[ i];
+      output.writeInt( values == null? 0 : values.length);
+      if( values != null)
+        {
+        output.write( values);
+        }
+      }
+    }
+
+  /**
+   * Reads the {@link Annotated} instances found in the given class path element.
+   */
+  public static List<Annotated> read( DataInput input, File element) throws IOException
+    {
+    return read( input, path -> path.isEmpty()? element : new File( element, path));
+    }
+
+  /**
+   * Reads the {@link Annotated} instances written for a class path element, using the given function to
+   * locate the file for each relative path.
+   */
+  public static List<Annotated> read( DataInput input, Function<String,File> toFile) throws IOException
+    {
+    String[] strings = new String[ input.readInt()];
+    for( int i = 0; i < strings.length; i++)
+      {
+      strings[i] = input.readUTF();
+      }
+
+    int count = input.readInt();
+    List<Annotated> annotated = new ArrayList<Annotated>( count);
+    Map<String,File> files = new HashMap<String,File>();
+    for( int i = 0; i < count; i++)
+      {
+      Annotated.Type type = Annotated.Type.values()[ input.readByte()];
+      boolean runtime = input.readBoolean();
+      String annotation = strings[ input.readInt()];
+      String className = strings[ input.readInt()];
+      String member = strings[ input.readInt()];
+      File file = files.computeIfAbsent( strings[ input.readInt()], toFile);
+
+      Annotated next =
+        type == Annotated.Type.METHOD?
+        new AnnotatedMethod( annotation, className, member, runtime, file) :
+
+        type == Annotated.Type.FIELD?
+        new AnnotatedField( annotation, className, member, runtime, file) :
+
+        type == Annotated.Type.PARAMETER?
+        new AnnotatedParameter( annotation, className, member, input.readInt(), runtime, file) :
+
+        type == Annotated.Type.TYPE_USE?
+        new AnnotatedTypeUse(
+          annotation,
+          className,
+          member.isEmpty()? null : member,
+          AnnotatedTypeUse.Target.values()[ input.readByte()],
+          input.readInt(),
+          runtime,
+          file) :
+
+        new AnnotatedClass( annotation, className, runtime, file);
+
+      byte[] values = new byte[ input.readInt()];
+      if( values.length > 0)
+        {
+        input.readFully( values);
+        next.setElementValues( new ElementValues( values));
+        }
+
+      annotated.add( next);
+      }
+
+    return annotated;
+    }
+
+  /**
+   * Returns the name of the annotated class member, or an empty string if the class itself is annotated.
+   */
+  private static String getMember( Annotated annotated)
+    {
+    return
+      annotated instanceof AnnotatedMethod?
+      ((AnnotatedMethod) annotated).getMethod() :
+
+      annotated instanceof AnnotatedField?
+      ((AnnotatedField) annotated).getField() :
+
+      annotated instanceof AnnotatedParameter?
+      ((AnnotatedParameter) annotated).getMethod() :
+
+      annotated instanceof AnnotatedTypeUse && ((AnnotatedTypeUse) annotated).getMember() != null?
+      ((AnnotatedTypeUse) annotated).getMember() :
+
+      "";
+    }
+
+  /**
+   * Returns the ordinal of the target of an annotated type use. Returns 0 for any other class element.
+   */
+  private static int getTarget( Annotated annotated)
+    {
+    return
+      annotated instanceof AnnotatedTypeUse
+      ? ((AnnotatedTypeUse) annotated).getTarget().ordinal()
+      : 0;
+    }
+
+  /**
+   * Returns the parameter index of an annotated parameter or the target index of an annotated type use.
+   * Returns -1 for any other class element.
+   */
+  private static int getTargetIndex( Annotated annotated)
+    {
+    return
+      annotated instanceof AnnotatedParameter?
+      ((AnnotatedParameter) annotated).getParameter() :
+
+      annotated instanceof AnnotatedTypeUse?
+      ((AnnotatedTypeUse) annotated).getTargetIndex() :
+
+      -1;
+    }
+
+  /**
+   * Returns the path of the given file relative to the given class path element.
+   */
+  private static String relativePath( File element, File file)
+    {
+    return
+      file == null || file.equals( element)
+      ? ""
+      : element.toPath().relativize( file.toPath()).toString().replace( File.separatorChar, '/');
+    }
+
+  /**
+   * Returns the string table index for the given string.
+   */
+  private static int stringId( Map<String,Integer> ids, List<String> strings, String string)
+    {
+    return
+      ids.computeIfAbsent(
+        string,
+        s -> {
+          strings.add( s);
+          return strings.size() - 1;
+        });
+    }
+  }
@@ -0,0 +1,134 @@
+//////////////////////////////////////////////////////////////////////////////
+// 
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.File;
+import java.lang.annotation.Annotation;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Defines a use of a type in the signature of a class, field, or method that references a specified
+ * <CODE>TYPE_USE</CODE> or <CODE>TYPE_PARAMETER</CODE> annotation.
+ * <P/>
+ * The type use is identified by its {@link Target target} and, for targets that are one of several, by a target
+ * index. For example, a type use annotation on the type of the second method parameter has target
+ * {@link Target#METHOD_PARAMETER METHOD_PARAMETER} and target index 1. An annotation on a type argument or array
+ * component of the target type is reported for the same target. Type uses within method bodies are not reported.
+ */
+public class AnnotatedTypeUse extends Annotated
+  {
+  /**
+   * Identifies the signature element that uses an annotated type.
+   */
+  public enum Target { CLASS_TYPE_PARAMETER, METHOD_TYPE_PARAMETER, SUPERTYPE, CLASS_TYPE_PARAMETER_BOUND, METHOD_TYPE_PARAMETER_BOUND, FIELD, METHOD_RETURN, METHOD_RECEIVER, METHOD_PARAMETER, THROWS}
+
+  /**
+   * Creates a new AnnotatedTypeUse instance.
+   */
+  public AnnotatedTypeUse( String annotation, String className, String member, Target target, int targetIndex, boolean isRuntime)
+    {
+    this( annotation, className, member, target, targetIndex, isRuntime, null);
+    }
+  
+  /**
+   * Creates a new AnnotatedTypeUse instance.
+   */
+  public AnnotatedTypeUse( String annotation, String className, String member, Target target, int targetIndex, boolean isRuntime, File file)
+    {
+    super( annotation, className, isRuntime, file);
+    member_ = member;
+    target_ = target;
+    targetIndex_ = targetIndex;
+    }
+  
+  /**
+   * Creates a new AnnotatedTypeUse instance.
+   */
+  public AnnotatedTypeUse( Class<? extends Annotation> annotation, String className, String member, Target target, int targetIndex, boolean isRuntime, File file)
+    {
+    this( Optional.ofNullable( annotation).map( Class::getName).orElse( null), className, member, target, targetIndex, isRuntime, file);
+    }
+
+  /**
+   * Return the class element type.
+   */
+  public Type getType()
+    {
+    return Type.TYPE_USE;
+    }
+
+  /**
+   * Returns the field or method that uses the annotated type. Returns null if the annotated type is used
+   * by the class itself.
+   */
+  public String getMember()
+    {
+    return member_;
+    }
+
+  /**
+   * Returns the signature element that uses the annotated type.
+   */
+  public Target getTarget()
+    {
+    return target_;
+    }
+
+  /**
+   * Returns the index of the type parameter, supertype, method parameter, or thrown exception type that uses the
+   * annotated type. A supertype index of 65535 identifies the superclass, and any other supertype index identifies
+   * an interface. Returns -1 for any other target.
+   */
+  public int getTargetIndex()
+    {
+    return targetIndex_;
+    }
+
+  public int hashCode()
+    {
+    return
+      super.hashCode()
+      ^ Objects.hashCode( getMember())
+      ^ Objects.hashCode( getTarget())
+      ^ getTargetIndex()
+      ;
+    }
+
+  public boolean equals( Object object)
+    {
+    AnnotatedTypeUse other = 
+      super.equals( object)
+      ? (AnnotatedTypeUse) object
+      : null;
+
+    return
+      other != null
+      && Objects.equals( other.getMember(), getMember())
+      && Objects.equals( other.getTarget(), getTarget())
+      && other.getTargetIndex() == getTargetIndex();
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( ToString.simpleClassName( getAnnotation()))
+      .append( "class", getClassName())
+      .append( "member", getMember())
+      .append( "target", getTarget())
+      .append( "targetIndex", getTargetIndex())
+      .append( "runtime", isRuntime())
+      .append( "file", Optional.ofNullable( getFile()).map( File::getName).orElse( null))
+      .toString();
+    }
+
+  private String member_;
+  private Target target_;
+  private int targetIndex_;
+  }
@@ -8,6 +8,7 @@
 package org.cornutum.annotation;
 
 import java.lang.annotation.Annotation;
+import java.lang.annotation.RetentionPolicy;
 import java.util.Optional;
 
 /**
@@ -25,4 +26,56 @@ public interface AnnotationFilter
    * Returns true if annotated elements of the given class are accepted.
    */
   boolean acceptClass( String className);
+
+  /**
+   * Returns true if annotated elements of classes in the given package, or in any of its subpackages, may be accepted.
+   * The package is given by a path relative to a class path root, using '/' separators, for example "com/acme".
+   * The root package is given by an empty path. This allows a scan to skip directories and JAR entries for
+   * packages that can't contain an accepted class without reading any class file. By default, returns true.
+   */
+  default boolean acceptPackagePath( String packagePath)
+    {
+    return true;
+    }
+
+  /**
+   * Returns true if annotated elements of the class in the given class file may be accepted. The class file is given
+   * by a path relative to a class path root, using '/' separators, for example "com/acme/Widget.class".
+   * By default, returns the result of {@link #acceptClass acceptClass()} for the corresponding class name.
+   */
+  default boolean acceptClassFile( String classFilePath)
+    {
+    return acceptClass( classFilePath.substring( 0, classFilePath.length() - ".class".length()).replace( '/', '.'));
+    }
+
+  /**
+   * Returns true if annotations of the given type of class element may be accepted. A scan can skip all members of a
+   * class, or all annotations of the class itself, without resolving any names. By default, returns true only for
+   * the {@link Annotated#isDefaultType default types}, so that parameter and type use annotations are found only
+   * when requested.
+   */
+  default boolean acceptType( Annotated.Type type)
+    {
+    return Annotated.isDefaultType( type);
+    }
+
+  /**
+   * Returns true if annotations with the given retention may be accepted, either {@link RetentionPolicy#RUNTIME RUNTIME}
+   * for runtime-visible annotations or {@link RetentionPolicy#CLASS CLASS} for runtime-invisible annotations. A scan
+   * can skip any annotations attribute with a rejected retention. By default, returns true.
+   */
+  default boolean acceptRetention( RetentionPolicy retention)
+    {
+    return true;
+    }
+
+  /**
+   * Returns a string that identifies the criteria used by this filter, so that results found by this filter
+   * can be cached. Filters that accept the same annotated elements must return the same fingerprint.
+   * Returns empty if results for this filter can't be cached. By default, returns empty.
+   */
+  default Optional<String> getFingerprint()
+    {
+    return Optional.empty();
+    }
   }
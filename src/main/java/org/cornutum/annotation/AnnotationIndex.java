@@ -0,0 +1,309 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.lang.annotation.RetentionPolicy;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Creates and reads an index of all annotated elements in a class path element, built when the element is packaged.
+ * <P/>
+ * The index is stored at {@link #PATH} in the class path element. It records every annotated element, including
+ * annotated parameters and type uses, so that results for any {@link AnnotationFilter} can be selected from the
+ * index without parsing any class. The index also records the name and CRC-32 checksum of every class file
+ * indexed. The index for a JAR file is used only if these match the class entries of the JAR. The index for a
+ * directory is used only if the directory contains the same class files and none is newer than the index.
+ * <P/>
+ * To create an index for the classes built by a Maven project, run {@link #main main()} during the
+ * <CODE>process-classes</CODE> phase, for example using the <CODE>exec-maven-plugin</CODE>.
+ */
+public final class AnnotationIndex
+  {
+  /**
+   * Creates a new AnnotationIndex instance.
+   */
+  private AnnotationIndex()
+    {
+    // Static methods only
+    }
+
+  /**
+   * Creates an index for each of the given class directories.
+   */
+  public static void main( String[] args)
+    {
+    for( String dir : args)
+      {
+      write( new File( dir));
+      }
+    }
+
+  /**
+   * Creates an index for all annotated elements in the given class directory.
+   */
+  public static void write( File dir)
+    {
+    File index = new File( dir, PATH);
+    try
+      {
+      Collection<File> classFiles = Files.classFiles( dir);
+      List<Annotated> annotated = new ArrayList<Annotated>();
+      new DirectoryAnnotated( dir, classFiles, new ScanContext( new AllAnnotated( Annotated.Type.values()))).forEachRemaining( annotated::add);
+
+      Map<String,Long> crcs = new TreeMap<String,Long>();
+      for( File classFile : classFiles)
+        {
+        crcs.put( entryName( dir, classFile), crc( classFile));
+        }
+
+      index.getParentFile().mkdirs();
+      try( DataOutputStream output = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( index))))
+        {
+        output.writeInt( MAGIC);
+        output.writeShort( VERSION);
+        output.writeInt( crcs.size());
+        output.writeUTF( namesDigest( crcs));
+        output.writeUTF( crcsDigest( crcs));
+        AnnotatedRecords.write( output, dir, annotated);
+        }
+      }
+    catch( Exception e)
+      {
+      throw new IllegalStateException( String.format( "Can't write index=%s", index), e);
+      }
+    }
+
+  /**
+   * If the given directory has a current index, returns all annotated elements from the index.
+   * Otherwise, returns empty.
+   */
+  static Optional<List<Annotated>> read( File dir, Collection<File> classFiles)
+    {
+    List<Annotated> annotated = null;
+    File index = new File( dir, PATH);
+    try( DataInputStream input = new DataInputStream( new BufferedInputStream( new FileInputStream( index))))
+      {
+      long indexed = index.lastModified();
+      Map<String,Long> names = new TreeMap<String,Long>();
+      boolean current = true;
+      for( File classFile : classFiles)
+        {
+        names.put( entryName( dir, classFile), 0L);
+        current = current && classFile.lastModified() <= indexed;
+        }
+
+      if( current
+          && readHeader( input, names.size())
+          && input.readUTF().equals( namesDigest( names)))
+        {
+        input.readUTF();
+        annotated = AnnotatedRecords.read( input, dir);
+        }
+      }
+    catch( Exception e)
+      {
+      // Missing or unreadable, so scan the directory instead.
+      annotated = null;
+      }
+
+    return Optional.ofNullable( annotated);
+    }
+
+  /**
+   * If the given JAR file has a current index, returns all annotated elements from the index.
+   * Otherwise, returns empty.
+   */
+  static Optional<List<Annotated>> read( ZipArchive archive, Collection<JarEntryReader> classEntries)
+    {
+    List<Annotated> annotated = null;
+    Optional<ZipArchive.Entry> indexEntry = archive.getEntry( PATH);
+    if( indexEntry.isPresent())
+      {
+      try( DataInputStream input = new DataInputStream( archive.getInputStream( indexEntry.get())))
+        {
+        Map<String,Long> crcs = new TreeMap<String,Long>();
+        for( JarEntryReader reader : classEntries)
+          {
+          crcs.put( reader.getPath(), reader.getEntry().getCrc());
+          }
+
+        if( readHeader( input, crcs.size())
+            && input.readUTF().equals( namesDigest( crcs))
+            && input.readUTF().equals( crcsDigest( crcs)))
+          {
+          annotated = AnnotatedRecords.read( input, path -> archive.getFile());
+          }
+        }
+      catch( Exception e)
+        {
+        // Unreadable, so scan the JAR file instead.
+        annotated = null;
+        }
+      }
+
+    return Optional.ofNullable( annotated);
+    }
+
+  /**
+   * Returns the indexed elements accepted by the given filter.
+   */
+  static List<Annotated> select( List<Annotated> indexed, AnnotationFilter filter)
+    {
+    List<Annotated> selected = new ArrayList<Annotated>();
+    for( Annotated annotated : indexed)
+      {
+      if( filter.acceptClass( annotated.getClassName())
+          && filter.acceptType( annotated.getType())
+          && filter.acceptRetention( annotated.isRuntime()? RetentionPolicy.RUNTIME : RetentionPolicy.CLASS))
+        {
+        filter.acceptAnnotation( ClassData.rawTypeName( annotated.getAnnotation()))
+          .map( annotation -> withAnnotation( annotated, annotation))
+          .ifPresent( selected::add);
+        }
+      }
+
+    return selected;
+    }
+
+  /**
+   * Returns the given element, referencing the given annotation name.
+   */
+  private static Annotated withAnnotation( Annotated annotated, String annotation)
+    {
+    Annotated renamed =
+      annotation.equals( annotated.getAnnotation())?
+      annotated :
+
+      annotated instanceof AnnotatedMethod?
+      new AnnotatedMethod( annotation, annotated.getClassName(), ((AnnotatedMethod) annotated).getMethod(), annotated.isRuntime(), annotated.getFile()) :
+
+      annotated instanceof AnnotatedField?
+      new AnnotatedField( annotation, annotated.getClassName(), ((AnnotatedField) annotated).getField(), annotated.isRuntime(), annotated.getFile()) :
+
+      annotated instanceof AnnotatedParameter?
+      withAnnotation( (AnnotatedParameter) annotated, annotation) :
+
+      annotated instanceof AnnotatedTypeUse?
+      withAnnotation( (AnnotatedTypeUse) annotated, annotation) :
+
+      new AnnotatedClass( annotation, annotated.getClassName(), annotated.isRuntime(), annotated.getFile());
+
+    renamed.setElementValues( annotated.getElementValues());
+    return renamed;
+    }
+
+  /**
+   * Returns the given parameter, referencing the given annotation name.
+   */
+  private static Annotated withAnnotation( AnnotatedParameter annotated, String annotation)
+    {
+    return new AnnotatedParameter( annotation, annotated.getClassName(), annotated.getMethod(), annotated.getParameter(), annotated.isRuntime(), annotated.getFile());
+    }
+
+  /**
+   * Returns the given type use, referencing the given annotation name.
+   */
+  private static Annotated withAnnotation( AnnotatedTypeUse annotated, String annotation)
+    {
+    return
+      new AnnotatedTypeUse(
+        annotation,
+        annotated.getClassName(),
+        annotated.getMember(),
+        annotated.getTarget(),
+        annotated.getTargetIndex(),
+        annotated.isRuntime(),
+        annotated.getFile());
+    }
+
+  /**
+   * Returns true if the given input starts with a valid index header for the given number of class files.
+   */
+  private static boolean readHeader( DataInputStream input, int classCount) throws Exception
+    {
+    return
+      input.readInt() == MAGIC
+      && input.readShort() == VERSION
+      && input.readInt() == classCount;
+    }
+
+  /**
+   * Returns the JAR entry name for the given class file.
+   */
+  private static String entryName( File dir, File classFile)
+    {
+    return dir.toPath().relativize( classFile.toPath()).toString().replace( File.separatorChar, '/');
+    }
+
+  /**
+   * Returns the CRC-32 checksum for the contents of the given file.
+   */
+  private static long crc( File file) throws Exception
+    {
+    CRC32 crc = new CRC32();
+    try( InputStream input = new FileInputStream( file))
+      {
+      byte[] bytes = new byte[ 8192];
+      for( int n; (n = input.read( bytes)) >= 0; crc.update( bytes, 0, n));
+      }
+    return crc.getValue();
+    }
+
+  /**
+   * Returns the digest of the given class entry names.
+   */
+  private static String namesDigest( Map<String,Long> crcs)
+    {
+    MessageDigest digest = Digests.newDigest();
+    for( String name : crcs.keySet())
+      {
+      digest.update( name.getBytes( UTF_8));
+      digest.update( (byte) 0);
+      }
+    return Digests.toHex( digest.digest());
+    }
+
+  /**
+   * Returns the digest of the given class entry names and CRC-32 checksums.
+   */
+  private static String crcsDigest( Map<String,Long> crcs)
+    {
+    MessageDigest digest = Digests.newDigest();
+    for( Map.Entry<String,Long> crc : crcs.entrySet())
+      {
+      digest.update( crc.getKey().getBytes( UTF_8));
+      digest.update( (byte) 0);
+      Digests.update( digest, crc.getValue());
+      }
+    return Digests.toHex( digest.digest());
+    }
+
+  /**
+   * The location of the index in a class path element.
+   */
+  public static final String PATH = "META-INF/annotation-finder/index.bin";
+
+  private static final int MAGIC = 0x41464931;
+  private static final short VERSION = 3;
+  }
@@ -0,0 +1,192 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares the {@link ZipArchive} instances opened during a scan.
+ * <P/>
+ * Each user of an archive must {@link #acquire acquire} the archive and later either {@link #release release} it, if
+ * the archive may be needed again, or {@link #retire retire} it, if all of its entries have been read. An archive that
+ * is retired by all of its users is closed immediately. An archive that is released by all of its users remains open
+ * for reuse, unless more than the maximum number of archives are open, in which case the least recently used idle
+ * archives are closed. Archives in use are never closed before the pool itself is {@link #close closed}.
+ */
+class ArchivePool
+  {
+  /**
+   * Creates a new ArchivePool instance that keeps at most the given number of archives open when idle.
+   */
+  public ArchivePool( int maxOpen, ScanStatistics statistics)
+    {
+    maxOpen_ = maxOpen;
+    statistics_ = statistics;
+    }
+
+  /**
+   * Returns the open archive for the given JAR file, opening it if necessary.
+   */
+  public ZipArchive acquire( File jar)
+    {
+    ZipArchive opened = null;
+    while( true)
+      {
+      synchronized( this)
+        {
+        if( closed_)
+          {
+          if( opened != null)
+            {
+            opened.close();
+            }
+          throw new IllegalStateException( String.format( "Can't open jar=%s: scan is closed", jar));
+          }
+
+        Handle handle = handles_.get( jar);
+        if( handle == null && opened != null)
+          {
+          handles_.put( jar, handle = new Handle( opened));
+          statistics_.archiveOpened();
+          opened = null;
+          }
+        if( handle != null)
+          {
+          handle.users_++;
+          if( opened != null)
+            {
+            // Another thread opened this archive first.
+            opened.close();
+            }
+          evictIdle();
+          return handle.archive_;
+          }
+        }
+
+      // Open the archive without blocking other users of this pool.
+      opened = JarAnnotated.archive( jar);
+      }
+    }
+
+  /**
+   * Releases the given archive, which remains open for reuse if possible. Nested archives held in heap buffers are
+   * closed while the archive is idle.
+   */
+  public synchronized void release( ZipArchive archive)
+    {
+    Handle handle = getHandle( archive);
+    if( handle != null && --handle.users_ == 0)
+      {
+      archive.closeInflated();
+      evictIdle();
+      }
+    }
+
+  /**
+   * Releases the given archive, which is closed if no longer in use.
+   */
+  public synchronized void retire( ZipArchive archive)
+    {
+    Handle handle = getHandle( archive);
+    if( handle != null && --handle.users_ == 0)
+      {
+      handles_.remove( archive.getFile());
+      archive.close();
+      }
+    }
+
+  /**
+   * Closes all archives opened by this pool. No archive can be acquired after this pool is closed.
+   */
+  public void close()
+    {
+    List<Handle> handles;
+    synchronized( this)
+      {
+      closed_ = true;
+      handles = new ArrayList<Handle>( handles_.values());
+      handles_.clear();
+      }
+
+    handles.forEach( handle -> handle.archive_.close());
+    }
+
+  /**
+   * Returns the number of archives currently open.
+   */
+  public synchronized int getOpen()
+    {
+    return handles_.size();
+    }
+
+  /**
+   * Returns the handle for the given archive, if it is still open.
+   */
+  private Handle getHandle( ZipArchive archive)
+    {
+    Handle handle = handles_.get( archive.getFile());
+    return
+      handle != null && handle.archive_ == archive
+      ? handle
+      : null;
+    }
+
+  /**
+   * Closes the least recently used idle archives until no more than the maximum are open.
+   */
+  private void evictIdle()
+    {
+    for( Iterator<Handle> handles = handles_.values().iterator(); handles_.size() > maxOpen_ && handles.hasNext(); )
+      {
+      Handle handle = handles.next();
+      if( handle.users_ == 0)
+        {
+        handles.remove();
+        handle.archive_.close();
+        }
+      }
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( "open", getOpen())
+      .append( "maxOpen", maxOpen_)
+      .toString();
+    }
+
+  /**
+   * An open archive and its current number of users.
+   */
+  private static class Handle
+    {
+    public Handle( ZipArchive archive)
+      {
+      archive_ = archive;
+      }
+
+    private final ZipArchive archive_;
+    private int users_;
+    }
+
+  private final int maxOpen_;
+  private final ScanStatistics statistics_;
+  private final Map<File,Handle> handles_ = new LinkedHashMap<File,Handle>( 16, 0.75f, true);
+  private boolean closed_;
+
+  /**
+   * The default maximum number of idle archives that remain open.
+   */
+  public static final int DEFAULT_MAX_OPEN = 64;
+  }
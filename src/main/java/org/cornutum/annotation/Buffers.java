@@ -0,0 +1,164 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntFunction;
+
+/**
+ * Provides methods to handle byte buffers.
+ */
+public final class Buffers
+  {
+  /**
+   * Creates a new Buffers instance.
+   */
+  private Buffers()
+    {
+    // Static methods only
+    }
+
+  /**
+   * Returns a buffer containing the contents of the given file. Files larger than
+   * {@link #MAP_THRESHOLD} are memory-mapped. Smaller files are read into a heap buffer,
+   * which is cheaper than establishing a mapping.
+   */
+  public static ByteBuffer read( File file)
+    {
+    return read( file, ByteBuffer::allocate);
+    }
+
+  /**
+   * Returns a buffer containing the contents of the given file. Files larger than
+   * {@link #MAP_THRESHOLD} are memory-mapped. Smaller files are read into a heap buffer
+   * obtained from the given allocator.
+   */
+  public static ByteBuffer read( File file, IntFunction<ByteBuffer> allocator)
+    {
+    try( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ))
+      {
+      long size = channel.size();
+      if( size > Integer.MAX_VALUE)
+        {
+        throw new IllegalStateException( String.format( "File size=%s exceeds the maximum buffer size", size));
+        }
+
+      return
+        size > MAP_THRESHOLD
+        ? channel.map( FileChannel.MapMode.READ_ONLY, 0, size)
+        : read( channel, allocator.apply( (int) size));
+      }
+    catch( Exception e)
+      {
+      throw new IllegalStateException( String.format( "Can't read file=%s", file), e);
+      }
+    }
+
+  /**
+   * Returns a heap buffer containing all bytes remaining in the given stream. If <CODE>size</CODE> is non-negative,
+   * it gives the expected number of bytes remaining. The given stream is closed.
+   */
+  public static ByteBuffer read( InputStream stream, int size) throws IOException
+    {
+    return read( stream, size, ByteBuffer::allocate);
+    }
+
+  /**
+   * Returns a heap buffer containing all bytes remaining in the given stream. If <CODE>size</CODE> is non-negative,
+   * it gives the expected number of bytes remaining. The given stream is closed.
+   * <P/>
+   * Heap buffers are obtained from the given allocator, which must return a buffer with position 0 and
+   * at least the requested capacity, backed by an accessible array at offset 0.
+   */
+  public static ByteBuffer read( InputStream stream, int size, IntFunction<ByteBuffer> allocator) throws IOException
+    {
+    try( InputStream input = stream)
+      {
+      byte[] bytes = allocator.apply( Math.max( size, 1024)).array();
+      int length = 0;
+      for( int n; (n = input.read( bytes, length, bytes.length - length)) >= 0; )
+        {
+        length += n;
+        if( length == bytes.length)
+          {
+          // Is there more data than expected?
+          int next = input.read();
+          if( next < 0)
+            {
+            // No.
+            break;
+            }
+
+          // Yes, keep reading into a larger array.
+          byte[] larger = allocator.apply( bytes.length * 2).array();
+          System.arraycopy( bytes, 0, larger, 0, length);
+          bytes = larger;
+          bytes[ length++] = (byte) next;
+          }
+        }
+
+      return ByteBuffer.wrap( bytes, 0, length);
+      }
+    }
+
+  /**
+   * Decodes the string given by the specified bytes in the modified UTF-8 format used by {@link java.io.DataInput#readUTF}.
+   */
+  public static String decodeUtf8( ByteBuffer buffer, int offset, int length) throws UTFDataFormatException
+    {
+    final int end = offset + length;
+    char[] chars = new char[ length];
+    int count = 0;
+
+    for( int i = offset; i < end; )
+      {
+      int b = buffer.get( i) & 0xff;
+      if( b < 0x80)
+        {
+        chars[ count++] = (char) b;
+        i++;
+        }
+      else if( (b & 0xe0) == 0xc0 && i + 1 < end)
+        {
+        chars[ count++] = (char) (((b & 0x1f) << 6) | (buffer.get( i + 1) & 0x3f));
+        i += 2;
+        }
+      else if( (b & 0xf0) == 0xe0 && i + 2 < end)
+        {
+        chars[ count++] = (char) (((b & 0x0f) << 12) | ((buffer.get( i + 1) & 0x3f) << 6) | (buffer.get( i + 2) & 0x3f));
+        i += 3;
+        }
+      else
+        {
+        throw new UTFDataFormatException( String.format( "Malformed input around byte %s", i - offset));
+        }
+      }
+
+    return new String( chars, 0, count);
+    }
+
+  /**
+   * Reads all remaining bytes from the given channel into the given heap buffer and returns a buffer containing the bytes read.
+   */
+  private static ByteBuffer read( FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+    while( buffer.hasRemaining() && channel.read( buffer) >= 0);
+    return ByteBuffer.wrap( buffer.array(), 0, buffer.position());
+    }
+
+  /**
+   * Files larger than this size (in bytes) are memory-mapped.
+   */
+  public static final int MAP_THRESHOLD = 256 * 1024;
+  }
@@ -9,6 +9,7 @@ package org.cornutum.annotation;
 
 import java.io.File;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Provides access to the data for a class definition in a JAR file entry.
@@ -21,7 +22,7 @@ public class ClassEntryData extends AbstractClassFileData
   public ClassEntryData( JarEntryReader reader)
     {
     reader_ = reader;
-    file_ = new File( reader.getFile().getName());
+    file_ = reader.getFile();
     }
 
   /**
@@ -32,6 +33,25 @@ public class ClassEntryData extends AbstractClassFileData
     return reader_.getInputStream();
     }
 
+  /**
+   * Returns a buffer containing the class data.
+   */
+  protected ByteBuffer getBuffer( ClassParser parser)
+    {
+    return reader_.getBuffer( parser.getInflater(), parser::getScratch);
+    }
+
+  /**
+   * If the class data is stored in compressed form, returns the compressed size. Otherwise, returns -1.
+   */
+  long getCompressedSize()
+    {
+    return
+      reader_.getEntry().getMethod() == ZipArchive.DEFLATED
+      ? reader_.getEntry().getCompressedSize()
+      : -1;
+    }
+
   /**
    * Returns the file containing the class definition.
    */
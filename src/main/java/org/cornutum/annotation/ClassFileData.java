@@ -10,6 +10,7 @@ package org.cornutum.annotation;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Provides access to the data for a class definition in a file.
@@ -39,6 +40,14 @@ public class ClassFileData extends AbstractClassFileData
       }
     }
 
+  /**
+   * Returns a buffer containing the class data.
+   */
+  protected ByteBuffer getBuffer( ClassParser parser)
+    {
+    return Buffers.read( file_, parser::getScratch);
+    }
+
   /**
    * Returns the file containing the class definition.
    */
@@ -0,0 +1,123 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Returns the class files in a directory and its descendants, in the same order as {@link Files#classFiles},
+ * listing each directory only when needed.
+ * <P/>
+ * The walk keeps a stack holding the remaining members of each directory on the path from the root to the
+ * current directory, so memory grows with the depth of the tree, not with its size. Each directory listing is read
+ * completely and closed before its members are returned, so abandoning the iteration leaves no open directory streams.
+ * <P/>
+ * When given an {@link AnnotationFilter}, the walk never descends into a subdirectory for a package that the
+ * filter {@link AnnotationFilter#acceptPackagePath rejects}, and returns only class files for accepted classes.
+ */
+class ClassFileIterator implements Iterator<File>
+  {
+  /**
+   * Creates a new ClassFileIterator instance.
+   */
+  public ClassFileIterator( Path dir)
+    {
+    this( dir, "", null);
+    }
+
+  /**
+   * Creates a new ClassFileIterator instance that returns class files accepted by the given filter. The given
+   * directory contains the package with the given path. If the filter is null, returns all class files.
+   */
+  public ClassFileIterator( Path dir, String packagePath, AnnotationFilter filter)
+    {
+    filter_ = filter;
+    if( filter_ == null || filter_.acceptPackagePath( packagePath))
+      {
+      push( dir, packagePath);
+      }
+    }
+
+  public boolean hasNext()
+    {
+    return getNext() != null;
+    }
+
+  public File next()
+    {
+    File next = getNext();
+    if( next == null)
+      {
+      throw new NoSuchElementException();
+      }
+
+    next_ = null;
+    return next;
+    }
+
+  /**
+   * Returns the next class file, or null if no more class files remain.
+   */
+  private File getNext()
+    {
+    while( next_ == null && !dirs_.isEmpty())
+      {
+      Iterator<ClassFileWalk.Member> members = dirs_.peek();
+      if( !members.hasNext())
+        {
+        dirs_.pop();
+        packagePaths_.pop();
+        }
+      else
+        {
+        ClassFileWalk.Member member = members.next();
+        if( member.isDirectory())
+          {
+          String subpackagePath = filter_ == null? "" : ClassFileWalk.memberPath( packagePaths_.peek(), memberName( member));
+          if( filter_ == null || filter_.acceptPackagePath( subpackagePath))
+            {
+            push( member.getPath(), subpackagePath);
+            }
+          }
+        else if( filter_ == null || filter_.acceptClassFile( ClassFileWalk.memberPath( packagePaths_.peek(), memberName( member))))
+          {
+          next_ = member.getPath().toFile();
+          }
+        }
+      }
+
+    return next_;
+    }
+
+  /**
+   * Returns the file name of the given directory member.
+   */
+  private static String memberName( ClassFileWalk.Member member)
+    {
+    return member.getPath().getFileName().toString();
+    }
+
+  /**
+   * Starts walking the given directory, which contains the package with the given path.
+   */
+  private void push( Path dir, String packagePath)
+    {
+    dirs_.push( ClassFileWalk.members( dir).iterator());
+    packagePaths_.push( packagePath);
+    }
+
+  private final AnnotationFilter filter_;
+  private final Deque<Iterator<ClassFileWalk.Member>> dirs_ = new ArrayDeque<Iterator<ClassFileWalk.Member>>();
+  private final Deque<String> packagePaths_ = new ArrayDeque<String>();
+  private File next_;
+  }
@@ -0,0 +1,169 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds all class files in a directory and its descendants, in the same order as {@link Files#classFiles}.
+ * <P/>
+ * Each directory is listed using a {@link DirectoryStream}, and the {@link BasicFileAttributes} for each member
+ * are read only once. When a directory contains more than one subdirectory, the subdirectories are walked
+ * in parallel.
+ */
+class ClassFileWalk extends RecursiveTask<List<File>>
+  {
+  /**
+   * Creates a new ClassFileWalk instance.
+   */
+  public ClassFileWalk( Path dir)
+    {
+    dir_ = dir;
+    }
+
+  protected List<File> compute()
+    {
+    List<Member> members = members( dir_);
+
+    // Walk subdirectories in parallel, if more than one...
+    List<ClassFileWalk> subdirs = new ArrayList<ClassFileWalk>();
+    for( Member member : members)
+      {
+      if( member.isDirectory())
+        {
+        subdirs.add( new ClassFileWalk( member.getPath()));
+        }
+      }
+    boolean forked = subdirs.size() > 1;
+    if( forked)
+      {
+      for( int i = subdirs.size() - 1; i > 0; i--)
+        {
+        subdirs.get(i).fork();
+        }
+      }
+
+    // ...and collect results in directory order.
+    List<File> classFiles = new ArrayList<File>();
+    for( int i = 0, subdir = 0; i < members.size(); i++)
+      {
+      Member member = members.get(i);
+      if( !member.isDirectory())
+        {
+        classFiles.add( member.getPath().toFile());
+        }
+      else
+        {
+        ClassFileWalk walk = subdirs.get( subdir++);
+        classFiles.addAll( forked && subdir > 1? walk.join() : walk.compute());
+        }
+      }
+
+    return classFiles;
+    }
+
+  /**
+   * Returns the members of the given directory that are either subdirectories or class files, in directory order.
+   * If the directory can't be read, returns an empty list.
+   */
+  public static List<Member> members( Path dir)
+    {
+    List<Member> members = new ArrayList<Member>();
+    try( DirectoryStream<Path> entries = java.nio.file.Files.newDirectoryStream( dir))
+      {
+      for( Path entry : entries)
+        {
+        boolean isDirectory;
+        try
+          {
+          isDirectory = java.nio.file.Files.readAttributes( entry, BasicFileAttributes.class).isDirectory();
+          }
+        catch( IOException e)
+          {
+          isDirectory = false;
+          }
+
+        if( isDirectory || entry.getFileName().toString().endsWith( ".class"))
+          {
+          members.add( new Member( entry, isDirectory));
+          }
+        }
+      }
+    catch( IOException e)
+      {
+      // Unreadable, so no members found.
+      }
+
+    return members;
+    }
+
+  /**
+   * Returns the path of the given member of the package with the given path. Paths are relative to a class path root
+   * and use '/' separators, with the root package given by an empty path.
+   */
+  public static String memberPath( String packagePath, String name)
+    {
+    return
+      packagePath.isEmpty()
+      ? name
+      : packagePath + '/' + name;
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( dir_)
+      .toString();
+    }
+
+  /**
+   * Describes a member of a directory.
+   */
+  public static class Member
+    {
+    /**
+     * Creates a new Member instance.
+     */
+    public Member( Path path, boolean isDirectory)
+      {
+      path_ = path;
+      directory_ = isDirectory;
+      }
+
+    /**
+     * Returns the path for this member.
+     */
+    public Path getPath()
+      {
+      return path_;
+      }
+
+    /**
+     * Returns true if this member is a directory.
+     */
+    public boolean isDirectory()
+      {
+      return directory_;
+      }
+
+    private final Path path_;
+    private final boolean directory_;
+    }
+
+  private final Path dir_;
+
+  private static final long serialVersionUID = 1L;
+  }
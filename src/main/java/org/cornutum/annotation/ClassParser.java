@@ -0,0 +1,1173 @@
+//////////////////////////////////////////////////////////////////////////////
+// 
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//        Copyright (c) 2011 - 2013 XIAM Solutions B.V. (http://www.xiam.nl)
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.RetentionPolicy;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Inflater;
+import static java.util.Collections.emptyList;
+
+/**
+ * Finds the annotated elements in {@link ClassData class definitions}.
+ * <P/>
+ * The class definition is parsed from a {@link ByteBuffer} using absolute-offset reads, so the same
+ * parser handles heap arrays, direct buffers, and memory-mapped files without copying through streams.
+ * <P/>
+ * A ClassParser is not thread-safe, but a single thread can reuse the same ClassParser for any number of
+ * classes. The state of the parser is reset for each class, and its constant pool tables,
+ * {@link #getScratch scratch buffer}, and {@link #getInflater inflater} are recycled, with tables and buffer
+ * growing as needed to fit the largest class seen.
+ * <P/>
+ * Annotations of classes, fields, methods, and method parameters are read from the
+ * <CODE>Runtime(In)VisibleAnnotations</CODE> and <CODE>Runtime(In)VisibleParameterAnnotations</CODE> attributes.
+ * Annotations of type uses are read from the <CODE>Runtime(In)VisibleTypeAnnotations</CODE> attributes of a class,
+ * field, or method, but not from those of a method body.
+ * <P/>
+ * Only the parts of a class definition that can contain annotations {@link AnnotationFilter#acceptType accepted}
+ * by the filter are read. The fields or methods of a class are skipped by attribute length, without resolving any
+ * names, when no annotations of that type are accepted. Likewise, any annotations attribute with a
+ * {@link AnnotationFilter#acceptRetention rejected retention} is skipped.
+ * <P/>
+ * For each accepted annotation that has element values, the parser copies the raw element values and the constant
+ * pool entries they refer to into a compact {@link ElementValues} snapshot, which is decoded only when accessed.
+ * <P/>
+ * This implementation is derived directly from the <A href="https://github.com/rmuller/infomas-asl">AnnotationDetector</A>
+ * provided by <A href="https://www.linkedin.com/in/ronaldkmuller/">Ronald Muller</A> of XIAM Solutions B.V.
+ * (see https://github.com/rmuller/infomas-asl).
+ */
+public class ClassParser
+  {
+  /**
+   * Creates a new ClassParser instance.
+   */
+  public ClassParser()
+    {
+    }
+
+  /**
+   * Returns the annotated elements found for the given class. When the same filter is given again, the parser reuses
+   * the same context for this filter, so that parsing a class allocates little more than its results.
+   */
+  public List<Annotated> parse( ClassData classData, AnnotationFilter filter)
+    {
+    return parse( classData, getFilterScan( filter));
+    }
+
+  /**
+   * Returns the context for parsing classes with the given filter.
+   */
+  private ScanContext getFilterScan( AnnotationFilter filter)
+    {
+    if( filterScan_ == null || scanFilter_ != filter)
+      {
+      filterScan_ = new ScanContext( filter);
+      scanFilter_ = filter;
+      }
+    return filterScan_;
+    }
+
+  /**
+   * Returns the annotated elements found for the given class during the given scan.
+   */
+  List<Annotated> parse( ClassData classData, ScanContext scan)
+    {
+    setScan( scan);
+    annotated_ = null;
+    ScanListener listener = scan.getListener();
+    long start = listener == null? 0 : System.nanoTime();
+    
+    try
+      {
+      setBuffer( classData.getBuffer( this));
+      file_ = classData.getFile();
+      if( listener != null)
+        {
+        start = classRead( listener, classData, start);
+        }
+
+      // Is this really a Java class file?
+      if( readInt() == 0xCAFEBABE)
+        {
+        // Yes, read contents to find annotated elements.
+        scan.getStatistics().classRead();
+        readVersion();
+        readConstantPoolEntries();
+
+        // Can this class contain any accepted annotation?
+        if( !isAnnotatable())
+          {
+          // No, skip the rest of this class.
+          scan.getStatistics().classRejected();
+          if( listener != null)
+            {
+            listener.classSkipped( null, ScanListener.SkipReason.NO_ACCEPTED_ANNOTATION, System.nanoTime() - start);
+            }
+          }
+        else
+          {
+          readAccessFlags();
+
+          // Does this class belong to an accepted package?
+          String className = readThisClass();
+          if( getFilter().acceptClass( className))
+            {
+            // Yes, find annotated elements.
+            findAnnotations( className);
+            if( listener != null)
+              {
+              listener.classParsed( className, annotated_ == null? 0 : annotated_.size(), System.nanoTime() - start);
+              }
+            }
+          else if( listener != null)
+            {
+            listener.classSkipped( className, ScanListener.SkipReason.CLASS_NOT_ACCEPTED, System.nanoTime() - start);
+            }
+          }
+        }
+
+      return
+        annotated_ == null
+        ? emptyList()
+        : annotated_;
+      }
+    catch( Exception e)
+      {
+      throw new IllegalStateException( String.format( "Can't read class data for %s", classData), e);
+      }
+    finally
+      {
+      setBuffer( null);
+      annotated_ = null;
+      file_ = null;
+      className_ = null;
+      }
+    }
+
+  /**
+   * Reports that the current class data, read since the given start time, has been read. Returns the current time.
+   */
+  private long classRead( ScanListener listener, ClassData classData, long start)
+    {
+    long now = System.nanoTime();
+    long size = buffer_.remaining();
+    long compressedSize = classData.getCompressedSize();
+    listener.classRead(
+      file_,
+      compressedSize < 0? size : compressedSize,
+      compressedSize < 0? 0 : size,
+      now - start);
+
+    return now;
+    }
+
+  /**
+   * Returns a heap buffer with at least the given capacity, for use while reading the next class definition.
+   * The buffer returned has position 0 and limit <CODE>size</CODE>. The contents of this buffer are
+   * valid only until the next call to this method.
+   */
+  public ByteBuffer getScratch( int size)
+    {
+    if( scratch_.length < size)
+      {
+      scratch_ = new byte[ Math.max( size, scratch_.length * 2)];
+      }
+    return ByteBuffer.wrap( scratch_, 0, size);
+    }
+
+  /**
+   * Returns the {@link Inflater} used to decompress class definitions read by this parser.
+   */
+  public Inflater getInflater()
+    {
+    if( inflater_ == null)
+      {
+      inflater_ = new Inflater( true);
+      }
+    return inflater_;
+    }
+
+  private void findAnnotations( String className)
+    {
+    try
+      {
+      className_ = className;
+      setElement( Annotated.Type.CLASS, 0);
+      readSuperClass();
+      readInterfaces();
+
+      if( fieldsRead_)
+        {
+        readFields();
+        }
+      else
+        {
+        skipMembers();
+        }
+
+      if( methodsRead_)
+        {
+        readMethods();
+        }
+      else if( classRead_)
+        {
+        skipMembers();
+        }
+
+      if( classRead_)
+        {
+        setElement( Annotated.Type.CLASS, 0);
+        readAttributes();
+        }
+      }
+    catch( Exception e)
+      {
+      throw new IllegalStateException( String.format( "Can't find annotations for class=%s, %s", className, getElementDescription()), e);
+      }
+    }
+  
+  private void readVersion() throws IOException
+    {
+    // sequence: minor version, major version (argument_index is 1-based)
+    readUnsignedShort();
+    readUnsignedShort();
+    }
+
+  /**
+   * Records the tag and offset of each constant pool entry. Entries are decoded only when resolved.
+   */
+  private void readConstantPoolEntries() throws IOException
+    {
+    final int count = readUnsignedShort();
+    resetConstants( count);
+    visibleAnnotationsIndex_ = 0;
+    invisibleAnnotationsIndex_ = 0;
+    visibleParameterAnnotationsIndex_ = 0;
+    invisibleParameterAnnotationsIndex_ = 0;
+    visibleTypeAnnotationsIndex_ = 0;
+    invisibleTypeAnnotationsIndex_ = 0;
+    descriptorFound_ = !isSelective();
+
+    for( int i = 1; i < count; i += readConstantPoolEntry( i));
+    }
+
+  /**
+   * Prepares the constant pool tables for a class with the given constant pool count.
+   */
+  private void resetConstants( int count)
+    {
+    if( constantTags_.length < count)
+      {
+      int capacity = Math.max( count, constantTags_.length * 2);
+      constantTags_ = new byte[ capacity];
+      constantOffsets_ = new int[ capacity];
+      constantStrings_ = new String[ capacity];
+      constantHashes_ = new int[ capacity];
+      }
+    else
+      {
+      Arrays.fill( constantStrings_, 0, count, null);
+      Arrays.fill( constantHashes_, 0, count, 0);
+      }
+    }
+
+  /**
+   * Return the number of slots read.
+   */
+  private int readConstantPoolEntry( final int index) throws IOException
+    {
+    final int tag = readUnsignedByte();
+    constantTags_[index] = (byte) tag;
+    constantOffsets_[index] = position_;
+    int numSlots = 1;
+    switch (tag)
+      {
+      case CP_METHOD_TYPE:
+        {
+        skip( 2);  // readUnsignedShort()
+        break;
+        }
+      case CP_METHOD_HANDLE:
+        {
+        skip( 3);
+        break;
+        }
+      case CP_INTEGER:
+      case CP_FLOAT:
+      case CP_REF_FIELD:
+      case CP_REF_METHOD:
+      case CP_REF_INTERFACE:
+      case CP_NAME_AND_TYPE:
+      case CP_DYNAMIC:
+      case CP_INVOKE_DYNAMIC:
+        {
+        skip( 4); // readInt() / readFloat() / readUnsignedShort() * 2
+        break;
+        }
+      case CP_LONG:
+      case CP_DOUBLE:
+        {
+        skip( 8); // readLong() / readDouble()
+        numSlots = 2;
+        break;
+        }
+      case CP_UTF8:
+        {
+        final int length = readUnsignedShort();
+        if( matches( position_, length, RUNTIME_VISIBLE_ANNOTATIONS))
+          {
+          visibleAnnotationsIndex_ = visibleAccepted_? index : 0;
+          }
+        else if( matches( position_, length, RUNTIME_INVISIBLE_ANNOTATIONS))
+          {
+          invisibleAnnotationsIndex_ = invisibleAccepted_? index : 0;
+          }
+        else if( matches( position_, length, RUNTIME_VISIBLE_PARAMETER_ANNOTATIONS))
+          {
+          visibleParameterAnnotationsIndex_ = visibleAccepted_ && parametersAccepted_? index : 0;
+          }
+        else if( matches( position_, length, RUNTIME_INVISIBLE_PARAMETER_ANNOTATIONS))
+          {
+          invisibleParameterAnnotationsIndex_ = invisibleAccepted_ && parametersAccepted_? index : 0;
+          }
+        else if( matches( position_, length, RUNTIME_VISIBLE_TYPE_ANNOTATIONS))
+          {
+          visibleTypeAnnotationsIndex_ = visibleAccepted_ && typeUsesAccepted_? index : 0;
+          }
+        else if( matches( position_, length, RUNTIME_INVISIBLE_TYPE_ANNOTATIONS))
+          {
+          invisibleTypeAnnotationsIndex_ = invisibleAccepted_ && typeUsesAccepted_? index : 0;
+          }
+        else if( !descriptorFound_)
+          {
+          descriptorFound_ = isAcceptedDescriptor( index, position_, length);
+          }
+        skip( length);
+        break;
+        }
+      case CP_CLASS:
+      case CP_STRING:
+      case CP_MODULE:
+      case CP_PACKAGE:
+        {
+        // reference to CP_UTF8 entry. The referenced index can have a higher number!
+        skip( 2);
+        break;
+        }
+      default:
+        {
+        throw new ClassFormatError( "Unkown tag value for constant pool entry: " + tag);
+        }
+      }
+
+    return numSlots;
+    }
+
+  /**
+   * Returns true if the constant pool shows that this class may contain an accepted annotation.
+   * Any annotation present must be named by an annotations attribute with an accepted retention, and its raw type
+   * name must appear in the constant pool.
+   */
+  private boolean isAnnotatable()
+    {
+    return
+      (((visibleAnnotationsIndex_ != 0 || invisibleAnnotationsIndex_ != 0) && (classAccepted_ || fieldsAccepted_ || methodsAccepted_))
+       || visibleParameterAnnotationsIndex_ != 0
+       || invisibleParameterAnnotationsIndex_ != 0
+       || visibleTypeAnnotationsIndex_ != 0
+       || invisibleTypeAnnotationsIndex_ != 0)
+      && descriptorFound_;
+    }
+
+  private void readAccessFlags() throws IOException
+    {
+    skip( 2); // u2
+    }
+
+  private String readThisClass() throws IOException
+    {
+    return resolveUtf8().replace( '/', '.');
+    }
+
+  private void readSuperClass() throws IOException
+    {
+    skip( 2); // u2
+    }
+
+  private void readInterfaces() throws IOException
+    {
+    final int count = readUnsignedShort();
+    skip( count * 2); // count * u2
+    }
+
+  private void readFields() throws IOException
+    {
+    final int count = readUnsignedShort();
+    for (int i = 0; i < count; ++i)
+      {
+      readAccessFlags();
+      setElement( Annotated.Type.FIELD, readUnsignedShort());
+      skip( 2); // descriptor
+      readAttributes();
+      }
+    }
+
+  private void readMethods() throws IOException
+    {
+    final int count = readUnsignedShort();
+    for (int i = 0; i < count; ++i)
+      {
+      readAccessFlags();
+      setElement( Annotated.Type.METHOD, readUnsignedShort());
+      skip( 2); // descriptor
+      readAttributes();
+      }
+    }
+
+  /**
+   * Skips the next table of fields or methods.
+   */
+  private void skipMembers()
+    {
+    final int count = readUnsignedShort();
+    for (int i = 0; i < count; ++i)
+      {
+      skip( 6); // access flags, name, descriptor
+      skipAttributes();
+      }
+    }
+
+  /**
+   * Skips the attributes of the current class element.
+   */
+  private void skipAttributes()
+    {
+    final int count = readUnsignedShort();
+    for (int i = 0; i < count; ++i)
+      {
+      skip( 2); // name
+      skip( readInt());
+      }
+    }
+
+  /**
+   * Reads the attributes of the current class element.
+   */
+  private void readAttributes() throws IOException
+    {
+    final int count = readUnsignedShort();
+    for (int i = 0; i < count; ++i)
+      {
+      final int name = readUnsignedShort();
+      final int length = readInt();
+
+      if( (name == visibleAnnotationsIndex_ || name == invisibleAnnotationsIndex_) && elementAccepted_)
+        {
+        readAnnotations( name == visibleAnnotationsIndex_);
+        }
+      else if( name == visibleParameterAnnotationsIndex_ || name == invisibleParameterAnnotationsIndex_)
+        {
+        readParameterAnnotations( name == visibleParameterAnnotationsIndex_);
+        }
+      else if( name == visibleTypeAnnotationsIndex_ || name == invisibleTypeAnnotationsIndex_)
+        {
+        readTypeAnnotations( name == visibleTypeAnnotationsIndex_);
+        }
+      else
+        {
+        skip( length);
+        }
+      }
+    }
+
+  /**
+   * Reads the annotations of the current class element with the given runtime visibility.
+   */
+  private void readAnnotations( boolean isRuntime) throws IOException
+    {
+    // the number of Runtime(In)VisibleAnnotations
+    final int count = readUnsignedShort();
+    for (int i = 0; i < count; ++i)
+      {
+      reportAnnotation( acceptAnnotation( readAnnotation()), isRuntime);
+      }
+    }
+
+  /**
+   * Reads the parameter annotations of the current method with the given runtime visibility.
+   */
+  private void readParameterAnnotations( boolean isRuntime) throws IOException
+    {
+    final int parameters = readUnsignedByte();
+    for (int parameter = 0; parameter < parameters; ++parameter)
+      {
+      final int count = readUnsignedShort();
+      for (int i = 0; i < count; ++i)
+        {
+        String annotation = acceptAnnotation( readAnnotation());
+        if( annotation != null)
+          {
+          addAnnotated( new AnnotatedParameter( annotation, className_, getUtf8( elementIndex_), parameter, isRuntime, file_));
+          }
+        }
+      }
+    }
+
+  /**
+   * Reads the type annotations of the current class element with the given runtime visibility.
+   */
+  private void readTypeAnnotations( boolean isRuntime) throws IOException
+    {
+    final int count = readUnsignedShort();
+    for (int i = 0; i < count; ++i)
+      {
+      final int targetType = readUnsignedByte();
+      final int targetIndex = readTargetInfo( targetType);
+      skip( readUnsignedByte() * 2); // type_path
+      String annotation = acceptAnnotation( readAnnotation());
+      AnnotatedTypeUse.Target target = toTarget( targetType);
+      if( annotation != null && target != null)
+        {
+        addAnnotated(
+          new AnnotatedTypeUse(
+            annotation,
+            className_,
+            elementIndex_ == 0? null : getUtf8( elementIndex_),
+            target,
+            targetIndex,
+            isRuntime,
+            file_));
+        }
+      }
+    }
+
+  /**
+   * Reads the target_info of a type annotation with the given target type. Returns the index of the type
+   * parameter, supertype, formal parameter, or thrown type targeted. Otherwise, returns -1.
+   */
+  private int readTargetInfo( int targetType)
+    {
+    int targetIndex = -1;
+    switch( targetType)
+      {
+      case TARGET_CLASS_TYPE_PARAMETER:
+      case TARGET_METHOD_TYPE_PARAMETER:
+      case TARGET_METHOD_PARAMETER:
+        {
+        targetIndex = readUnsignedByte();
+        break;
+        }
+      case TARGET_SUPERTYPE:
+      case TARGET_THROWS:
+        {
+        targetIndex = readUnsignedShort();
+        break;
+        }
+      case TARGET_CLASS_TYPE_PARAMETER_BOUND:
+      case TARGET_METHOD_TYPE_PARAMETER_BOUND:
+        {
+        targetIndex = readUnsignedByte();
+        skip( 1); // bound_index
+        break;
+        }
+      case TARGET_FIELD:
+      case TARGET_METHOD_RETURN:
+      case TARGET_METHOD_RECEIVER:
+        {
+        break;
+        }
+      case TARGET_LOCAL_VARIABLE:
+      case TARGET_RESOURCE_VARIABLE:
+        {
+        skip( readUnsignedShort() * 6); // table of u2 start_pc, u2 length, u2 index
+        break;
+        }
+      case TARGET_EXCEPTION_PARAMETER:
+      case TARGET_INSTANCEOF:
+      case TARGET_NEW:
+      case TARGET_CONSTRUCTOR_REFERENCE:
+      case TARGET_METHOD_REFERENCE:
+        {
+        skip( 2);
+        break;
+        }
+      case TARGET_CAST:
+      case TARGET_CONSTRUCTOR_INVOCATION_TYPE_ARGUMENT:
+      case TARGET_METHOD_INVOCATION_TYPE_ARGUMENT:
+      case TARGET_CONSTRUCTOR_REFERENCE_TYPE_ARGUMENT:
+      case TARGET_METHOD_REFERENCE_TYPE_ARGUMENT:
+        {
+        skip( 3);
+        break;
+        }
+      default:
+        {
+        throw new ClassFormatError( "Not a valid type annotation target type: 0x" + Integer.toHexString( targetType));
+        }
+      }
+
+    return targetIndex;
+    }
+
+  /**
+   * Returns the type use target for the given target type. Returns null for a target within a method body.
+   */
+  private static AnnotatedTypeUse.Target toTarget( int targetType)
+    {
+    switch( targetType)
+      {
+      case TARGET_CLASS_TYPE_PARAMETER: return AnnotatedTypeUse.Target.CLASS_TYPE_PARAMETER;
+      case TARGET_METHOD_TYPE_PARAMETER: return AnnotatedTypeUse.Target.METHOD_TYPE_PARAMETER;
+      case TARGET_SUPERTYPE: return AnnotatedTypeUse.Target.SUPERTYPE;
+      case TARGET_CLASS_TYPE_PARAMETER_BOUND: return AnnotatedTypeUse.Target.CLASS_TYPE_PARAMETER_BOUND;
+      case TARGET_METHOD_TYPE_PARAMETER_BOUND: return AnnotatedTypeUse.Target.METHOD_TYPE_PARAMETER_BOUND;
+      case TARGET_FIELD: return AnnotatedTypeUse.Target.FIELD;
+      case TARGET_METHOD_RETURN: return AnnotatedTypeUse.Target.METHOD_RETURN;
+      case TARGET_METHOD_RECEIVER: return AnnotatedTypeUse.Target.METHOD_RECEIVER;
+      case TARGET_METHOD_PARAMETER: return AnnotatedTypeUse.Target.METHOD_PARAMETER;
+      case TARGET_THROWS: return AnnotatedTypeUse.Target.THROWS;
+      default: return null;
+      }
+    }
+
+  /**
+   * Reads an annotation and returns the constant pool index of its raw type name.
+   */
+  private int readAnnotation() throws IOException
+    {
+    final int type = readUnsignedShort();
+    final int values = position_;
+    // num_element_value_pairs
+    final int count = readUnsignedShort();
+    for (int i = 0; i < count; ++i)
+      {
+      skip( 2); // element_name_index
+      readAnnotationElementValue();
+      }
+
+    // Set after reading any nested annotation, so that this refers to the outermost annotation.
+    valuesOffset_ = values;
+    return type;
+    }
+
+  /**
+   * Returns the element values of the annotation just read. Returns null if no element values are given.
+   */
+  private ElementValues getElementValues()
+    {
+    ElementValues values = null;
+    if( getUnsignedShort( valuesOffset_) > 0)
+      {
+      valueConstantCount_ = 0;
+      addPairConstants( valuesOffset_);
+
+      // Sort and remove duplicates.
+      Arrays.sort( valueConstants_, 0, valueConstantCount_);
+      int count = 0;
+      for( int i = 0; i < valueConstantCount_; i++)
+        {
+        if( count == 0 || valueConstants_[ count - 1] != valueConstants_[i])
+          {
+          valueConstants_[ count++] = valueConstants_[i];
+          }
+        }
+
+      values =
+        new ElementValues(
+          ElementValues.snapshot( buffer_, valuesOffset_, position_, valueConstants_, count, constantTags_, constantOffsets_));
+      }
+
+    return values;
+    }
+
+  /**
+   * Adds the constant pool entries referenced by the element_value_pairs at the given offset. Returns the offset
+   * following these element values.
+   */
+  private int addPairConstants( int offset)
+    {
+    final int count = getUnsignedShort( offset);
+    int next = offset + 2;
+    for (int i = 0; i < count; ++i)
+      {
+      addValueConstant( getUnsignedShort( next)); // element_name_index
+      next = addValueConstants( next + 2);
+      }
+    return next;
+    }
+
+  /**
+   * Adds the constant pool entries referenced by the element_value at the given offset. Returns the offset
+   * following this element value.
+   */
+  private int addValueConstants( int offset)
+    {
+    final int tag = buffer_.get( offset) & 0xff;
+    int next;
+    switch (tag)
+      {
+      case ENUM:
+        addValueConstant( getUnsignedShort( offset + 1));
+        addValueConstant( getUnsignedShort( offset + 3));
+        next = offset + 5;
+        break;
+      case ANNOTATION:
+        addValueConstant( getUnsignedShort( offset + 1));
+        next = addPairConstants( offset + 3);
+        break;
+      case ARRAY:
+        final int count = getUnsignedShort( offset + 1);
+        next = offset + 3;
+        for (int i = 0; i < count; ++i)
+          {
+          next = addValueConstants( next);
+          }
+        break;
+      default:
+        addValueConstant( getUnsignedShort( offset + 1));
+        next = offset + 3;
+        break;
+      }
+    return next;
+    }
+
+  /**
+   * Adds a constant pool entry referenced by the current element values.
+   */
+  private void addValueConstant( int index)
+    {
+    if( valueConstantCount_ == valueConstants_.length)
+      {
+      valueConstants_ = Arrays.copyOf( valueConstants_, valueConstants_.length * 2);
+      }
+    valueConstants_[ valueConstantCount_++] = index;
+    }
+
+  private void readAnnotationElementValue() throws IOException
+    {
+    final int tag = readUnsignedByte();
+    switch (tag)
+      {
+      case BYTE:
+      case CHAR:
+      case DOUBLE:
+      case FLOAT:
+      case INT:
+      case LONG:
+      case SHORT:
+      case BOOLEAN:
+      case STRING:
+        skip( 2);
+        break;
+      case ENUM:
+        skip( 4); // 2 * u2
+        break;
+      case CLASS:
+        skip( 2);
+        break;
+      case ANNOTATION:
+        readAnnotation();
+        break;
+      case ARRAY:
+        final int count = readUnsignedShort();
+        for (int i = 0; i < count; ++i)
+          {
+          readAnnotationElementValue();
+          }
+        break;
+      default:
+        throw new ClassFormatError("Not a valid annotation element type tag: 0x" + Integer.toHexString(tag));
+      }
+    }
+
+  /**
+   * Look up the String value, identified by the u2 index value from constant pool
+   * (direct or indirect).
+   */
+  private String resolveUtf8() throws IOException
+    {
+    return getUtf8( readUnsignedShort());
+    }
+
+  /**
+   * Returns the String value of the given constant pool entry (direct or indirect).
+   * The value is decoded the first time it is resolved.
+   */
+  private String getUtf8( int index) throws IOException
+    {
+    final int utf8 =
+      constantTags_[ index] == CP_UTF8
+      ? index
+      : getUnsignedShort( constantOffsets_[ index]);
+
+    String value = constantStrings_[ utf8];
+    if( value == null)
+      {
+      value = constantStrings_[ utf8] = Buffers.decodeUtf8( buffer_, constantOffsets_[ utf8] + 2, getUnsignedShort( constantOffsets_[ utf8]));
+      }
+
+    return value;
+    }
+
+  /**
+   * If the annotation with the raw type name at the given constant pool index is accepted, returns the
+   * annotation class name. Otherwise, returns null.
+   */
+  private String acceptAnnotation( int type) throws IOException
+    {
+    String annotation;
+    if( rawFilter_ == null)
+      {
+      annotation = getFilter().acceptAnnotation( getUtf8( type)).orElse( null);
+      }
+    else
+      {
+      final int offset = constantOffsets_[ type];
+      final int length = getUnsignedShort( offset);
+      final int id = rawFilter_.acceptDescriptor( buffer_, offset + 2, length, getHash( type, offset + 2, length));
+      annotation = id == RawAnnotationFilter.REJECT? null : rawFilter_.getAnnotation( id);
+      }
+
+    return annotation;
+    }
+
+  /**
+   * Returns true if the modified UTF-8 bytes for the given constant pool entry are equal to any raw type name
+   * accepted by the filter.
+   */
+  private boolean isAcceptedDescriptor( int index, int offset, int length)
+    {
+    return
+      length > 2
+      && buffer_.get( offset) == 'L'
+      && buffer_.get( offset + length - 1) == ';'
+      && rawFilter_.acceptDescriptor( buffer_, offset, length, getHash( index, offset, length)) != RawAnnotationFilter.REJECT;
+    }
+
+  /**
+   * Returns the hash of the bytes for the given constant pool entry.
+   */
+  private int getHash( int index, int offset, int length)
+    {
+    int hash = constantHashes_[ index];
+    if( hash == 0)
+      {
+      hash = constantHashes_[ index] = RawAnnotationFilter.hash( buffer_, offset, length);
+      }
+    return hash;
+    }
+
+  /**
+   * Returns true if the filter accepts only specific annotations that can be recognized in the constant pool.
+   */
+  private boolean isSelective()
+    {
+    return rawFilter_ != null && !rawFilter_.acceptsAllAnnotations();
+    }
+
+  /**
+   * Returns true if the modified UTF-8 bytes at the given offset are equal to the given bytes.
+   */
+  private boolean matches( int offset, int length, byte[] bytes)
+    {
+    boolean matched = length == bytes.length;
+    for( int i = 0; matched && i < length; i++)
+      {
+      matched = buffer_.get( offset + i) == bytes[i];
+      }
+    return matched;
+    }
+
+  /**
+   * Reads an unsigned byte at the current position.
+   */
+  private int readUnsignedByte()
+    {
+    return buffer_.get( position_++) & 0xff;
+    }
+
+  /**
+   * Reads an unsigned 16-bit value at the current position.
+   */
+  private int readUnsignedShort()
+    {
+    int value = getUnsignedShort( position_);
+    position_ += 2;
+    return value;
+    }
+
+  /**
+   * Returns the unsigned 16-bit value at the given offset.
+   */
+  private int getUnsignedShort( int offset)
+    {
+    return ((buffer_.get( offset) & 0xff) << 8) | (buffer_.get( offset + 1) & 0xff);
+    }
+
+  /**
+   * Reads a 32-bit value at the current position.
+   */
+  private int readInt()
+    {
+    int value = buffer_.getInt( position_);
+    position_ += 4;
+    return value;
+    }
+
+  /**
+   * Skips the given number of bytes.
+   */
+  private void skip( int length)
+    {
+    position_ += length;
+    }
+
+  /**
+   * Changes the buffer containing the class data.
+   */
+  private void setBuffer( ByteBuffer buffer)
+    {
+    buffer_ =
+      buffer == null || buffer.order() == ByteOrder.BIG_ENDIAN
+      ? buffer
+      : buffer.duplicate().order( ByteOrder.BIG_ENDIAN);
+    
+    position_ = buffer == null? 0 : buffer.position();
+    }
+
+  /**
+   * Changes the scan that reads this class.
+   */
+  private void setScan( ScanContext scan)
+    {
+    filter_ = scan.getFilter();
+    rawFilter_ = scan.getRawFilter();
+    classAccepted_ = filter_.acceptType( Annotated.Type.CLASS);
+    fieldsAccepted_ = filter_.acceptType( Annotated.Type.FIELD);
+    methodsAccepted_ = filter_.acceptType( Annotated.Type.METHOD);
+    parametersAccepted_ = filter_.acceptType( Annotated.Type.PARAMETER);
+    typeUsesAccepted_ = filter_.acceptType( Annotated.Type.TYPE_USE);
+    visibleAccepted_ = filter_.acceptRetention( RetentionPolicy.RUNTIME);
+    invisibleAccepted_ = filter_.acceptRetention( RetentionPolicy.CLASS);
+
+    classRead_ = classAccepted_ || typeUsesAccepted_;
+    fieldsRead_ = fieldsAccepted_ || typeUsesAccepted_;
+    methodsRead_ = methodsAccepted_ || parametersAccepted_ || typeUsesAccepted_;
+    }
+
+  /**
+   * Returns the {@link AnnotationFilter} for this class.
+   */
+  private AnnotationFilter getFilter()
+    {
+    return filter_;
+    }
+
+  /**
+   * Changes the type of the current class element and the constant pool index of its name.
+   */
+  private void setElement( Annotated.Type type, int nameIndex)
+    {
+    elementType_ = type;
+    elementIndex_ = nameIndex;
+    elementAccepted_ =
+      type == Annotated.Type.CLASS?
+      classAccepted_ :
+
+      type == Annotated.Type.METHOD?
+      methodsAccepted_ :
+
+      fieldsAccepted_;
+    }
+
+  /**
+   * Returns a description of the current class element.
+   */
+  private String getElementDescription()
+    {
+    String element;
+    try
+      {
+      element = elementIndex_ == 0? null : getUtf8( elementIndex_);
+      }
+    catch( Exception e)
+      {
+      element = String.format( "#%s", elementIndex_);
+      }
+
+    return String.format( "type=%s, element=%s", elementType_, element);
+    }
+
+  /**
+   * Report a reference to the given annotation, if accepted by the filter.
+   */
+  private void reportAnnotation( String annotation, boolean isRuntime) throws IOException
+    {
+    // Is this annotation reference is accepted by the filter?
+    if( annotation != null)
+      {
+      // Yes, return this reference
+      Annotated annotated;
+      switch( elementType_)
+        {
+        case METHOD:
+          {
+          annotated = new AnnotatedMethod( annotation, className_, getUtf8( elementIndex_), isRuntime, file_);
+          break;
+          }
+        case FIELD:
+          {
+          annotated = new AnnotatedField( annotation, className_, getUtf8( elementIndex_), isRuntime, file_);
+          break;
+          }
+        default:
+          {
+          annotated = new AnnotatedClass( annotation, className_, isRuntime, file_);
+          break;
+          }
+        }
+
+      addAnnotated( annotated);
+      }
+    }
+
+  /**
+   * Adds an annotated element to the results for this class.
+   */
+  private void addAnnotated( Annotated annotated)
+    {
+    annotated.setElementValues( getElementValues());
+    if( annotated_ == null)
+      {
+      annotated_ = new ArrayList<Annotated>();
+      }
+    annotated_.add( annotated);
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( "class", className_)
+      .toString();
+    }
+
+  // Constant pool type tags
+  private static final int CP_UTF8 = 1;
+  private static final int CP_INTEGER = 3;
+  private static final int CP_FLOAT = 4;
+  private static final int CP_LONG = 5;
+  private static final int CP_DOUBLE = 6;
+  private static final int CP_CLASS = 7;
+  private static final int CP_STRING = 8;
+  private static final int CP_REF_FIELD = 9;
+  private static final int CP_REF_METHOD = 10;
+  private static final int CP_REF_INTERFACE = 11;
+  private static final int CP_NAME_AND_TYPE = 12;
+  private static final int CP_METHOD_HANDLE = 15;
+  private static final int CP_METHOD_TYPE = 16;
+  private static final int CP_DYNAMIC = 17;
+  private static final int CP_INVOKE_DYNAMIC = 18;
+  private static final int CP_MODULE = 19;
+  private static final int CP_PACKAGE = 20;
+
+  // Type annotation target types
+  private static final int TARGET_CLASS_TYPE_PARAMETER = 0x00;
+  private static final int TARGET_METHOD_TYPE_PARAMETER = 0x01;
+  private static final int TARGET_SUPERTYPE = 0x10;
+  private static final int TARGET_CLASS_TYPE_PARAMETER_BOUND = 0x11;
+  private static final int TARGET_METHOD_TYPE_PARAMETER_BOUND = 0x12;
+  private static final int TARGET_FIELD = 0x13;
+  private static final int TARGET_METHOD_RETURN = 0x14;
+  private static final int TARGET_METHOD_RECEIVER = 0x15;
+  private static final int TARGET_METHOD_PARAMETER = 0x16;
+  private static final int TARGET_THROWS = 0x17;
+  private static final int TARGET_LOCAL_VARIABLE = 0x40;
+  private static final int TARGET_RESOURCE_VARIABLE = 0x41;
+  private static final int TARGET_EXCEPTION_PARAMETER = 0x42;
+  private static final int TARGET_INSTANCEOF = 0x43;
+  private static final int TARGET_NEW = 0x44;
+  private static final int TARGET_CONSTRUCTOR_REFERENCE = 0x45;
+  private static final int TARGET_METHOD_REFERENCE = 0x46;
+  private static final int TARGET_CAST = 0x47;
+  private static final int TARGET_CONSTRUCTOR_INVOCATION_TYPE_ARGUMENT = 0x48;
+  private static final int TARGET_METHOD_INVOCATION_TYPE_ARGUMENT = 0x49;
+  private static final int TARGET_CONSTRUCTOR_REFERENCE_TYPE_ARGUMENT = 0x4A;
+  private static final int TARGET_METHOD_REFERENCE_TYPE_ARGUMENT = 0x4B;
+
+  // AnnotationElementValue
+  private static final int BYTE = 'B';
+  private static final int CHAR = 'C';
+  private static final int DOUBLE = 'D';
+  private static final int FLOAT = 'F';
+  private static final int INT = 'I';
+  private static final int LONG = 'J';
+  private static final int SHORT = 'S';
+  private static final int BOOLEAN = 'Z';
+
+  // Used for AnnotationElement only
+  private static final int STRING = 's';
+  private static final int ENUM = 'e';
+  private static final int CLASS = 'c';
+  private static final int ANNOTATION = '@';
+  private static final int ARRAY = '[';
+
+  private ByteBuffer buffer_;
+  private int position_;
+  private byte[] scratch_ = new byte[ 16384];
+  private Inflater inflater_;
+  private byte[] constantTags_ = new byte[ 256];
+  private int[] constantOffsets_ = new int[ 256];
+  private String[] constantStrings_ = new String[ 256];
+  private int[] constantHashes_ = new int[ 256];
+  private int visibleAnnotationsIndex_;
+  private int invisibleAnnotationsIndex_;
+  private int visibleParameterAnnotationsIndex_;
+  private int invisibleParameterAnnotationsIndex_;
+  private int visibleTypeAnnotationsIndex_;
+  private int invisibleTypeAnnotationsIndex_;
+  private String className_;
+  private File file_;
+  private Annotated.Type elementType_;
+  private int elementIndex_;
+  private boolean elementAccepted_;
+  private int valuesOffset_;
+  private int[] valueConstants_ = new int[ 32];
+  private int valueConstantCount_;
+  private List<Annotated> annotated_;
+  private AnnotationFilter filter_;
+  private AnnotationFilter scanFilter_;
+  private ScanContext filterScan_;
+  private RawAnnotationFilter rawFilter_;
+  private boolean descriptorFound_;
+  private boolean classAccepted_;
+  private boolean fieldsAccepted_;
+  private boolean methodsAccepted_;
+  private boolean parametersAccepted_;
+  private boolean typeUsesAccepted_;
+  private boolean visibleAccepted_;
+  private boolean invisibleAccepted_;
+  private boolean classRead_;
+  private boolean fieldsRead_;
+  private boolean methodsRead_;
+
+  private static final byte[] RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations".getBytes( StandardCharsets.UTF_8);
+  private static final byte[] RUNTIME_INVISIBLE_ANNOTATIONS = "RuntimeInvisibleAnnotations".getBytes( StandardCharsets.UTF_8);
+  private static final byte[] RUNTIME_VISIBLE_PARAMETER_ANNOTATIONS = "RuntimeVisibleParameterAnnotations".getBytes( StandardCharsets.UTF_8);
+  private static final byte[] RUNTIME_INVISIBLE_PARAMETER_ANNOTATIONS = "RuntimeInvisibleParameterAnnotations".getBytes( StandardCharsets.UTF_8);
+  private static final byte[] RUNTIME_VISIBLE_TYPE_ANNOTATIONS = "RuntimeVisibleTypeAnnotations".getBytes( StandardCharsets.UTF_8);
+  private static final byte[] RUNTIME_INVISIBLE_TYPE_ANNOTATIONS = "RuntimeInvisibleTypeAnnotations".getBytes( StandardCharsets.UTF_8);
+  }
@@ -20,9 +20,17 @@ public class ClassPathAnnotated extends FlatMapIterator<Annotated,File>
    * Creates a new ClassPathAnnotated instance.
    */
   public ClassPathAnnotated( Collection<File> classPath, AnnotationFilter filter)
+    {
+    this( classPath, new ScanContext( filter));
+    }
+
+  /**
+   * Creates a new ClassPathAnnotated instance.
+   */
+  ClassPathAnnotated( Collection<File> classPath, ScanContext scan)
     {
     super( classPath);
-    filter_ = filter;
+    scan_ = scan;
     }
 
   /**
@@ -32,12 +40,12 @@ public class ClassPathAnnotated extends FlatMapIterator<Annotated,File>
     {
     return
       file.isDirectory()?
-      new DirectoryAnnotated( file, filter_) :
+      new DirectoryAnnotated( file, scan_) :
       
       file.getName().endsWith( ".jar")?
-      new JarAnnotated( file, filter_) :
+      new JarAnnotated( file, scan_) :
 
-      new ClassFileData( file).getAnnotated( filter_); 
+      new ClassFileData( file).getAnnotated( scan_); 
     }
 
   /**
@@ -52,5 +60,5 @@ public class ClassPathAnnotated extends FlatMapIterator<Annotated,File>
       || file.getName().endsWith( ".class");
     }
 
-  private AnnotationFilter filter_;
+  private final ScanContext scan_;
   }
@@ -0,0 +1,217 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.File;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Identifies the class path element that provides each class file, when the same class file may appear in
+ * several class path elements.
+ * <P/>
+ * Before the scan begins, the class file paths of each class path element are {@link #claim claimed} in class path
+ * order, so that each class file belongs to the first element that contains it, as when loaded by the JVM. The result
+ * is the same for both sequential and parallel scans. Claims are stored in a compact open-addressing table that
+ * refers to the class file path strings already held by the scan. After all claims are made, the table is read-only,
+ * so it can be read concurrently by different threads.
+ */
+class ClassPathShadows
+  {
+  /**
+   * Creates a new ClassPathShadows instance. If <CODE>report</CODE> is non-null, shadowed class files are recorded
+   * in this report.
+   */
+  public ClassPathShadows( ShadowReport report, ScanStatistics statistics)
+    {
+    report_ = report;
+    statistics_ = statistics;
+    }
+
+  /**
+   * Returns true if claims for all class path elements have been made.
+   */
+  public boolean isPrepared()
+    {
+    return prepared_;
+    }
+
+  /**
+   * Records that claims for all class path elements have been made.
+   */
+  public void prepared()
+    {
+    prepared_ = true;
+    }
+
+  /**
+   * Adds the next class path element. Class path elements are identified by their index, in class path order.
+   */
+  public void addElement( File element)
+    {
+    elements_.add( element);
+    }
+
+  /**
+   * Claims the class file with the given path for the class path element with the given index, unless already
+   * claimed by an earlier element.
+   */
+  public void claim( String classFilePath, int index)
+    {
+    if( (count_ + 1) * 2 > keys_.length)
+      {
+      resize();
+      }
+
+    int slot = find( classFilePath);
+    if( keys_[ slot] == null)
+      {
+      keys_[ slot] = classFilePath;
+      owners_[ slot] = index;
+      count_++;
+      }
+    else if( owners_[ slot] != index)
+      {
+      statistics_.classShadowed();
+      if( report_ != null)
+        {
+        report_.add( new ShadowReport.Shadowed( classFilePath, elements_.get( index), elements_.get( owners_[ slot])));
+        }
+      }
+    }
+
+  /**
+   * Returns true if the class file with the given path belongs to an earlier class path element than the one with
+   * the given index.
+   */
+  public boolean isShadowed( String classFilePath, int index)
+    {
+    int slot = find( classFilePath);
+    return keys_[ slot] != null && owners_[ slot] != index;
+    }
+
+  /**
+   * Returns a filter that selects the same class files as the given filter, except for those shadowed for the
+   * class path element with the given index.
+   */
+  public AnnotationFilter select( AnnotationFilter filter, int index)
+    {
+    return new ShadowFilter( filter, index);
+    }
+
+  /**
+   * Returns the slot for the given key, or the empty slot where it belongs.
+   */
+  private int find( String key)
+    {
+    int mask = keys_.length - 1;
+    int slot = mix( key.hashCode()) & mask;
+    while( keys_[ slot] != null && !keys_[ slot].equals( key))
+      {
+      slot = (slot + 1) & mask;
+      }
+    return slot;
+    }
+
+  /**
+   * Doubles the size of the table.
+   */
+  private void resize()
+    {
+    String[] keys = keys_;
+    int[] owners = owners_;
+    keys_ = new String[ keys.length * 2];
+    owners_ = new int[ keys.length * 2];
+    for( int i = 0; i < keys.length; i++)
+      {
+      if( keys[i] != null)
+        {
+        int slot = find( keys[i]);
+        keys_[ slot] = keys[i];
+        owners_[ slot] = owners[i];
+        }
+      }
+    }
+
+  /**
+   * Spreads the bits of the given hash code.
+   */
+  private static int mix( int hash)
+    {
+    int mixed = hash * 0x9E3779B9;
+    return mixed ^ (mixed >>> 16);
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( "classes", count_)
+      .toString();
+    }
+
+  /**
+   * Selects the class files that are not shadowed for a class path element.
+   */
+  private class ShadowFilter implements AnnotationFilter
+    {
+    public ShadowFilter( AnnotationFilter filter, int index)
+      {
+      filter_ = filter;
+      index_ = index;
+      }
+
+    public Optional<String> acceptAnnotation( String rawTypeName)
+      {
+      return filter_.acceptAnnotation( rawTypeName);
+      }
+
+    public boolean acceptClass( String className)
+      {
+      return filter_.acceptClass( className);
+      }
+
+    public boolean acceptPackagePath( String packagePath)
+      {
+      return filter_.acceptPackagePath( packagePath);
+      }
+
+    public boolean acceptClassFile( String classFilePath)
+      {
+      return filter_.acceptClassFile( classFilePath) && !isShadowed( classFilePath, index_);
+      }
+
+    public boolean acceptType( Annotated.Type type)
+      {
+      return filter_.acceptType( type);
+      }
+
+    public boolean acceptRetention( RetentionPolicy retention)
+      {
+      return filter_.acceptRetention( retention);
+      }
+
+    public Optional<String> getFingerprint()
+      {
+      return filter_.getFingerprint();
+      }
+
+    private final AnnotationFilter filter_;
+    private final int index_;
+    }
+
+  private final ShadowReport report_;
+  private final ScanStatistics statistics_;
+  private final List<File> elements_ = new ArrayList<File>();
+  private String[] keys_ = new String[ 1024];
+  private int[] owners_ = new int[ 1024];
+  private int count_;
+  private volatile boolean prepared_;
+  }
@@ -0,0 +1,886 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import org.cornutum.annotation.ScanListener.ElementKind;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A {@link Spliterator} that returns selected {@link Annotated} instances from specified class path elements.
+ * <P/>
+ * The work of the scan is divided into units: class path elements, directory subtrees, ranges of JAR entries,
+ * and individual class files. A ClassPathSpliterator can be split between class path elements and, when only one
+ * unit remains, by dividing that unit into smaller units. When traversed sequentially, the {@link Annotated}
+ * instances are returned in the same order as {@link ClassPathAnnotated}. Directory subtrees and JAR entries for
+ * packages that the {@link AnnotationFilter} rejects are never included in any unit.
+ */
+class ClassPathSpliterator implements Spliterator<Annotated>
+  {
+  /**
+   * Creates a new ClassPathSpliterator instance.
+   */
+  public ClassPathSpliterator( Collection<File> classPath, ScanContext scan, boolean ordered)
+    {
+    this( toUnits( classPath), scan, ordered);
+    }
+
+  /**
+   * Creates a new ClassPathSpliterator instance.
+   */
+  private ClassPathSpliterator( List<Unit> units, ScanContext scan, boolean ordered)
+    {
+    units_ = units;
+    scan_ = scan;
+    ordered_ = ordered;
+    }
+
+  public boolean tryAdvance( Consumer<? super Annotated> action)
+    {
+    prepare();
+    while( (annotated_ == null || !annotated_.hasNext()) && next_ < units_.size())
+      {
+      annotated_ = units_.get( next_++).getAnnotated( scan_);
+      }
+
+    boolean advanced = annotated_ != null && annotated_.hasNext();
+    if( advanced)
+      {
+      action.accept( annotated_.next());
+      }
+
+    return advanced;
+    }
+
+  public Spliterator<Annotated> trySplit()
+    {
+    prepare();
+    ClassPathSpliterator prefix = null;
+
+    // Traversal not yet started?
+    if( annotated_ == null)
+      {
+      int remaining = units_.size() - next_;
+      if( remaining > 1)
+        {
+        // Split remaining units in half
+        int mid = next_ + remaining / 2;
+        prefix = new ClassPathSpliterator( new ArrayList<Unit>( units_.subList( next_, mid)), scan_, ordered_);
+        next_ = mid;
+        }
+      else if( remaining == 1)
+        {
+        // Split the last unit into smaller units?
+        List<Unit> units = units_.get( next_).split( scan_);
+        if( units.size() > 1)
+          {
+          units_ = units;
+          next_ = 0;
+          prefix = (ClassPathSpliterator) trySplit();
+          }
+        }
+      }
+
+    return prefix;
+    }
+
+  public long estimateSize()
+    {
+    prepare();
+    long size = 0;
+    for( int i = next_; i < units_.size() && size < Long.MAX_VALUE; i++)
+      {
+      size = Math.max( size, size + units_.get(i).estimateSize( scan_));
+      }
+
+    return size;
+    }
+
+  public int characteristics()
+    {
+    return
+      NONNULL
+      | (ordered_? ORDERED : 0);
+    }
+
+  /**
+   * If this scan skips shadowed class files, identifies the class path element that provides each class file,
+   * before any class file is read.
+   */
+  private void prepare()
+    {
+    ClassPathShadows shadows = scan_.getShadows();
+    if( shadows != null && !shadows.isPrepared())
+      {
+      synchronized( shadows)
+        {
+        if( !shadows.isPrepared())
+          {
+          // Traversal not yet started, so all class path elements remain.
+          for( Unit unit : units_)
+            {
+            shadows.addElement( unit.getElement());
+            unit.claim( scan_, shadows);
+            }
+          shadows.prepared();
+          }
+        }
+      }
+    }
+
+  /**
+   * Returns the units of work that scan the given class path elements.
+   */
+  private static List<Unit> toUnits( Collection<File> classPath)
+    {
+    List<Unit> units = new ArrayList<Unit>();
+    for( File file : classPath)
+      {
+      toUnit( file).ifPresent( unit -> {
+        unit.setIndex( units.size());
+        units.add( unit);
+        });
+      }
+
+    return units;
+    }
+
+  /**
+   * Returns the unit of work that scans the given class path element. Returns empty if the given
+   * file is not a class path element that can be scanned.
+   */
+  private static Optional<Unit> toUnit( File file)
+    {
+    boolean isDirectory;
+    try
+      {
+      isDirectory = java.nio.file.Files.readAttributes( file.toPath(), BasicFileAttributes.class).isDirectory();
+      }
+    catch( IOException e)
+      {
+      isDirectory = false;
+      }
+
+    return
+      Optional.ofNullable(
+        isDirectory?
+        new DirectoryUnit( file, file, "", true) :
+
+        file.getName().endsWith( ".jar")?
+        new JarUnit( file) :
+
+        file.getName().endsWith( ".class")?
+        new ClassFileUnit( file, file, ElementKind.CLASS_FILE) :
+
+        null);
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( "units", units_.size() - next_)
+      .append( "ordered", ordered_)
+      .toString();
+    }
+
+  /**
+   * A unit of work for a scan.
+   */
+  private static abstract class Unit
+    {
+    /**
+     * Creates a new Unit instance that scans all or part of the given class path element.
+     */
+    protected Unit( File element, ElementKind kind)
+      {
+      element_ = element;
+      kind_ = kind;
+      }
+
+    /**
+     * Returns the {@link Annotated} instances found by this unit, reporting scan events to the {@link ScanListener},
+     * if any.
+     */
+    public final Iterator<Annotated> getAnnotated( ScanContext scan)
+      {
+      ScanListener listener = scan.getListener();
+      return
+        listener == null
+        ? find( scan)
+        : new ListenedIterator( find( scan), listener, element_, kind_);
+      }
+
+    /**
+     * Returns the {@link Annotated} instances found by this unit.
+     */
+    protected Iterator<Annotated> find( ScanContext scan)
+      {
+      Iterator<Annotated> annotated = parse( scan);
+      return
+        part_ == null
+        ? annotated
+        : part_.record( annotated);
+      }
+
+    /**
+     * Returns the smaller units that together perform the same work as this unit, in the same order.
+     * Returns an empty list if this unit can't be split.
+     */
+    public List<Unit> split( ScanContext scan)
+      {
+      List<Unit> units = divide( scan);
+      units.forEach( unit -> unit.setIndex( index_));
+      if( part_ != null && units.size() > 1)
+        {
+        // Results for each smaller unit are recorded as a part of the results for this unit.
+        List<ScanCache.Recorder.Part> parts = part_.split( units.size());
+        for( int i = 0; i < units.size(); i++)
+          {
+          units.get(i).setPart( parts.get(i));
+          }
+        }
+
+      return units;
+      }
+
+    /**
+     * Parses the classes scanned by this unit.
+     */
+    protected abstract Iterator<Annotated> parse( ScanContext scan);
+
+    /**
+     * Returns the estimated number of classes scanned by this unit.
+     */
+    public abstract long estimateSize( ScanContext scan);
+
+    /**
+     * Returns the smaller units that together perform the same work as this unit, in the same order.
+     */
+    protected List<Unit> divide( ScanContext scan)
+      {
+      return emptyList();
+      }
+
+    /**
+     * Claims the class files provided by this class path element.
+     */
+    protected void claim( ScanContext scan, ClassPathShadows shadows)
+      {
+      // By default, no class files are claimed.
+      }
+
+    /**
+     * Returns the filter that selects the class files scanned by this unit, excluding any shadowed class files.
+     */
+    protected AnnotationFilter getSelector( ScanContext scan)
+      {
+      ClassPathShadows shadows = scan.getShadows();
+      if( shadows == null)
+        {
+        return scan.getFilter();
+        }
+
+      if( selector_ == null)
+        {
+        selector_ = shadows.select( scan.getFilter(), index_);
+        }
+      return selector_;
+      }
+
+    /**
+     * Returns the index of the class path element scanned by this unit.
+     */
+    protected int getIndex()
+      {
+      return index_;
+      }
+
+    /**
+     * Changes the index of the class path element scanned by this unit.
+     */
+    protected void setIndex( int index)
+      {
+      index_ = index;
+      }
+
+    /**
+     * Changes the part of the cached results for a class path element that are found by this unit.
+     */
+    protected void setPart( ScanCache.Recorder.Part part)
+      {
+      part_ = part;
+      }
+
+    /**
+     * Returns the class path element scanned by this unit.
+     */
+    protected File getElement()
+      {
+      return element_;
+      }
+
+    private final File element_;
+    private final ElementKind kind_;
+    private int index_;
+    private AnnotationFilter selector_;
+    private ScanCache.Recorder.Part part_;
+    }
+
+  /**
+   * Reports the scan events for the {@link Annotated} instances found by a {@link Unit}.
+   */
+  private static class ListenedIterator implements Iterator<Annotated>
+    {
+    public ListenedIterator( Iterator<Annotated> annotated, ScanListener listener, File element, ElementKind kind)
+      {
+      annotated_ = annotated;
+      listener_ = listener;
+      element_ = element;
+      kind_ = kind;
+      }
+
+    public boolean hasNext()
+      {
+      if( !started_)
+        {
+        started_ = true;
+        listener_.elementStarted( element_, kind_);
+        }
+
+      boolean hasNext = !ended_;
+      if( hasNext)
+        {
+        long start = System.nanoTime();
+        hasNext = annotated_.hasNext();
+        nanos_ += System.nanoTime() - start;
+
+        if( !hasNext)
+          {
+          ended_ = true;
+          listener_.elementEnded( element_, kind_, nanos_);
+          }
+        }
+
+      return hasNext;
+      }
+
+    public Annotated next()
+      {
+      if( !hasNext())
+        {
+        throw new NoSuchElementException();
+        }
+
+      long start = System.nanoTime();
+      Annotated next = annotated_.next();
+      nanos_ += System.nanoTime() - start;
+
+      return next;
+      }
+
+    private final Iterator<Annotated> annotated_;
+    private final ScanListener listener_;
+    private final File element_;
+    private final ElementKind kind_;
+    private boolean started_;
+    private boolean ended_;
+    private long nanos_;
+    }
+
+  /**
+   * A unit of work that may scan an entire class path element, using indexed or cached results when possible.
+   */
+  private static abstract class ElementUnit extends Unit
+    {
+    /**
+     * Creates a new ElementUnit instance. If <CODE>isElement</CODE> is false, this unit scans only part
+     * of a class path element.
+     */
+    protected ElementUnit( File element, ElementKind kind, boolean isElement)
+      {
+      super( element, kind);
+      storedChecked_ = !isElement;
+      }
+
+    protected Iterator<Annotated> find( ScanContext scan)
+      {
+      return
+        isStored( scan)
+        ? stored_.iterator()
+        : super.find( scan);
+      }
+
+    public List<Unit> split( ScanContext scan)
+      {
+      return
+        isStored( scan)
+        ? emptyList()
+        : super.split( scan);
+      }
+
+    /**
+     * Returns the fingerprint for the contents of the class path element scanned by this unit.
+     */
+    protected abstract String getFingerprint( ScanContext scan);
+
+    /**
+     * If this class path element has a current {@link AnnotationIndex}, returns all indexed elements.
+     * Otherwise, returns empty.
+     */
+    protected abstract Optional<List<Annotated>> getIndexed( ScanContext scan);
+
+    /**
+     * Returns true if indexed or cached results are available for this class path element. Otherwise, if this scan
+     * uses a cache, prepares to record the results for this class path element.
+     */
+    private boolean isStored( ScanContext scan)
+      {
+      if( !storedChecked_)
+        {
+        storedChecked_ = true;
+        stored_ = getIndexed( scan).map( indexed -> unshadowed( scan, AnnotationIndex.select( indexed, scan.getFilter()))).orElse( null);
+        if( stored_ != null)
+          {
+          scan.getStatistics().elementIndexed();
+          }
+        else
+          {
+          scan.getCache().ifPresent( cache -> {
+            String fingerprint = getFingerprint( scan);
+            stored_ = cache.get( getElement(), fingerprint).orElse( null);
+            if( stored_ != null)
+              {
+              scan.getStatistics().elementCached();
+              }
+            else
+              {
+              setPart( cache.record( getElement(), fingerprint).getWhole());
+              }
+            });
+          }
+        }
+
+      return stored_ != null;
+      }
+
+    /**
+     * Returns the given elements found in this class path element, excluding any shadowed classes.
+     */
+    private List<Annotated> unshadowed( ScanContext scan, List<Annotated> annotated)
+      {
+      ClassPathShadows shadows = scan.getShadows();
+      return
+        shadows == null
+        ? annotated
+        : annotated.stream()
+          .filter( a -> !shadows.isShadowed( a.getClassName().replace( '.', '/') + ".class", getIndex()))
+          .collect( toList());
+      }
+
+    private boolean storedChecked_;
+    private List<Annotated> stored_;
+    }
+
+  /**
+   * Scans a single class file that belongs to the given class path element.
+   */
+  private static class ClassFileUnit extends Unit
+    {
+    public ClassFileUnit( File element, File file, ElementKind kind)
+      {
+      super( element, kind);
+      file_ = file;
+      }
+
+    protected Iterator<Annotated> parse( ScanContext scan)
+      {
+      return new ClassFileData( file_).getAnnotated( scan);
+      }
+
+    public long estimateSize( ScanContext scan)
+      {
+      return 1;
+      }
+
+    private final File file_;
+    }
+
+  /**
+   * Scans the class files in a directory and its descendants. The directory contains the package
+   * with the given path, relative to the given class path root.
+   */
+  private static class DirectoryUnit extends ElementUnit
+    {
+    public DirectoryUnit( File root, File dir, String packagePath, boolean isElement)
+      {
+      super( root, ElementKind.DIRECTORY, isElement);
+      dir_ = dir;
+      packagePath_ = packagePath;
+      }
+
+    protected Iterator<Annotated> parse( ScanContext scan)
+      {
+      return
+        classFiles_ == null
+        ? new DirectoryAnnotated( dir_, packagePath_, getSelector( scan), scan)
+        : new DirectoryAnnotated( dir_, getSelectedClassFiles( getSelector( scan)), scan);
+      }
+
+    public long estimateSize( ScanContext scan)
+      {
+      // Estimate size of each subdirectory using a fixed guess.
+      long size = 0;
+      for( ClassFileWalk.Member member : getMembers( getSelector( scan)))
+        {
+        size += member.isDirectory()? SUBDIRECTORY_SIZE : 1;
+        }
+
+      return size;
+      }
+
+    protected List<Unit> divide( ScanContext scan)
+      {
+      List<Unit> units = new ArrayList<Unit>();
+      for( ClassFileWalk.Member member : getMembers( getSelector( scan)))
+        {
+        units.add(
+          member.isDirectory()
+          ? new DirectoryUnit( getElement(), member.getPath().toFile(), memberPath( member), false)
+          : new ClassFileUnit( getElement(), member.getPath().toFile(), ElementKind.DIRECTORY));
+        }
+
+      return units;
+      }
+
+    protected void claim( ScanContext scan, ClassPathShadows shadows)
+      {
+      AnnotationFilter filter = scan.getFilter();
+      Path root = dir_.toPath();
+      for( File classFile : getClassFiles())
+        {
+        String classFilePath = root.relativize( classFile.toPath()).toString().replace( File.separatorChar, '/');
+        if( filter.acceptClassFile( classFilePath))
+          {
+          shadows.claim( classFilePath, getIndex());
+          }
+        }
+      }
+
+    protected String getFingerprint( ScanContext scan)
+      {
+      return ScanCache.directoryFingerprint( dir_, getClassFiles());
+      }
+
+    protected Optional<List<Annotated>> getIndexed( ScanContext scan)
+      {
+      return
+        new File( dir_, AnnotationIndex.PATH).isFile()
+        ? AnnotationIndex.read( dir_, getClassFiles())
+        : Optional.empty();
+      }
+
+    /**
+     * Returns the class files in this directory and its descendants.
+     */
+    private Collection<File> getClassFiles()
+      {
+      if( classFiles_ == null)
+        {
+        classFiles_ = Files.classFiles( dir_);
+        }
+      return classFiles_;
+      }
+
+    /**
+     * Returns the class files in this class path directory that may be accepted by the given filter.
+     */
+    private List<File> getSelectedClassFiles( AnnotationFilter filter)
+      {
+      Path root = dir_.toPath();
+      return
+        getClassFiles().stream()
+        .filter( classFile -> filter.acceptClassFile( root.relativize( classFile.toPath()).toString().replace( File.separatorChar, '/')))
+        .collect( toList());
+      }
+
+    /**
+     * Returns the subdirectories and class files in this directory for packages and classes that may be accepted
+     * by the given filter.
+     */
+    private List<ClassFileWalk.Member> getMembers( AnnotationFilter filter)
+      {
+      if( members_ == null)
+        {
+        members_ =
+          filter.acceptPackagePath( packagePath_)
+          ? ClassFileWalk.members( dir_.toPath()).stream()
+            .filter( member -> member.isDirectory()
+                     ? filter.acceptPackagePath( memberPath( member))
+                     : filter.acceptClassFile( memberPath( member)))
+            .collect( toList())
+          : emptyList();
+        }
+      return members_;
+      }
+
+    /**
+     * Returns the path of the given member, relative to the class path root.
+     */
+    private String memberPath( ClassFileWalk.Member member)
+      {
+      return ClassFileWalk.memberPath( packagePath_, member.getPath().getFileName().toString());
+      }
+
+    private final File dir_;
+    private final String packagePath_;
+    private List<ClassFileWalk.Member> members_;
+    private Collection<File> classFiles_;
+
+    private static final long SUBDIRECTORY_SIZE = 16;
+    }
+
+  /**
+   * Scans a range of class file entries in a JAR file. The JAR archive is acquired from the {@link ArchivePool}
+   * for the scan only while in use. When all entries for the whole JAR file have been read, the archive is retired.
+   * When all entries for a part of the JAR file have been read, the archive is released for use by the other parts.
+   */
+  private static class JarUnit extends ElementUnit
+    {
+    public JarUnit( File jar)
+      {
+      super( jar, ElementKind.JAR, true);
+      jar_ = jar;
+      whole_ = true;
+      }
+
+    public JarUnit( File jar, List<JarEntryReader> selected)
+      {
+      super( jar, ElementKind.JAR, false);
+      jar_ = jar;
+      whole_ = false;
+      entries_ = selected;
+      selected_ = selected;
+      }
+
+    protected Iterator<Annotated> parse( ScanContext scan)
+      {
+      ArchivePool archives = scan.getArchives();
+      ZipArchive archive = archives.acquire( jar_);
+      return
+        new ReleasingIterator(
+          new JarAnnotated( jar_, bind( getSelected( scan), archive), scan),
+          archives,
+          archive,
+          whole_);
+      }
+
+    public long estimateSize( ScanContext scan)
+      {
+      return getSelected( scan).size();
+      }
+
+    protected List<Unit> divide( ScanContext scan)
+      {
+      List<JarEntryReader> entries = getSelected( scan);
+      int mid = entries.size() / 2;
+
+      List<Unit> units = new ArrayList<Unit>();
+      if( mid >= MIN_ENTRIES)
+        {
+        units.add( new JarUnit( jar_, entries.subList( 0, mid)));
+        units.add( new JarUnit( jar_, entries.subList( mid, entries.size())));
+        }
+
+      return units;
+      }
+
+    protected void claim( ScanContext scan, ClassPathShadows shadows)
+      {
+      AnnotationFilter filter = scan.getFilter();
+      for( JarEntryReader reader : getEntries( scan))
+        {
+        String classFilePath = reader.getClassFilePath();
+        if( filter.acceptClassFile( classFilePath))
+          {
+          shadows.claim( classFilePath, getIndex());
+          }
+        }
+      }
+
+    protected String getFingerprint( ScanContext scan)
+      {
+      return ScanCache.jarFingerprint( jar_, getEntries( scan));
+      }
+
+    protected Optional<List<Annotated>> getIndexed( ScanContext scan)
+      {
+      ArchivePool archives = scan.getArchives();
+      ZipArchive archive = archives.acquire( jar_);
+      try
+        {
+        return AnnotationIndex.read( archive, bind( getEntries( scan), archive));
+        }
+      finally
+        {
+        archives.release( archive);
+        }
+      }
+
+    /**
+     * Returns all class file entries in the range scanned by this unit.
+     */
+    private List<JarEntryReader> getEntries( ScanContext scan)
+      {
+      if( entries_ == null)
+        {
+        ArchivePool archives = scan.getArchives();
+        ZipArchive archive = archives.acquire( jar_);
+        try
+          {
+          entries_ = JarAnnotated.entryReaders( archive, scan.getRelease());
+          }
+        finally
+          {
+          archives.release( archive);
+          }
+        }
+      return entries_;
+      }
+
+    /**
+     * Returns the class file entries scanned by this unit for classes that may be accepted by the filter.
+     */
+    private List<JarEntryReader> getSelected( ScanContext scan)
+      {
+      if( selected_ == null)
+        {
+        selected_ = JarAnnotated.selectEntries( getEntries( scan), getSelector( scan));
+        }
+      return selected_;
+      }
+
+    /**
+     * Returns readers for the given entries that read from the given archive. If the archive was closed and reopened
+     * since the entries were listed, new readers are returned.
+     */
+    private static List<JarEntryReader> bind( List<JarEntryReader> entries, ZipArchive archive)
+      {
+      return
+        entries.isEmpty() || !isClosed( entries)
+        ? entries
+        : entries.stream().map( reader -> reader.rebind( archive)).collect( toList());
+      }
+
+    /**
+     * Returns true if any of the given entries belong to an archive that has been closed.
+     */
+    private static boolean isClosed( List<JarEntryReader> entries)
+      {
+      return entries.stream().anyMatch( reader -> reader.getArchive().isClosed());
+      }
+
+    private final File jar_;
+    private final boolean whole_;
+    private List<JarEntryReader> entries_;
+    private List<JarEntryReader> selected_;
+
+    private static final int MIN_ENTRIES = 32;
+    }
+
+  /**
+   * Releases or retires an archive when all of the {@link Annotated} instances read from it have been returned.
+   * If reading from the archive fails, the archive is retired.
+   */
+  private static class ReleasingIterator implements Iterator<Annotated>
+    {
+    public ReleasingIterator( Iterator<Annotated> annotated, ArchivePool archives, ZipArchive archive, boolean retire)
+      {
+      annotated_ = annotated;
+      archives_ = archives;
+      archive_ = archive;
+      retire_ = retire;
+      }
+
+    public boolean hasNext()
+      {
+      boolean hasNext;
+      try
+        {
+        hasNext = annotated_.hasNext();
+        }
+      catch( RuntimeException | Error e)
+        {
+        done( true);
+        throw e;
+        }
+
+      if( !hasNext)
+        {
+        done( retire_);
+        }
+
+      return hasNext;
+      }
+
+    public Annotated next()
+      {
+      try
+        {
+        return annotated_.next();
+        }
+      catch( RuntimeException | Error e)
+        {
+        done( true);
+        throw e;
+        }
+      }
+
+    /**
+     * Releases or retires the archive, if not already done.
+     */
+    private void done( boolean retire)
+      {
+      if( archive_ != null)
+        {
+        if( retire)
+          {
+          archives_.retire( archive_);
+          }
+        else
+          {
+          archives_.release( archive_);
+          }
+        archive_ = null;
+        }
+      }
+
+    private final Iterator<Annotated> annotated_;
+    private final ArchivePool archives_;
+    private final boolean retire_;
+    private ZipArchive archive_;
+    }
+
+  private List<Unit> units_;
+  private int next_;
+  private Iterator<Annotated> annotated_;
+  private final ScanContext scan_;
+  private final boolean ordered_;
+  }
@@ -0,0 +1,185 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A growable hash table that maps raw type name bytes to annotation ids, assigning a new id to each raw type
+ * name added. Ids are assigned in order and never change.
+ * <P/>
+ * Collisions are resolved by linear probing, and the table doubles in size when more than half full, so each
+ * addition takes constant amortized time. Lookups need no lock and can run concurrently with an addition.
+ */
+class DescriptorMap
+  {
+  /**
+   * Creates a new DescriptorMap instance.
+   */
+  public DescriptorMap()
+    {
+    table_ = new Table( INITIAL_CAPACITY);
+    }
+
+  /**
+   * Returns the id for the raw type name given by the specified bytes. Returns {@link RawAnnotationFilter#REJECT}
+   * if this raw type name is not found.
+   */
+  public int find( ByteBuffer bytes, int offset, int length, int hash)
+    {
+    return table_.find( bytes, offset, length, hash);
+    }
+
+  /**
+   * Returns the id for the raw type name given by the specified bytes, adding it with the given name if not
+   * already found.
+   */
+  public synchronized int add( ByteBuffer bytes, int offset, int length, int hash, String name)
+    {
+    Table table = table_;
+    int id = table.find( bytes, offset, length, hash);
+    if( id == RawAnnotationFilter.REJECT)
+      {
+      if( (size_ + 1) * 2 > table.slots_.length())
+        {
+        table = table_ = table.grow( size_);
+        }
+
+      byte[] descriptor = new byte[ length];
+      for( int i = 0; i < length; i++)
+        {
+        descriptor[i] = bytes.get( offset + i);
+        }
+
+      id = size_++;
+      table.put( id, descriptor, hash, name);
+      }
+
+    return id;
+    }
+
+  /**
+   * Returns the name for the given id.
+   */
+  public String getName( int id)
+    {
+    return table_.names_[ id];
+    }
+
+  /**
+   * Returns the number of names in this table.
+   */
+  public synchronized int size()
+    {
+    return size_;
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( "size", size())
+      .toString();
+    }
+
+  /**
+   * The contents of a DescriptorMap with a fixed capacity.
+   * <P/>
+   * Each slot holds an id + 1, or 0 if empty. The entry for an id is written before its slot, and each slot is
+   * written as a volatile, so any thread that finds an id also sees its entry.
+   */
+  private static class Table
+    {
+    public Table( int capacity)
+      {
+      slots_ = new AtomicIntegerArray( capacity);
+      descriptors_ = new byte[ capacity / 2][];
+      hashes_ = new int[ capacity / 2];
+      names_ = new String[ capacity / 2];
+      }
+
+    /**
+     * Returns the id for the given raw type name, or {@link RawAnnotationFilter#REJECT} if not found.
+     */
+    public int find( ByteBuffer bytes, int offset, int length, int hash)
+      {
+      int found = RawAnnotationFilter.REJECT;
+      int mask = slots_.length() - 1;
+      for( int slot = mix( hash) & mask, id; found < 0 && (id = slots_.get( slot) - 1) >= 0; slot = (slot + 1) & mask)
+        {
+        if( hashes_[ id] == hash && matches( bytes, offset, length, descriptors_[ id]))
+          {
+          found = id;
+          }
+        }
+
+      return found;
+      }
+
+    /**
+     * Adds the entry for the given id.
+     */
+    public void put( int id, byte[] descriptor, int hash, String name)
+      {
+      descriptors_[ id] = descriptor;
+      hashes_[ id] = hash;
+      names_[ id] = name;
+
+      int mask = slots_.length() - 1;
+      int slot;
+      for( slot = mix( hash) & mask; slots_.get( slot) != 0; slot = (slot + 1) & mask);
+      slots_.set( slot, id + 1);
+      }
+
+    /**
+     * Returns a new table with twice the capacity of this table, containing the given number of entries.
+     */
+    public Table grow( int size)
+      {
+      Table table = new Table( slots_.length() * 2);
+      for( int id = 0; id < size; id++)
+        {
+        table.put( id, descriptors_[ id], hashes_[ id], names_[ id]);
+        }
+      return table;
+      }
+
+    private final AtomicIntegerArray slots_;
+    private final byte[][] descriptors_;
+    private final int[] hashes_;
+    private final String[] names_;
+    }
+
+  /**
+   * Spreads the bits of the given hash code.
+   */
+  private static int mix( int hash)
+    {
+    int mixed = hash * 0x9E3779B9;
+    return mixed ^ (mixed >>> 16);
+    }
+
+  /**
+   * Returns true if the given buffer bytes are equal to the given raw type name.
+   */
+  private static boolean matches( ByteBuffer bytes, int offset, int length, byte[] descriptor)
+    {
+    boolean matched = length == descriptor.length;
+    for( int i = 0; matched && i < length; i++)
+      {
+      matched = bytes.get( offset + i) == descriptor[i];
+      }
+    return matched;
+    }
+
+  private volatile Table table_;
+  private int size_;
+
+  private static final int INITIAL_CAPACITY = 64;
+  }
@@ -0,0 +1,157 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An immutable hash table that maps a fixed set of raw type name bytes to annotation ids. The id for each raw type name
+ * is its position in the table's list of names.
+ * <P/>
+ * Where possible, the table uses a perfect hash function, so that any lookup needs at most one comparison.
+ * Otherwise, collisions are resolved by linear probing.
+ */
+class DescriptorTable
+  {
+  /**
+   * Creates a new DescriptorTable instance. The id for each raw type name is its index in the given array.
+   */
+  public DescriptorTable( byte[][] descriptors, String[] names)
+    {
+    descriptors_ = descriptors;
+    names_ = names;
+    hashes_ = new int[ descriptors.length];
+    for( int i = 0; i < descriptors.length; i++)
+      {
+      hashes_[i] = RawAnnotationFilter.hash( descriptors[i]);
+      }
+
+    // Find the smallest table with a collision-free slot function...
+    int minBits = Math.max( 1, 32 - Integer.numberOfLeadingZeros( Math.max( 1, 2 * descriptors.length - 1)));
+    boolean perfect = false;
+    int bits;
+    int seed = SEEDS[0];
+    for( bits = minBits; !perfect && bits <= minBits + 3; bits++)
+      {
+      for( int s = 0; !perfect && s < SEEDS.length; s++)
+        {
+        seed = SEEDS[s];
+        perfect = isPerfect( bits, seed);
+        }
+      }
+
+    // ...or else use the largest table tried with linear probing.
+    bits--;
+    perfect_ = perfect;
+    seed_ = seed;
+    shift_ = 32 - bits;
+    slots_ = new int[ 1 << bits];
+    Arrays.fill( slots_, RawAnnotationFilter.REJECT);
+    for( int i = 0; i < descriptors.length; i++)
+      {
+      int slot;
+      for( slot = slot( hashes_[i]); slots_[ slot] != RawAnnotationFilter.REJECT; slot = (slot + 1) & (slots_.length - 1));
+      slots_[ slot] = i;
+      }
+    }
+
+  /**
+   * Returns the id for the raw type name given by the specified bytes. Returns {@link RawAnnotationFilter#REJECT}
+   * if this raw type name is not found.
+   */
+  public int find( ByteBuffer bytes, int offset, int length, int hash)
+    {
+    int found = RawAnnotationFilter.REJECT;
+    for( int slot = slot( hash), id; found < 0 && (id = slots_[ slot]) >= 0; slot = (slot + 1) & (slots_.length - 1))
+      {
+      if( hashes_[ id] == hash && matches( bytes, offset, length, descriptors_[ id]))
+        {
+        found = id;
+        }
+      else if( perfect_)
+        {
+        break;
+        }
+      }
+
+    return found;
+    }
+
+  /**
+   * Returns the name for the given id.
+   */
+  public String getName( int id)
+    {
+    return names_[ id];
+    }
+
+  /**
+   * Returns the number of names in this table.
+   */
+  public int size()
+    {
+    return names_.length;
+    }
+
+  /**
+   * Returns true if the slot function defined by the given table size and seed is collision-free.
+   */
+  private boolean isPerfect( int bits, int seed)
+    {
+    boolean[] used = new boolean[ 1 << bits];
+    boolean perfect = true;
+    for( int i = 0; perfect && i < hashes_.length; i++)
+      {
+      int slot = (hashes_[i] * seed) >>> (32 - bits);
+      perfect = !used[ slot];
+      used[ slot] = true;
+      }
+    return perfect;
+    }
+
+  /**
+   * Returns the table slot for the given hash.
+   */
+  private int slot( int hash)
+    {
+    return (hash * seed_) >>> shift_;
+    }
+
+  /**
+   * Returns true if the given buffer bytes are equal to the given raw type name.
+   */
+  private static boolean matches( ByteBuffer bytes, int offset, int length, byte[] descriptor)
+    {
+    boolean matched = length == descriptor.length;
+    for( int i = 0; matched && i < length; i++)
+      {
+      matched = bytes.get( offset + i) == descriptor[i];
+      }
+    return matched;
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( "size", size())
+      .append( "perfect", perfect_)
+      .toString();
+    }
+
+  private final byte[][] descriptors_;
+  private final String[] names_;
+  private final int[] hashes_;
+  private final int[] slots_;
+  private final int seed_;
+  private final int shift_;
+  private final boolean perfect_;
+
+  private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F, 0x165667B1, 0xD3A2646D};
+  }
@@ -0,0 +1,63 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.security.MessageDigest;
+
+/**
+ * Provides methods to compute the message digests used to identify class path contents.
+ */
+final class Digests
+  {
+  /**
+   * Creates a new Digests instance.
+   */
+  private Digests()
+    {
+    // Static methods only
+    }
+
+  /**
+   * Returns a new message digest.
+   */
+  public static MessageDigest newDigest()
+    {
+    try
+      {
+      return MessageDigest.getInstance( "SHA-256");
+      }
+    catch( Exception e)
+      {
+      throw new IllegalStateException( "Can't create message digest", e);
+      }
+    }
+
+  /**
+   * Adds the given value to the given digest.
+   */
+  public static void update( MessageDigest digest, long value)
+    {
+    for( int i = 56; i >= 0; i -= 8)
+      {
+      digest.update( (byte) (value >>> i));
+      }
+    }
+
+  /**
+   * Returns the given bytes as a hexadecimal string.
+   */
+  public static String toHex( byte[] bytes)
+    {
+    StringBuilder hex = new StringBuilder( bytes.length * 2);
+    for( byte b : bytes)
+      {
+      hex.append( Character.forDigit( (b >> 4) & 0xf, 16)).append( Character.forDigit( b & 0xf, 16));
+      }
+    return hex.toString();
+    }
+  }
@@ -8,10 +8,13 @@
 package org.cornutum.annotation;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.Iterator;
 
 /**
  * Returns selected {@link Annotated} instances from class files in the given directory.
+ * Class files are found as the iteration proceeds, so the first results are returned without walking the entire directory tree.
+ * The directory is a class path root, so subdirectories for packages that the {@link AnnotationFilter} rejects are skipped.
  */
 public class DirectoryAnnotated extends FlatMapIterator<Annotated,File>
   {
@@ -20,9 +23,38 @@ public class DirectoryAnnotated extends FlatMapIterator<Annotated,File>
    */
   public DirectoryAnnotated( File dir, AnnotationFilter filter)
     {
-    super( Files.classFiles( dir));
+    this( dir, new ScanContext( filter));
+    }
+
+  /**
+   * Creates a new DirectoryAnnotated instance.
+   */
+  DirectoryAnnotated( File dir, ScanContext scan)
+    {
+    super( Files.classFileIterator( dir, scan.getFilter()));
+    dir_ = dir;
+    scan_ = scan;
+    }
+
+  /**
+   * Creates a new DirectoryAnnotated instance for a subdirectory of a class path root that contains the package
+   * with the given path. Class files are selected using the given filter.
+   */
+  DirectoryAnnotated( File dir, String packagePath, AnnotationFilter selector, ScanContext scan)
+    {
+    super( new ClassFileIterator( dir.toPath(), packagePath, selector));
+    dir_ = dir;
+    scan_ = scan;
+    }
+
+  /**
+   * Creates a new DirectoryAnnotated instance that reads the given class files from the directory.
+   */
+  DirectoryAnnotated( File dir, Collection<File> classFiles, ScanContext scan)
+    {
+    super( classFiles);
     dir_ = dir;
-    filter_ = filter;
+    scan_ = scan;
     }
 
   /**
@@ -38,7 +70,7 @@ public class DirectoryAnnotated extends FlatMapIterator<Annotated,File>
    */
   protected Iterator<Annotated> map( File file)
     {
-    return new ClassFileData( file).getAnnotated( filter_);
+    return new ClassFileData( file).getAnnotated( scan_);
     }
 
   public String toString()
@@ -50,5 +82,5 @@ public class DirectoryAnnotated extends FlatMapIterator<Annotated,File>
     }
 
   private final File dir_;
-  private final AnnotationFilter filter_;
+  private final ScanContext scan_;
   }
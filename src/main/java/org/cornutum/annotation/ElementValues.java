@@ -0,0 +1,486 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * The element values of an annotation found in a class definition.
+ * <P/>
+ * Element values are captured as a compact snapshot of the raw <CODE>element_value_pairs</CODE> of the annotation,
+ * together with the constant pool entries they refer to, and are decoded only when first accessed. Decoded values
+ * are represented as follows.
+ * <UL>
+ * <LI> A primitive value is given by the corresponding wrapper object, for example {@link Integer} or {@link Boolean}.</LI>
+ * <LI> A string is given by a {@link String}.</LI>
+ * <LI> An enum constant is given by an {@link EnumValue}.</LI>
+ * <LI> A class literal is given by a {@link ClassValue}.</LI>
+ * <LI> A nested annotation is given by an {@link AnnotationValue}.</LI>
+ * <LI> An array is given by a {@link List} of element values.</LI>
+ * </UL>
+ * Only element values given explicitly are recorded in a class definition, so any element that uses its default
+ * value is not included.
+ */
+public final class ElementValues
+  {
+  /**
+   * Creates a new ElementValues instance from the given snapshot.
+   */
+  ElementValues( byte[] snapshot)
+    {
+    snapshot_ = snapshot;
+    }
+
+  /**
+   * Returns the snapshot of these element values.
+   */
+  byte[] getSnapshot()
+    {
+    return snapshot_;
+    }
+
+  /**
+   * Returns the element values, by element name.
+   */
+  Map<String,Object> getValues()
+    {
+    Map<String,Object> values = values_;
+    if( values == null)
+      {
+      values = values_ = new Decoder( snapshot_).decode();
+      }
+    return values;
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( getValues())
+      .toString();
+    }
+
+  /**
+   * Writes a snapshot of the element values at the given offset of a class definition. The given constant pool
+   * indices are the entries referenced by these element values, in ascending order, with the given tags and offsets.
+   */
+  static byte[] snapshot( ByteBuffer buffer, int offset, int end, int[] constants, int constantCount, byte[] tags, int[] offsets)
+    {
+    int size = 2 + (end - offset);
+    for( int i = 0; i < constantCount; i++)
+      {
+      size += 3 + getConstantSize( buffer, tags[ constants[i]], offsets[ constants[i]]);
+      }
+
+    ByteBuffer snapshot = ByteBuffer.allocate( size);
+    snapshot.putShort( (short) constantCount);
+    for( int i = 0; i < constantCount; i++)
+      {
+      int index = constants[i];
+      snapshot.putShort( (short) index);
+      snapshot.put( tags[ index]);
+      for( int from = offsets[ index], to = from + getConstantSize( buffer, tags[ index], from); from < to; from++)
+        {
+        snapshot.put( buffer.get( from));
+        }
+      }
+    for( int from = offset; from < end; from++)
+      {
+      snapshot.put( buffer.get( from));
+      }
+
+    return snapshot.array();
+    }
+
+  /**
+   * Returns the size of the constant pool entry with the given tag at the given offset.
+   */
+  private static int getConstantSize( ByteBuffer buffer, int tag, int offset)
+    {
+    return
+      tag == CP_UTF8?
+      2 + (((buffer.get( offset) & 0xff) << 8) | (buffer.get( offset + 1) & 0xff)) :
+
+      tag == CP_LONG || tag == CP_DOUBLE?
+      8 :
+
+      4;
+    }
+
+  /**
+   * Returns the class name for the given field descriptor.
+   */
+  static String toTypeName( String descriptor)
+    {
+    int dimensions = 0;
+    while( descriptor.charAt( dimensions) == '[')
+      {
+      dimensions++;
+      }
+
+    StringBuilder typeName = new StringBuilder();
+    char type = descriptor.charAt( dimensions);
+    switch( type)
+      {
+      case 'B': typeName.append( "byte"); break;
+      case 'C': typeName.append( "char"); break;
+      case 'D': typeName.append( "double"); break;
+      case 'F': typeName.append( "float"); break;
+      case 'I': typeName.append( "int"); break;
+      case 'J': typeName.append( "long"); break;
+      case 'S': typeName.append( "short"); break;
+      case 'Z': typeName.append( "boolean"); break;
+      case 'V': typeName.append( "void"); break;
+      default: typeName.append( ClassData.toClassName( descriptor.substring( dimensions))); break;
+      }
+
+    for( int i = 0; i < dimensions; i++)
+      {
+      typeName.append( "[]");
+      }
+
+    return typeName.toString();
+    }
+
+  /**
+   * Decodes the element values in a snapshot.
+   */
+  private static class Decoder
+    {
+    public Decoder( byte[] snapshot)
+      {
+      buffer_ = ByteBuffer.wrap( snapshot);
+      int count = buffer_.getShort( 0) & 0xffff;
+      indices_ = new int[ count];
+      offsets_ = new int[ count];
+
+      position_ = 2;
+      for( int i = 0; i < count; i++)
+        {
+        indices_[i] = readUnsignedShort();
+        int tag = buffer_.get( position_++);
+        offsets_[i] = position_;
+        position_ += getConstantSize( buffer_, tag, position_);
+        }
+      }
+
+    /**
+     * Returns the element values in the snapshot.
+     */
+    public Map<String,Object> decode()
+      {
+      try
+        {
+        return readValues();
+        }
+      catch( Exception e)
+        {
+        throw new IllegalStateException( "Can't decode annotation element values", e);
+        }
+      }
+
+    /**
+     * Reads the element_value_pairs of an annotation.
+     */
+    private Map<String,Object> readValues() throws Exception
+      {
+      int count = readUnsignedShort();
+      Map<String,Object> values = new LinkedHashMap<String,Object>();
+      for( int i = 0; i < count; i++)
+        {
+        String name = getUtf8( readUnsignedShort());
+        values.put( name, readValue());
+        }
+
+      return
+        values.isEmpty()
+        ? emptyMap()
+        : unmodifiableMap( values);
+      }
+
+    /**
+     * Reads an element_value.
+     */
+    private Object readValue() throws Exception
+      {
+      Object value;
+      int tag = buffer_.get( position_++);
+      switch( tag)
+        {
+        case 'B': value = (byte) getInt( readUnsignedShort()); break;
+        case 'C': value = (char) getInt( readUnsignedShort()); break;
+        case 'D': value = Double.longBitsToDouble( getLong( readUnsignedShort())); break;
+        case 'F': value = Float.intBitsToFloat( getInt( readUnsignedShort())); break;
+        case 'I': value = getInt( readUnsignedShort()); break;
+        case 'J': value = getLong( readUnsignedShort()); break;
+        case 'S': value = (short) getInt( readUnsignedShort()); break;
+        case 'Z': value = getInt( readUnsignedShort()) != 0; break;
+        case 's': value = getUtf8( readUnsignedShort()); break;
+
+        case 'e':
+          {
+          String type = ClassData.toClassName( getUtf8( readUnsignedShort()));
+          value = new EnumValue( type, getUtf8( readUnsignedShort()));
+          break;
+          }
+        case 'c':
+          {
+          value = new ClassValue( toTypeName( getUtf8( readUnsignedShort())));
+          break;
+          }
+        case '@':
+          {
+          String annotation = ClassData.toClassName( getUtf8( readUnsignedShort()));
+          value = new AnnotationValue( annotation, readValues());
+          break;
+          }
+        case '[':
+          {
+          int count = readUnsignedShort();
+          List<Object> elements = new ArrayList<Object>( count);
+          for( int i = 0; i < count; i++)
+            {
+            elements.add( readValue());
+            }
+          value = unmodifiableList( elements);
+          break;
+          }
+        default:
+          {
+          throw new ClassFormatError( "Not a valid annotation element type tag: 0x" + Integer.toHexString( tag));
+          }
+        }
+
+      return value;
+      }
+
+    /**
+     * Returns the offset of the given constant pool entry.
+     */
+    private int getOffset( int index)
+      {
+      int i = Arrays.binarySearch( indices_, index);
+      if( i < 0)
+        {
+        throw new IllegalStateException( String.format( "Constant pool entry=%s not found", index));
+        }
+      return offsets_[i];
+      }
+
+    private String getUtf8( int index) throws Exception
+      {
+      int offset = getOffset( index);
+      return Buffers.decodeUtf8( buffer_, offset + 2, buffer_.getShort( offset) & 0xffff);
+      }
+
+    private int getInt( int index)
+      {
+      return buffer_.getInt( getOffset( index));
+      }
+
+    private long getLong( int index)
+      {
+      return buffer_.getLong( getOffset( index));
+      }
+
+    private int readUnsignedShort()
+      {
+      int value = buffer_.getShort( position_) & 0xffff;
+      position_ += 2;
+      return value;
+      }
+
+    private final ByteBuffer buffer_;
+    private final int[] indices_;
+    private final int[] offsets_;
+    private int position_;
+    }
+
+  /**
+   * An enum constant element value.
+   */
+  public static class EnumValue
+    {
+    /**
+     * Creates a new EnumValue instance.
+     */
+    public EnumValue( String type, String name)
+      {
+      type_ = type;
+      name_ = name;
+      }
+
+    /**
+     * Returns the class name of the enum type.
+     */
+    public String getType()
+      {
+      return type_;
+      }
+
+    /**
+     * Returns the name of the enum constant.
+     */
+    public String getName()
+      {
+      return name_;
+      }
+
+    public int hashCode()
+      {
+      return
+        Objects.hashCode( getType())
+        ^ Objects.hashCode( getName())
+        ;
+      }
+
+    public boolean equals( Object object)
+      {
+      EnumValue other =
+        object instanceof EnumValue
+        ? (EnumValue) object
+        : null;
+
+      return
+        other != null
+        && Objects.equals( other.getType(), getType())
+        && Objects.equals( other.getName(), getName());
+      }
+
+    public String toString()
+      {
+      return String.format( "%s.%s", ToString.simpleClassName( getType()), getName());
+      }
+
+    private final String type_;
+    private final String name_;
+    }
+
+  /**
+   * A class literal element value.
+   */
+  public static class ClassValue
+    {
+    /**
+     * Creates a new ClassValue instance.
+     */
+    public ClassValue( String className)
+      {
+      className_ = className;
+      }
+
+    /**
+     * Returns the name of the class, as given by {@link Class#getTypeName}. For example, "java.lang.String", "int",
+     * or "java.lang.String[]".
+     */
+    public String getClassName()
+      {
+      return className_;
+      }
+
+    public int hashCode()
+      {
+      return Objects.hashCode( getClassName());
+      }
+
+    public boolean equals( Object object)
+      {
+      return
+        object instanceof ClassValue
+        && Objects.equals( ((ClassValue) object).getClassName(), getClassName());
+      }
+
+    public String toString()
+      {
+      return String.format( "%s.class", getClassName());
+      }
+
+    private final String className_;
+    }
+
+  /**
+   * A nested annotation element value.
+   */
+  public static class AnnotationValue
+    {
+    /**
+     * Creates a new AnnotationValue instance.
+     */
+    public AnnotationValue( String annotation, Map<String,Object> values)
+      {
+      annotation_ = annotation;
+      values_ = values;
+      }
+
+    /**
+     * Returns the class name of the annotation.
+     */
+    public String getAnnotation()
+      {
+      return annotation_;
+      }
+
+    /**
+     * Returns the element values of the annotation, by element name.
+     */
+    public Map<String,Object> getValues()
+      {
+      return values_;
+      }
+
+    public int hashCode()
+      {
+      return
+        Objects.hashCode( getAnnotation())
+        ^ Objects.hashCode( getValues())
+        ;
+      }
+
+    public boolean equals( Object object)
+      {
+      AnnotationValue other =
+        object instanceof AnnotationValue
+        ? (AnnotationValue) object
+        : null;
+
+      return
+        other != null
+        && Objects.equals( other.getAnnotation(), getAnnotation())
+        && Objects.equals( other.getValues(), getValues());
+      }
+
+    public String toString()
+      {
+      return
+        ToString.of( this)
+        .append( ToString.simpleClassName( getAnnotation()))
+        .append( getValues())
+        .toString();
+      }
+
+    private final String annotation_;
+    private final Map<String,Object> values_;
+    }
+
+  private final byte[] snapshot_;
+  private volatile Map<String,Object> values_;
+
+  // Constant pool type tags
+  private static final int CP_UTF8 = 1;
+  private static final int CP_LONG = 5;
+  private static final int CP_DOUBLE = 6;
+  }
@@ -14,12 +14,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Optional;
 import java.util.Set;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toCollection;
-import static java.util.stream.Collectors.toList;
 
 /**
  * Provides methods to handle files.
@@ -57,15 +57,38 @@ public final class Files
     }
 
   /**
-   * Returns all class files found in the given directory and its descendants..
+   * Returns all class files found in the given directory and its descendants. Subdirectories are walked in parallel.
    */
   public static Collection<File> classFiles( File dir)
     {
     return
-      allFiles( dir)
-      .stream()
-      .filter( file -> !file.isDirectory() && file.getName().endsWith( ".class"))
-      .collect( toList());
+      dir.isDirectory()
+      ? new ClassFileWalk( dir.toPath()).invoke()
+      : new ArrayList<File>();
+    }
+
+  /**
+   * Returns an iterator over all class files found in the given directory and its descendants, in the same
+   * order as {@link #classFiles classFiles()}. Directories are listed only as the iteration reaches them.
+   */
+  public static Iterator<File> classFileIterator( File dir)
+    {
+    return
+      dir.isDirectory()
+      ? new ClassFileIterator( dir.toPath())
+      : Collections.<File>emptyIterator();
+    }
+
+  /**
+   * Returns an iterator over the class files in the given class path directory that are accepted by the given filter,
+   * skipping subdirectories for packages that the filter rejects.
+   */
+  public static Iterator<File> classFileIterator( File dir, AnnotationFilter filter)
+    {
+    return
+      dir.isDirectory()
+      ? new ClassFileIterator( dir.toPath(), "", filter)
+      : Collections.<File>emptyIterator();
     }
 
   /**
@@ -14,8 +14,8 @@ import java.util.LinkedHashSet;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import static java.util.stream.Collectors.toList;
-import static org.cornutum.annotation.Iterators.*;
 
 /**
  * Finds class elements associated with specified annotations.
@@ -60,6 +60,78 @@ public class Finder
     return this;
     }
 
+  /**
+   * Records counts of the classes examined in the given {@link ScanStatistics}.
+   * If <CODE>statistics</CODE> is null, no statistics are reported.
+   */
+  public Finder statistics( ScanStatistics statistics)
+    {
+    statistics_ = statistics;
+    return this;
+    }
+
+  /**
+   * Stores the results found for each class path element in the given cache directory, so that elements that are
+   * unchanged in later searches are not parsed again. If <CODE>cacheDir</CODE> is null, no cache is used.
+   * Results are cached only if the filter has a {@link AnnotationFilter#getFingerprint fingerprint}.
+   */
+  public Finder cacheDir( File cacheDir)
+    {
+    cacheDir_ = cacheDir;
+    return this;
+    }
+
+  /**
+   * Reports the progress of each search to the given {@link ScanListener}, for example a {@link ScanProfile}.
+   * If <CODE>listener</CODE> is null, no events are reported.
+   */
+  public Finder listener( ScanListener listener)
+    {
+    listener_ = listener;
+    return this;
+    }
+
+  /**
+   * Keeps at most the given number of idle JAR archives open during each search. JAR archives in use are never closed,
+   * so more archives may be open when the search is parallel.
+   */
+  public Finder maxOpenArchives( int maxOpenArchives)
+    {
+    maxOpenArchives_ = maxOpenArchives;
+    return this;
+    }
+
+  /**
+   * Reads multi-release JAR files as seen by the given Java release. By default, the release of the current JVM is used.
+   */
+  public Finder release( int release)
+    {
+    release_ = release;
+    return this;
+    }
+
+  /**
+   * Skips any class file that is shadowed by the same class file in an earlier class path element, as when loaded
+   * by the JVM. Shadowed class files are identified by their path relative to the class path root, before any class
+   * file is read, and the same classes are skipped by both sequential and parallel searches. Results are not cached
+   * when shadowed classes are skipped.
+   */
+  public Finder shadowing()
+    {
+    return shadowing( null);
+    }
+
+  /**
+   * Skips any class file that is shadowed by the same class file in an earlier class path element, as described for
+   * {@link #shadowing()}. If <CODE>report</CODE> is non-null, each shadowed class file is recorded in this report.
+   */
+  public Finder shadowing( ShadowReport report)
+    {
+    shadowing_ = true;
+    shadowReport_ = report;
+    return this;
+    }
+
   /**
    * Find annotated class elements among one of the given class path elements.
    * Each file must be a *.class file, a directory, or a JAR file.
@@ -80,11 +152,57 @@ public class Finder
     }
 
   /**
-   * Returns annotated elements found among the current class path elements.
+   * Returns annotated elements found among the current class path elements. The stream returned is sequential,
+   * but it can be split for parallel execution if {@link Stream#parallel parallel()} is applied.
+   * <P/>
+   * Each JAR archive is closed when all of its entries have been read. When the stream is not consumed completely,
+   * for example when using {@link Stream#findFirst findFirst()} or {@link Stream#limit limit()}, the stream must be
+   * {@link Stream#close closed} to close all remaining archives.
    */
   public Stream<Annotated> find()
     {
-    return toStream( new ClassPathAnnotated( classPath_, filter_));
+    return stream( true, false);
+    }
+
+  /**
+   * Returns a parallel stream of annotated elements found among the current class path elements,
+   * in the same order as {@link #find}.
+   */
+  public Stream<Annotated> findParallel()
+    {
+    return findParallel( true);
+    }
+
+  /**
+   * Returns a parallel stream of annotated elements found among the current class path elements.
+   * If <CODE>ordered</CODE> is false, elements are returned in no particular order.
+   */
+  public Stream<Annotated> findParallel( boolean ordered)
+    {
+    return stream( ordered, true);
+    }
+
+  /**
+   * Returns a stream of the annotated elements found among the current class path elements. Closing the stream
+   * releases all resources held by the search.
+   */
+  private Stream<Annotated> stream( boolean ordered, boolean parallel)
+    {
+    ScanContext scan =
+      new ScanContext( filter_)
+      .statistics( statistics_)
+      .cacheDir( shadowing_? null : cacheDir_)
+      .listener( listener_)
+      .maxOpenArchives( maxOpenArchives_)
+      .release( release_);
+    if( shadowing_)
+      {
+      scan.shadowing( shadowReport_);
+      }
+
+    return
+      StreamSupport.stream( new ClassPathSpliterator( classPath_, scan, ordered), parallel)
+      .onClose( scan::close);
     }
 
   public String toString()
@@ -97,5 +215,12 @@ public class Finder
     }
 
   private AnnotationFilter filter_;
+  private ScanStatistics statistics_;
+  private File cacheDir_;
+  private ScanListener listener_;
+  private int maxOpenArchives_ = ArchivePool.DEFAULT_MAX_OPEN;
+  private int release_ = JarAnnotated.RUNTIME_RELEASE;
+  private boolean shadowing_;
+  private ShadowReport shadowReport_;
   private Set<File> classPath_ = new LinkedHashSet<File>();
   }
@@ -25,9 +25,19 @@ public abstract class FlatMapIterator<T,E> implements Iterator<T>
    */
   public FlatMapIterator( Collection<E> elements)
     {
-    elements_ =
+    this(
       Optional.ofNullable( elements)
       .map( Collection::iterator)
+      .orElse( null));
+    }
+
+  /**
+   * Creates a new FlatMapIterator instance.
+   */
+  public FlatMapIterator( Iterator<E> elements)
+    {
+    elements_ =
+      Optional.ofNullable( elements)
       .orElse( emptyIterator());
     }
 
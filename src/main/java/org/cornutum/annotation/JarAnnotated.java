@@ -8,15 +8,36 @@
 package org.cornutum.annotation;
 
 import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.jar.JarFile;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
 
 import static java.util.stream.Collectors.toList;
 
 /**
  * Returns selected {@link Annotated} instances from class files in a specified JAR file.
+ * Class file entries are selected by name, using the {@link AnnotationFilter}, before any entry is read.
+ * When all selected entries have been read, the JAR archive opened by this iterator is closed.
+ * <P/>
+ * Classes are also found in any nested JAR archive contained in the JAR file, such as the libraries packaged in
+ * <CODE>BOOT-INF/lib/</CODE> by Spring Boot, which are read in place without extracting them. Nested archives contained
+ * in a nested archive are not searched. For classes found in a nested archive, {@link Annotated#getFile} returns the
+ * path of the nested archive relative to the JAR file, for example <CODE>app.jar/BOOT-INF/lib/lib.jar</CODE>.
+ * Classes packaged below a {@link JarEntryReader#CLASS_ROOTS class root}, such as <CODE>BOOT-INF/classes/</CODE>,
+ * are selected by their path relative to the class root.
+ * <P/>
+ * For a multi-release JAR file, only the variant of each class that the {@link ScanContext#getRelease target release}
+ * would load is read: the class file from the highest <CODE>META-INF/versions/</CODE><I>N</I> directory with <I>N</I>
+ * not greater than the target release, or else the base class file. In any other JAR file, class files below
+ * <CODE>META-INF/versions/</CODE> are ignored. Module descriptors are always ignored.
  */
 public class JarAnnotated extends FlatMapIterator<Annotated, JarEntryReader>
   {
@@ -25,9 +46,34 @@ public class JarAnnotated extends FlatMapIterator<Annotated, JarEntryReader>
    */
   public JarAnnotated( File jar, AnnotationFilter filter)
     {
-    super( entryReaders( jar));
+    this( jar, new ScanContext( filter));
+    }
+
+  /**
+   * Creates a new JarAnnotated instance.
+   */
+  JarAnnotated( File jar, ScanContext scan)
+    {
+    this( jar, archive( jar), scan);
+    }
+
+  /**
+   * Creates a new JarAnnotated instance that closes the given archive when all entries have been read.
+   */
+  private JarAnnotated( File jar, ZipArchive archive, ScanContext scan)
+    {
+    this( jar, selectEntries( entryReaders( archive, scan.getRelease()), scan.getFilter()), scan);
+    archive_ = archive;
+    }
+
+  /**
+   * Creates a new JarAnnotated instance that reads only the given selected entries of the JAR file.
+   */
+  JarAnnotated( File jar, Collection<JarEntryReader> entries, ScanContext scan)
+    {
+    super( entries);
     jar_ = jar;
-    filter_ = filter;
+    scan_ = scan;
     }
 
   /**
@@ -38,12 +84,16 @@ public class JarAnnotated extends FlatMapIterator<Annotated, JarEntryReader>
     return jar_;
     }
 
-  /**
-   * Returns true if this JAR entry will be included in the mapping.
-   */
-  protected boolean accept( JarEntryReader reader)
+  public boolean hasNext()
     {
-    return filter_.acceptClass( entryClass( reader.getEntry().getName()));
+    boolean hasNext = super.hasNext();
+    if( !hasNext && archive_ != null)
+      {
+      archive_.close();
+      archive_ = null;
+      }
+
+    return hasNext;
     }
 
   /**
@@ -51,34 +101,170 @@ public class JarAnnotated extends FlatMapIterator<Annotated, JarEntryReader>
    */
   protected Iterator<Annotated> map( JarEntryReader reader)
     {
-    return new ClassEntryData( reader).getAnnotated( filter_);
+    return new ClassEntryData( reader).getAnnotated( scan_);
     }
 
   /**
-   * Returns the class name for the given JAR class entry.
+   * Returns the given class file entries for classes that may be accepted by the given filter.
    */
-  private static String entryClass( String classEntryName)
+  static List<JarEntryReader> selectEntries( List<JarEntryReader> entries, AnnotationFilter filter)
     {
     return
-      classEntryName
-      .substring( 0, classEntryName.lastIndexOf( ".class"))
-      .replace( '/', '.');
+      entries.stream()
+      .filter( reader -> filter.acceptClassFile( reader.getClassFilePath()))
+      .collect( toList());
     }
 
   /**
-   * Returns a {@link JarEntryReader} for each class file in the given JAR file.
+   * Returns a {@link JarEntryReader} for each class file in the given JAR file, as seen by the current JVM.
    */
-  private static Collection<JarEntryReader> entryReaders( File jar)
+  static List<JarEntryReader> entryReaders( File jar)
+    {
+    return entryReaders( archive( jar), RUNTIME_RELEASE);
+    }
+
+  /**
+   * Returns a {@link JarEntryReader} for each class file in the given JAR archive, including the class files in
+   * any nested archives, in central directory order. For a multi-release archive, returns only the class files
+   * seen by the given target release.
+   */
+  static List<JarEntryReader> entryReaders( ZipArchive archive, int release)
+    {
+    List<JarEntryReader> readers = new ArrayList<JarEntryReader>();
+    for( JarEntryReader reader : classEntryReaders( archive, release))
+      {
+      if( !reader.getEntry().getName().endsWith( ".jar"))
+        {
+        readers.add( reader);
+        }
+      else if( archive.getPath() == null)
+        {
+        for( JarEntryReader nested : classEntryReaders( nested( archive, reader.getEntry()), release))
+          {
+          if( !nested.getEntry().getName().endsWith( ".jar"))
+            {
+            readers.add( nested);
+            }
+          }
+        }
+      }
+
+    return readers;
+    }
+
+  /**
+   * Returns a {@link JarEntryReader} for each class file and nested JAR file in the given archive, in central
+   * directory order. For a multi-release archive, each class file is replaced by the variant for the given target
+   * release, and versioned class files without a base class file follow all others.
+   */
+  private static Collection<JarEntryReader> classEntryReaders( ZipArchive archive, int release)
+    {
+    Map<String,JarEntryReader> readers = new LinkedHashMap<String,JarEntryReader>();
+    Map<String,JarEntryReader> variants = new LinkedHashMap<String,JarEntryReader>();
+    Map<String,Integer> variantVersions = new HashMap<String,Integer>();
+    Boolean multiRelease = null;
+    for( ZipArchive.Entry entry : archive.getEntries())
+      {
+      String name = entry.getName();
+      if( !name.startsWith( VERSIONS))
+        {
+        if( name.endsWith( ".class") || name.endsWith( ".jar"))
+          {
+          readers.putIfAbsent( name, new JarEntryReader( archive, entry));
+          }
+        }
+      else if( name.endsWith( ".class") && (multiRelease = multiRelease == null? isMultiRelease( archive) : multiRelease))
+        {
+        // Is this the latest variant for the target release so far?
+        int end = name.indexOf( '/', VERSIONS.length());
+        int version = end < 0? -1 : toVersion( name.substring( VERSIONS.length(), end));
+        String path = name.substring( end + 1);
+        if( version >= 9 && version <= release && version > variantVersions.getOrDefault( path, 0))
+          {
+          variantVersions.put( path, version);
+          variants.put( path, new JarEntryReader( archive, entry));
+          }
+        }
+      }
+
+    // Replace each base class file with its selected variant.
+    readers.putAll( variants);
+    return readers.values();
+    }
+
+  /**
+   * Returns true if the manifest of the given archive identifies a multi-release JAR file.
+   */
+  private static boolean isMultiRelease( ZipArchive archive)
+    {
+    Optional<ZipArchive.Entry> manifest = archive.getEntry( MANIFEST);
+    boolean multiRelease = false;
+    if( manifest.isPresent())
+      {
+      try( InputStream input = archive.getInputStream( manifest.get()))
+        {
+        multiRelease = "true".equalsIgnoreCase( new Manifest( input).getMainAttributes().getValue( MULTI_RELEASE));
+        }
+      catch( Exception e)
+        {
+        multiRelease = false;
+        }
+      }
+
+    return multiRelease;
+    }
+
+  /**
+   * Returns the release number given by a version directory name, or -1 if not a valid release number.
+   */
+  private static int toVersion( String name)
+    {
+    try
+      {
+      return Integer.parseInt( name);
+      }
+    catch( NumberFormatException e)
+      {
+      return -1;
+      }
+    }
+
+  /**
+   * Returns the release number of the current JVM.
+   */
+  private static int runtimeRelease()
+    {
+    String version = System.getProperty( "java.specification.version", "8");
+    return
+      toVersion(
+        version.startsWith( "1.")
+        ? version.substring( 2)
+        : version);
+    }
+
+  /**
+   * Returns the nested archive contained in the given entry of the given JAR archive.
+   */
+  private static ZipArchive nested( ZipArchive archive, ZipArchive.Entry entry)
+    {
+    try
+      {
+      return archive.getNested( entry);
+      }
+    catch( Exception e)
+      {
+      throw new IllegalStateException( String.format( "Can't read entries for jar=%s, nested archive=%s", archive.getFile(), entry.getName()), e);
+      }
+    }
+
+  /**
+   * Returns the {@link ZipArchive} for the given JAR file.
+   */
+  static ZipArchive archive( File jar)
     {
     try
       {
-      JarFile jarFile = new JarFile( jar);
-      return
-        Collections.list( jarFile.entries())
-        .stream()
-        .filter( entry -> entry.getName().endsWith( ".class"))
-        .map( entry -> new JarEntryReader( jarFile, entry))
-        .collect( toList());
+      return new ZipArchive( jar);
       }
     catch( Exception e)
       {
@@ -95,5 +281,15 @@ public class JarAnnotated extends FlatMapIterator<Annotated, JarEntryReader>
     }
 
   private final File jar_;
-  private final AnnotationFilter filter_;
+  private final ScanContext scan_;
+  private ZipArchive archive_;
+
+  /**
+   * The release number of the current JVM.
+   */
+  public static final int RUNTIME_RELEASE = runtimeRelease();
+
+  private static final String VERSIONS = "META-INF/versions/";
+  private static final String MANIFEST = "META-INF/MANIFEST.MF";
+  private static final Attributes.Name MULTI_RELEASE = new Attributes.Name( "Multi-Release");
   }
@@ -9,8 +9,9 @@ package org.cornutum.annotation;
 
 import java.io.File;
 import java.io.InputStream;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.nio.ByteBuffer;
+import java.util.function.IntFunction;
+import java.util.zip.Inflater;
 
 /**
  * Provides access to the data for a JAR file entry.
@@ -20,24 +21,92 @@ public class JarEntryReader
   /**
    * Creates a new JarEntryReader instance.
    */
-  public JarEntryReader( JarFile file, JarEntry entry)
+  public JarEntryReader( ZipArchive archive, ZipArchive.Entry entry)
     {
-    file_ = file;
+    archive_ = archive;
     entry_ = entry;
     }
 
   /**
    * Returns the JAR file for this reader.
    */
-  public JarFile getFile()
+  public File getFile()
     {
-    return file_;
+    return getArchive().getFile();
+    }
+
+  /**
+   * Returns the JAR archive for this reader.
+   */
+  public ZipArchive getArchive()
+    {
+    return archive_;
+    }
+
+  /**
+   * Returns the path of the entry relative to the outermost JAR file. For an entry of a nested archive, the path is
+   * given by the nested archive path and the entry name, separated by <CODE>"!/"</CODE>.
+   */
+  public String getPath()
+    {
+    return
+      archive_.getPath() == null
+      ? entry_.getName()
+      : archive_.getPath() + "!/" + entry_.getName();
+    }
+
+  /**
+   * Returns the path of this class file entry relative to its class path root. For a class file located below
+   * a known {@link #CLASS_ROOTS class root} of a JAR file, this is the entry name relative to the class root.
+   * For a versioned class file in a multi-release JAR file, this is the entry name relative to the version
+   * directory. Otherwise, this is the entry name.
+   */
+  public String getClassFilePath()
+    {
+    String name = entry_.getName();
+    if( name.startsWith( VERSIONS))
+      {
+      return name.substring( name.indexOf( '/', VERSIONS.length()) + 1);
+      }
+
+    for( String root : CLASS_ROOTS)
+      {
+      if( name.startsWith( root))
+        {
+        return name.substring( root.length());
+        }
+      }
+    return name;
+    }
+
+  /**
+   * Returns a reader for this entry that reads from the given JAR archive, which must be the same JAR file as the
+   * outermost archive for this reader.
+   */
+  public JarEntryReader rebind( ZipArchive archive)
+    {
+    try
+      {
+      ZipArchive rebound =
+        archive_.getPath() == null
+        ? archive
+        : archive.getNested( archive_.getPath());
+
+      return
+        rebound == archive_
+        ? this
+        : new JarEntryReader( rebound, entry_);
+      }
+    catch( Exception e)
+      {
+      throw new IllegalStateException( String.format( "JAR=%s: Can't read archive=%s", archive.getFile(), archive_.getPath()), e);
+      }
     }
 
   /**
    * Returns the JAR entry for this reader.
    */
-  public JarEntry getEntry()
+  public ZipArchive.Entry getEntry()
     {
     return entry_;
     }
@@ -49,7 +118,7 @@ public class JarEntryReader
     {
     try
       {
-      return getFile().getInputStream( getEntry());
+      return getArchive().getInputStream( getEntry());
       }
     catch( Exception e)
       {
@@ -58,22 +127,38 @@ public class JarEntryReader
     }
 
   /**
-   * Returns the simple name of the JAR file for this entry.
+   * Returns a buffer containing the entry data. Compressed data is inflated using the given {@link Inflater}
+   * into a buffer obtained from the given allocator, using the uncompressed size recorded for the entry.
    */
-  private String getJarName()
+  public ByteBuffer getBuffer( Inflater inflater, IntFunction<ByteBuffer> allocator)
     {
-    return new File( getFile().getName()).getName();
+    try
+      {
+      return getArchive().getData( getEntry(), inflater, allocator);
+      }
+    catch( Exception e)
+      {
+      throw new IllegalStateException( String.format( "JAR=%s: Can't read entry=%s", getFile(), getEntry().getName()), e);
+      }
     }
 
   public String toString()
     {
     return
       ToString.of( this)
-      .append( "jar", getJarName())
-      .append( "entry", getEntry().getName())
+      .append( "jar", getFile().getName())
+      .append( "entry", getPath())
       .toString();
     }
   
-  private JarFile file_;
-  private JarEntry entry_;
+  private final ZipArchive archive_;
+  private final ZipArchive.Entry entry_;
+
+  /**
+   * The entry name prefixes used for the class path root of application classes packaged in an executable JAR
+   * or a web application archive.
+   */
+  public static final String[] CLASS_ROOTS = { "BOOT-INF/classes/", "WEB-INF/classes/"};
+
+  private static final String VERSIONS = "META-INF/versions/";
   }
@@ -7,17 +7,21 @@
 
 package org.cornutum.annotation;
 
-import static org.cornutum.annotation.ClassData.classPackage;
 import static org.cornutum.annotation.ClassData.rawTypeName;
 
 import java.lang.annotation.Annotation;
+import java.lang.annotation.RetentionPolicy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import static java.util.Collections.unmodifiableSet;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
@@ -25,8 +29,21 @@ import static java.util.stream.Collectors.toSet;
 /**
  * An {@link AnnotationFilter} that accepts annotated elements appearing in classes
  * that belong to specific packages.
+ * <P/>
+ * As a {@link RawAnnotationFilter}, this filter matches raw type names using a perfect hash table
+ * compiled from the set of accepted annotations. Accepted and excluded packages are compiled into a {@link PackageTrie},
+ * so that classes and package paths are matched without allocating any objects, and a scan can skip any directory or
+ * JAR entry outside the accepted packages.
+ * <P/>
+ * A package name like <CODE>com.acme</CODE> matches only that package. A package name like <CODE>com.acme.**</CODE>
+ * matches that package and all of its subpackages. If no accepted package is defined, classes in every package
+ * are accepted, except for any excluded package.
+ * <P/>
+ * By default, annotations of the {@link Annotated#isDefaultType default types} of class element and with either
+ * {@link RetentionPolicy retention} are accepted. Restricting the accepted types or retention allows a scan
+ * to skip the corresponding parts of each class file.
  */
-public class PackageFilter implements AnnotationFilter
+public class PackageFilter implements AnnotationFilter, RawAnnotationFilter
   {
   /**
    * Creates a new SimpleAnnotationFilter instance.
@@ -74,6 +91,7 @@ public class PackageFilter implements AnnotationFilter
       {
       annotations_.put( rawTypeName( annotation), annotation);
       }
+    descriptors_ = null;
     
     return this;
     }
@@ -91,7 +109,59 @@ public class PackageFilter implements AnnotationFilter
    */
   public PackageFilter inPackage( Collection<String> packageNames)
     {
-    packages_.addAll( packageNames);
+    for( String packageName : packageNames)
+      {
+      packages_.add( packageName);
+      trie_.include( packageName);
+      }
+    return this;
+    }
+
+  /**
+   * Adds to the set of excluded packages.
+   */
+  public PackageFilter excludePackage( String... packageNames)
+    {
+    return excludePackage( Arrays.asList( packageNames));
+    }
+
+  /**
+   * Adds to the set of excluded packages.
+   */
+  public PackageFilter excludePackage( Collection<String> packageNames)
+    {
+    for( String packageName : packageNames)
+      {
+      excluded_.add( packageName);
+      trie_.exclude( packageName);
+      }
+    return this;
+    }
+
+  /**
+   * Changes the types of class element accepted. If none are given, the {@link Annotated#isDefaultType default types}
+   * are accepted.
+   */
+  public PackageFilter types( Annotated.Type... types)
+    {
+    types_ =
+      types.length == 0
+      ? Annotated.getDefaultTypes()
+      : EnumSet.copyOf( Arrays.asList( types));
+    return this;
+    }
+
+  /**
+   * Changes the annotation retention accepted, either {@link RetentionPolicy#RUNTIME RUNTIME} for runtime-visible
+   * annotations or {@link RetentionPolicy#CLASS CLASS} for runtime-invisible annotations. If none are given, both are
+   * accepted.
+   */
+  public PackageFilter retention( RetentionPolicy... retention)
+    {
+    retention_ =
+      retention.length == 0
+      ? EnumSet.of( RetentionPolicy.RUNTIME, RetentionPolicy.CLASS)
+      : EnumSet.copyOf( Arrays.asList( retention));
     return this;
     }
 
@@ -111,6 +181,30 @@ public class PackageFilter implements AnnotationFilter
     return unmodifiableSet( packages_);
     }
 
+  /**
+   * Returns the packages excluded by this filter.
+   */
+  public Set<String> getExcludedPackages()
+    {
+    return unmodifiableSet( excluded_);
+    }
+
+  /**
+   * Returns the types of class element accepted by this filter.
+   */
+  public Set<Annotated.Type> getTypes()
+    {
+    return unmodifiableSet( types_);
+    }
+
+  /**
+   * Returns the annotation retention accepted by this filter.
+   */
+  public Set<RetentionPolicy> getRetention()
+    {
+    return unmodifiableSet( retention_);
+    }
+
   /**
    * If the given raw type name identifies an accepted {@link Annotation}, returns the annotation class.
    * Otherwise, returns empty.
@@ -120,13 +214,104 @@ public class PackageFilter implements AnnotationFilter
     return Optional.ofNullable( annotations_.get( rawTypeName));
     }
 
+  /**
+   * If the raw type name given by the specified bytes identifies an accepted annotation, returns the annotation id.
+   * Otherwise, returns {@link #REJECT}.
+   */
+  public int acceptDescriptor( ByteBuffer bytes, int offset, int length, int hash)
+    {
+    return getDescriptors().find( bytes, offset, length, hash);
+    }
+
+  /**
+   * Returns the annotation class name for the given annotation id.
+   */
+  public String getAnnotation( int id)
+    {
+    return getDescriptors().getName( id);
+    }
+
+  /**
+   * Returns false, because only specific annotations are accepted.
+   */
+  public boolean acceptsAllAnnotations()
+    {
+    return false;
+    }
+
+  /**
+   * Returns the table of raw type names for accepted annotations.
+   */
+  private DescriptorTable getDescriptors()
+    {
+    DescriptorTable descriptors = descriptors_;
+    if( descriptors == null)
+      {
+      descriptors =
+        descriptors_ =
+        new DescriptorTable(
+          annotations_.keySet().stream().map( rawTypeName -> rawTypeName.getBytes( StandardCharsets.UTF_8)).toArray( byte[][]::new),
+          annotations_.values().stream().toArray( String[]::new));
+      }
+    return descriptors;
+    }
+
   /**
    * Returns true if the given class belongs to an accepted package.
-   * If no accepted package has been defined, returns true for any <CODE>packageName</CODE>.
+   * If no accepted package has been defined, returns true for any class not in an excluded package.
    */
   public boolean acceptClass( String className)
     {
-    return packages_.isEmpty() || packages_.contains( classPackage( className));
+    return trie_.isEmpty() || trie_.acceptClass( className, 0, className.length());
+    }
+
+  /**
+   * Returns true if the given package path leads to an accepted package.
+   */
+  public boolean acceptPackagePath( String packagePath)
+    {
+    return trie_.isEmpty() || trie_.mayAccept( packagePath, 0, packagePath.length());
+    }
+
+  /**
+   * Returns true if the given class file path names a class in an accepted package.
+   */
+  public boolean acceptClassFile( String classFilePath)
+    {
+    return trie_.isEmpty() || trie_.acceptClass( classFilePath, 0, classFilePath.length() - ".class".length());
+    }
+
+  /**
+   * Returns true if annotations of the given type of class element are accepted.
+   */
+  public boolean acceptType( Annotated.Type type)
+    {
+    return types_.contains( type);
+    }
+
+  /**
+   * Returns true if annotations with the given retention are accepted.
+   */
+  public boolean acceptRetention( RetentionPolicy retention)
+    {
+    return retention_.contains( retention);
+    }
+
+  /**
+   * Returns a string that identifies the annotations, packages, types, and retention accepted by this filter.
+   */
+  public Optional<String> getFingerprint()
+    {
+    return
+      Optional.of(
+        String.format(
+          "%s%s%s%s%s%s",
+          getClass().getName(),
+          new TreeSet<String>( getAnnotations()),
+          new TreeSet<String>( getPackages()),
+          excluded_.isEmpty()? "" : String.format( "-%s", new TreeSet<String>( getExcludedPackages())),
+          types_.equals( Annotated.getDefaultTypes())? "" : String.format( "@%s", types_),
+          retention_.size() == 2? "" : String.format( "@%s", retention_)));
     }
 
   public String toString()
@@ -135,9 +320,17 @@ public class PackageFilter implements AnnotationFilter
       ToString.of( this)
       .append( "annotations", getAnnotations().stream().map( ToString::simpleClassName).collect( toList()))
       .append( "packages", getPackages())
+      .append( "excluded", getExcludedPackages())
+      .append( "types", getTypes())
+      .append( "retention", getRetention())
       .toString();
     }
 
   private Map<String,String> annotations_ = new LinkedHashMap<String,String>();
   private Set<String> packages_ = new HashSet<String>();
+  private Set<String> excluded_ = new HashSet<String>();
+  private PackageTrie trie_ = new PackageTrie();
+  private Set<Annotated.Type> types_ = Annotated.getDefaultTypes();
+  private Set<RetentionPolicy> retention_ = EnumSet.of( RetentionPolicy.RUNTIME, RetentionPolicy.CLASS);
+  private volatile DescriptorTable descriptors_;
   }
@@ -0,0 +1,280 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.util.Arrays;
+
+/**
+ * Matches package names against a set of include and exclude rules.
+ * <P/>
+ * Each rule is a package pattern, using either '.' or '/' separators. A pattern like <CODE>com.acme</CODE> matches only
+ * the named package. A pattern like <CODE>com.acme.**</CODE> matches the named package and all of its subpackages,
+ * and the pattern <CODE>**</CODE> matches all packages. The most specific matching rule decides whether a package
+ * is accepted: a rule for a package is more specific than a rule for its ancestor, and an exact rule is more specific
+ * than a subtree rule for the same package. When an include rule and an exclude rule are equally specific, the exclude
+ * rule wins. A package that matches no rule is accepted only if no include rule has been defined.
+ * <P/>
+ * Matching is done against a slice of a {@link CharSequence}, such as a class name or a JAR entry name, without
+ * allocating any objects.
+ */
+class PackageTrie
+  {
+  /**
+   * Creates a new PackageTrie instance.
+   */
+  public PackageTrie()
+    {
+    }
+
+  /**
+   * Adds a rule that accepts packages matching the given pattern.
+   */
+  public PackageTrie include( String pattern)
+    {
+    add( pattern, INCLUDE);
+    includes_++;
+    return this;
+    }
+
+  /**
+   * Adds a rule that rejects packages matching the given pattern.
+   */
+  public PackageTrie exclude( String pattern)
+    {
+    add( pattern, EXCLUDE);
+    return this;
+    }
+
+  /**
+   * Returns true if this trie has no rules, so that every package is accepted.
+   */
+  public boolean isEmpty()
+    {
+    return empty_;
+    }
+
+  /**
+   * Returns true if the package named by the given slice is accepted.
+   */
+  public boolean acceptPackage( CharSequence name, int start, int end)
+    {
+    int rule = root_.subtree_;
+    Node node = root_;
+    for( int from = start; node != null && from < end; from = segmentEnd( name, from, end) + 1)
+      {
+      node = node.getChild( name, from, segmentEnd( name, from, end));
+      if( node != null && node.subtree_ != NONE)
+        {
+        rule = node.subtree_;
+        }
+      }
+
+    if( node != null && node.exact_ != NONE)
+      {
+      rule = node.exact_;
+      }
+
+    return isIncluded( rule);
+    }
+
+  /**
+   * Returns true if the package of the class named by the given slice is accepted. The class name may be qualified
+   * using either '.' or '/' separators.
+   */
+  public boolean acceptClass( CharSequence name, int start, int end)
+    {
+    int packageEnd;
+    for( packageEnd = end - 1; packageEnd >= start && !isSeparator( name.charAt( packageEnd)); packageEnd--);
+
+    return acceptPackage( name, start, Math.max( start, packageEnd));
+    }
+
+  /**
+   * Returns true if the package named by the given slice, or any of its subpackages, may be accepted.
+   */
+  public boolean mayAccept( CharSequence name, int start, int end)
+    {
+    int rule = root_.subtree_;
+    Node node = root_;
+    for( int from = start; node != null && from < end; from = segmentEnd( name, from, end) + 1)
+      {
+      node = node.getChild( name, from, segmentEnd( name, from, end));
+      if( node != null && node.subtree_ != NONE)
+        {
+        rule = node.subtree_;
+        }
+      }
+
+    return
+      isIncluded( rule)
+      || (node != null && (node.exact_ == INCLUDE || node.descendantIncluded_));
+    }
+
+  /**
+   * Adds a rule for the given pattern.
+   */
+  private void add( String pattern, int rule)
+    {
+    boolean subtree = pattern.endsWith( "**");
+    int end = pattern.length() - (subtree? 2 : 0);
+    if( end > 0 && isSeparator( pattern.charAt( end - 1)))
+      {
+      end--;
+      }
+
+    Node node = root_;
+    for( int from = 0; from < end; from = segmentEnd( pattern, from, end) + 1)
+      {
+      if( rule == INCLUDE)
+        {
+        node.descendantIncluded_ = true;
+        }
+
+      int to = segmentEnd( pattern, from, end);
+      Node child = node.getChild( pattern, from, to);
+      node = child == null? node.addChild( pattern.substring( from, to)) : child;
+      }
+
+    if( subtree)
+      {
+      node.subtree_ = merge( node.subtree_, rule);
+      }
+    else
+      {
+      node.exact_ = merge( node.exact_, rule);
+      }
+    empty_ = false;
+    }
+
+  /**
+   * Returns true if the given rule, or the default rule if none, accepts a package.
+   */
+  private boolean isIncluded( int rule)
+    {
+    return
+      rule == NONE
+      ? includes_ == 0
+      : rule == INCLUDE;
+    }
+
+  /**
+   * Returns the rule that results from adding the given rule to the current rule.
+   */
+  private static int merge( int current, int rule)
+    {
+    return current == EXCLUDE? EXCLUDE : rule;
+    }
+
+  /**
+   * Returns the end of the name segment that starts at the given position.
+   */
+  private static int segmentEnd( CharSequence name, int from, int end)
+    {
+    int to;
+    for( to = from; to < end && !isSeparator( name.charAt( to)); to++);
+    return to;
+    }
+
+  /**
+   * Returns true if the given character separates the segments of a name.
+   */
+  private static boolean isSeparator( char c)
+    {
+    return c == '.' || c == '/';
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( "includes", includes_)
+      .toString();
+    }
+
+  /**
+   * A node that represents a package.
+   */
+  private static class Node
+    {
+    /**
+     * Creates a new Node instance.
+     */
+    public Node( String segment)
+      {
+      segment_ = segment;
+      hash_ = segment.hashCode();
+      }
+
+    /**
+     * Returns the child node for the segment given by the specified slice, or null if not found.
+     */
+    public Node getChild( CharSequence name, int from, int to)
+      {
+      int hash = 0;
+      for( int i = from; i < to; i++)
+        {
+        hash = 31 * hash + name.charAt(i);
+        }
+
+      Node child = null;
+      for( int i = 0; child == null && i < childCount_; i++)
+        {
+        if( children_[i].hash_ == hash && children_[i].matches( name, from, to))
+          {
+          child = children_[i];
+          }
+        }
+
+      return child;
+      }
+
+    /**
+     * Adds a child node for the given segment.
+     */
+    public Node addChild( String segment)
+      {
+      if( childCount_ == children_.length)
+        {
+        children_ = Arrays.copyOf( children_, Math.max( 4, childCount_ * 2));
+        }
+
+      Node child = new Node( segment);
+      children_[ childCount_++] = child;
+      return child;
+      }
+
+    /**
+     * Returns true if the given slice matches the segment for this node.
+     */
+    private boolean matches( CharSequence name, int from, int to)
+      {
+      boolean matches = to - from == segment_.length();
+      for( int i = from; matches && i < to; i++)
+        {
+        matches = name.charAt(i) == segment_.charAt( i - from);
+        }
+      return matches;
+      }
+
+    private final String segment_;
+    private final int hash_;
+    private Node[] children_ = new Node[0];
+    private int childCount_;
+    private int exact_ = NONE;
+    private int subtree_ = NONE;
+    private boolean descendantIncluded_;
+    }
+
+  private final Node root_ = new Node( "");
+  private int includes_;
+  private boolean empty_ = true;
+
+  private static final int NONE = 0;
+  private static final int INCLUDE = 1;
+  private static final int EXCLUDE = 2;
+  }
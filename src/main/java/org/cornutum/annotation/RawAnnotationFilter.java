@@ -0,0 +1,73 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An optional companion to {@link AnnotationFilter} that accepts annotations by matching the raw type names
+ * recorded in a class file directly, without creating a String for each annotation reference.
+ * <P/>
+ * Each accepted annotation is identified by an integer id, and the annotation class name for an id is
+ * created only once.
+ * <P/>
+ * Raw type names are matched only if {@link #acceptDescriptor acceptDescriptor()} is declared by the same class as
+ * {@link AnnotationFilter#acceptAnnotation acceptAnnotation()}, or by a subclass. So a subclass that overrides
+ * acceptAnnotation() must also override this interface to keep matching raw type names.
+ */
+public interface RawAnnotationFilter
+  {
+  /**
+   * If the raw type name given by the specified bytes identifies an accepted annotation, returns the annotation id.
+   * Otherwise, returns {@link #REJECT}. The raw type name is given by the modified UTF-8 bytes at the specified
+   * absolute <CODE>offset</CODE> of the <CODE>bytes</CODE> buffer. The <CODE>hash</CODE> is the value computed
+   * for these bytes by {@link #hash hash()}.
+   */
+  int acceptDescriptor( ByteBuffer bytes, int offset, int length, int hash);
+
+  /**
+   * Returns the annotation class name for the given annotation id.
+   */
+  String getAnnotation( int id);
+
+  /**
+   * Returns true if every annotation is accepted.
+   */
+  boolean acceptsAllAnnotations();
+
+  /**
+   * Returns the hash value for the given raw type name bytes.
+   */
+  static int hash( ByteBuffer bytes, int offset, int length)
+    {
+    int hash = 0;
+    for( int i = offset, end = offset + length; i < end; i++)
+      {
+      hash = 31 * hash + bytes.get( i);
+      }
+    return hash;
+    }
+
+  /**
+   * Returns the hash value for the given raw type name bytes.
+   */
+  static int hash( byte[] bytes)
+    {
+    int hash = 0;
+    for( int i = 0; i < bytes.length; i++)
+      {
+      hash = 31 * hash + bytes[i];
+      }
+    return hash;
+    }
+
+  /**
+   * The value returned by {@link #acceptDescriptor acceptDescriptor()} when an annotation is not accepted.
+   */
+  int REJECT = -1;
+  }
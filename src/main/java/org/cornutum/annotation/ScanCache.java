@@ -0,0 +1,343 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Stores the {@link Annotated} instances found in each class path element in a cache directory, so that
+ * unchanged class path elements need not be parsed again.
+ * <P/>
+ * Results for each class path element are stored in a separate file, named for the canonical path of the element
+ * and the {@link AnnotationFilter#getFingerprint fingerprint} of the filter. Each file also records a fingerprint
+ * of the element contents, and its results are used only when this matches the current contents. Files are
+ * written to a temporary file and then moved into place atomically, so that concurrent scans, even in different
+ * JVMs, always read a complete file. Any cache file that can't be read is ignored.
+ */
+class ScanCache
+  {
+  /**
+   * Creates a new ScanCache instance.
+   */
+  public ScanCache( File dir, String filterFingerprint)
+    {
+    dir_ = dir;
+    filterFingerprint_ = filterFingerprint;
+    }
+
+  /**
+   * Returns the cache directory.
+   */
+  public File getDir()
+    {
+    return dir_;
+    }
+
+  /**
+   * Returns the cached results for the given class path element, if the element has the given fingerprint.
+   */
+  public Optional<List<Annotated>> get( File element, String fingerprint)
+    {
+    List<Annotated> annotated = null;
+    File cacheFile = getCacheFile( element);
+    if( cacheFile.isFile())
+      {
+      try( DataInputStream input = new DataInputStream( new BufferedInputStream( new FileInputStream( cacheFile))))
+        {
+        if( input.readInt() == MAGIC
+            && input.readShort() == VERSION
+            && input.readUTF().equals( canonicalPath( element))
+            && input.readUTF().equals( filterFingerprint_)
+            && input.readUTF().equals( fingerprint))
+          {
+          annotated = AnnotatedRecords.read( input, element);
+          }
+        }
+      catch( Exception e)
+        {
+        // Unreadable or incomplete, so ignore this file.
+        annotated = null;
+        }
+      }
+
+    return Optional.ofNullable( annotated);
+    }
+
+  /**
+   * Stores the results for the given class path element with the given fingerprint.
+   */
+  public void put( File element, String fingerprint, List<Annotated> annotated)
+    {
+    Path temp = null;
+    try
+      {
+      dir_.mkdirs();
+      File cacheFile = getCacheFile( element);
+      temp = java.nio.file.Files.createTempFile( dir_.toPath(), cacheFile.getName(), ".tmp");
+      try( DataOutputStream output = new DataOutputStream( new BufferedOutputStream( java.nio.file.Files.newOutputStream( temp))))
+        {
+        output.writeInt( MAGIC);
+        output.writeShort( VERSION);
+        output.writeUTF( canonicalPath( element));
+        output.writeUTF( filterFingerprint_);
+        output.writeUTF( fingerprint);
+        AnnotatedRecords.write( output, element, annotated);
+        }
+
+      try
+        {
+        java.nio.file.Files.move( temp, cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+      catch( AtomicMoveNotSupportedException e)
+        {
+        java.nio.file.Files.move( temp, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+      temp = null;
+      }
+    catch( Exception e)
+      {
+      // The cache is only an optimization, so a scan continues even if results can't be stored.
+      }
+    finally
+      {
+      if( temp != null)
+        {
+        temp.toFile().delete();
+        }
+      }
+    }
+
+  /**
+   * Returns a {@link Recorder} that stores the results for the given class path element
+   * when all of its parts have been scanned.
+   */
+  public Recorder record( File element, String fingerprint)
+    {
+    return new Recorder( element, fingerprint);
+    }
+
+  /**
+   * Returns the fingerprint for the contents of the given JAR file.
+   */
+  public static String jarFingerprint( File jar, Collection<JarEntryReader> entries)
+    {
+    MessageDigest digest = Digests.newDigest();
+    Digests.update( digest, jar.length());
+    Digests.update( digest, jar.lastModified());
+    for( JarEntryReader entry : entries)
+      {
+      digest.update( entry.getPath().getBytes( UTF_8));
+      Digests.update( digest, entry.getEntry().getCrc());
+      Digests.update( digest, entry.getEntry().getSize());
+      }
+    return Digests.toHex( digest.digest());
+    }
+
+  /**
+   * Returns the fingerprint for the contents of the given directory.
+   */
+  public static String directoryFingerprint( File dir, Collection<File> classFiles)
+    {
+    MessageDigest digest = Digests.newDigest();
+    for( File classFile : classFiles)
+      {
+      digest.update( classFile.getPath().getBytes( UTF_8));
+      try
+        {
+        BasicFileAttributes attributes = java.nio.file.Files.readAttributes( classFile.toPath(), BasicFileAttributes.class);
+        Digests.update( digest, attributes.size());
+        Digests.update( digest, attributes.lastModifiedTime().toMillis());
+        }
+      catch( IOException e)
+        {
+        Digests.update( digest, -1);
+        }
+      }
+    return Digests.toHex( digest.digest());
+    }
+
+  /**
+   * Returns the cache file for the given class path element.
+   */
+  private File getCacheFile( File element)
+    {
+    MessageDigest digest = Digests.newDigest();
+    digest.update( canonicalPath( element).getBytes( UTF_8));
+    digest.update( (byte) 0);
+    digest.update( filterFingerprint_.getBytes( UTF_8));
+
+    return new File( dir_, String.format( "%s-%s.bin", element.getName(), Digests.toHex( digest.digest()).substring( 0, 32)));
+    }
+
+  /**
+   * Returns the canonical path for the given file.
+   */
+  private static String canonicalPath( File file)
+    {
+    try
+      {
+      return file.getCanonicalPath();
+      }
+    catch( IOException e)
+      {
+      return file.getAbsolutePath();
+      }
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( "dir", getDir())
+      .toString();
+    }
+
+  /**
+   * Collects the results for a class path element that may be scanned in several parts, possibly by different threads.
+   * Results are stored only after every part has been completely scanned.
+   */
+  public class Recorder
+    {
+    /**
+     * Creates a new Recorder instance.
+     */
+    private Recorder( File element, String fingerprint)
+      {
+      element_ = element;
+      fingerprint_ = fingerprint;
+      }
+
+    /**
+     * Returns the part that covers the entire class path element.
+     */
+    public Part getWhole()
+      {
+      return new Part( 0, WHOLE);
+      }
+
+    /**
+     * Records the results for the given part.
+     */
+    private void complete( Part part, List<Annotated> annotated)
+      {
+      List<Annotated> results = null;
+      synchronized( this)
+        {
+        parts_.put( part.start_, annotated);
+        completed_ += part.size_;
+        if( completed_ == WHOLE)
+          {
+          results = new ArrayList<Annotated>();
+          for( List<Annotated> partResults : parts_.values())
+            {
+            results.addAll( partResults);
+            }
+          }
+        }
+
+      if( results != null)
+        {
+        put( element_, fingerprint_, results);
+        }
+      }
+
+    /**
+     * Identifies a part of a class path element, as a range of the interval [0, {@link #WHOLE}).
+     */
+    public class Part
+      {
+      /**
+       * Creates a new Part instance.
+       */
+      private Part( long start, long size)
+        {
+        start_ = start;
+        size_ = size;
+        }
+
+      /**
+       * Returns the given number of parts that together cover this part, in order.
+       */
+      public List<Part> split( int count)
+        {
+        List<Part> parts = new ArrayList<Part>( count);
+        long size = size_ / count;
+        for( int i = 0; i < count; i++)
+          {
+          parts.add( new Part( start_ + i * size, i == count - 1 ? size_ - i * size : size));
+          }
+        return parts;
+        }
+
+      /**
+       * Returns an iterator that returns the given results for this part, recording them when the iterator is exhausted.
+       */
+      public Iterator<Annotated> record( Iterator<Annotated> annotated)
+        {
+        return
+          new Iterator<Annotated>()
+            {
+            public boolean hasNext()
+              {
+              boolean hasNext = annotated.hasNext();
+              if( !hasNext && results_ != null)
+                {
+                complete( Part.this, results_);
+                results_ = null;
+                }
+              return hasNext;
+              }
+
+            public Annotated next()
+              {
+              Annotated next = annotated.next();
+              results_.add( next);
+              return next;
+              }
+
+            private List<Annotated> results_ = new ArrayList<Annotated>();
+            };
+        }
+
+      private final long start_;
+      private final long size_;
+      }
+
+    private final File element_;
+    private final String fingerprint_;
+    private final Map<Long,List<Annotated>> parts_ = new TreeMap<Long,List<Annotated>>();
+    private long completed_;
+
+    private static final long WHOLE = 1L << 62;
+    }
+
+  private final File dir_;
+  private final String filterFingerprint_;
+
+  private static final int MAGIC = 0x41464331;
+  private static final short VERSION = 2;
+  }
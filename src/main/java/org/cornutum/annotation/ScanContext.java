@@ -0,0 +1,249 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * Holds the state shared by all steps of a search for annotated class elements.
+ */
+class ScanContext
+  {
+  /**
+   * Creates a new ScanContext instance. If <CODE>filter</CODE> is null, a {@link AllAnnotated default filter} is used.
+   */
+  public ScanContext( AnnotationFilter filter)
+    {
+    filter_ = Optional.ofNullable( filter).orElse( AllAnnotated.INSTANCE);
+    rawFilter_ =
+      isRawFilter( filter_)
+      ? (RawAnnotationFilter) filter_
+      : null;
+    statistics_ = new ScanStatistics();
+    maxOpenArchives_ = ArchivePool.DEFAULT_MAX_OPEN;
+    release_ = JarAnnotated.RUNTIME_RELEASE;
+    }
+
+  /**
+   * Records counts for this scan in the given {@link ScanStatistics}. If <CODE>statistics</CODE> is null, counts are
+   * recorded in a new instance. Returns this scan.
+   */
+  public ScanContext statistics( ScanStatistics statistics)
+    {
+    statistics_ = Optional.ofNullable( statistics).orElseGet( ScanStatistics::new);
+    return this;
+    }
+
+  /**
+   * If <CODE>cacheDir</CODE> is non-null, results are cached in this directory, unless the filter has no
+   * {@link AnnotationFilter#getFingerprint fingerprint}. Returns this scan.
+   */
+  public ScanContext cacheDir( File cacheDir)
+    {
+    cache_ =
+      Optional.ofNullable( cacheDir)
+      .flatMap( dir -> filter_.getFingerprint().map( fingerprint -> new ScanCache( dir, fingerprint)))
+      .orElse( null);
+    return this;
+    }
+
+  /**
+   * If <CODE>listener</CODE> is non-null, scan events are reported to this listener. Returns this scan.
+   */
+  public ScanContext listener( ScanListener listener)
+    {
+    listener_ = listener;
+    return this;
+    }
+
+  /**
+   * At most <CODE>maxOpenArchives</CODE> idle JAR archives remain open. Must be given before the
+   * {@link #getArchives archive pool} is used. Returns this scan.
+   */
+  public ScanContext maxOpenArchives( int maxOpenArchives)
+    {
+    maxOpenArchives_ = maxOpenArchives;
+    return this;
+    }
+
+  /**
+   * Multi-release JAR files are read as seen by the given target release. Returns this scan.
+   */
+  public ScanContext release( int release)
+    {
+    release_ = release;
+    return this;
+    }
+
+  /**
+   * Returns the {@link AnnotationFilter} for this scan.
+   */
+  public AnnotationFilter getFilter()
+    {
+    return filter_;
+    }
+
+  /**
+   * Returns the {@link ScanStatistics} for this scan.
+   */
+  public ScanStatistics getStatistics()
+    {
+    return statistics_;
+    }
+
+  /**
+   * Returns the {@link ScanListener} for this scan, or null if none.
+   */
+  public ScanListener getListener()
+    {
+    return listener_;
+    }
+
+  /**
+   * If the filter is also a {@link RawAnnotationFilter} that accepts the same annotations by raw type name, returns
+   * the filter. Otherwise, returns null.
+   */
+  public RawAnnotationFilter getRawFilter()
+    {
+    return rawFilter_;
+    }
+
+  /**
+   * Returns the {@link ScanCache} for this scan, if any.
+   */
+  public Optional<ScanCache> getCache()
+    {
+    return Optional.ofNullable( cache_);
+    }
+
+  /**
+   * Returns the target release used to read multi-release JAR files.
+   */
+  public int getRelease()
+    {
+    return release_;
+    }
+
+  /**
+   * Skips class files shadowed by the same class file in an earlier class path element. If <CODE>report</CODE> is
+   * non-null, shadowed class files are recorded in this report. Returns this scan.
+   */
+  public ScanContext shadowing( ShadowReport report)
+    {
+    shadowing_ = true;
+    shadowReport_ = report;
+    return this;
+    }
+
+  /**
+   * If this scan skips shadowed class files, returns the {@link ClassPathShadows} for this scan. Otherwise, returns null.
+   */
+  public ClassPathShadows getShadows()
+    {
+    ClassPathShadows shadows = shadows_;
+    if( shadows == null && shadowing_)
+      {
+      synchronized( this)
+        {
+        if( (shadows = shadows_) == null)
+          {
+          shadows = shadows_ = new ClassPathShadows( shadowReport_, statistics_);
+          }
+        }
+      }
+    return shadows;
+    }
+
+  /**
+   * Returns the {@link ArchivePool} for JAR archives opened by this scan. The pool is created when first needed,
+   * so that a context used only to parse individual classes holds no pool.
+   */
+  public ArchivePool getArchives()
+    {
+    ArchivePool archives = archives_;
+    if( archives == null)
+      {
+      synchronized( this)
+        {
+        if( (archives = archives_) == null)
+          {
+          archives = archives_ = new ArchivePool( maxOpenArchives_, statistics_);
+          if( closed_)
+            {
+            // No archive can be opened after this scan is closed.
+            archives.close();
+            }
+          }
+        }
+      }
+    return archives;
+    }
+
+  /**
+   * Releases all resources held by this scan.
+   */
+  public void close()
+    {
+    ArchivePool archives;
+    synchronized( this)
+      {
+      closed_ = true;
+      archives = archives_;
+      }
+
+    if( archives != null)
+      {
+      archives.close();
+      }
+    }
+
+  /**
+   * Returns true if the given filter is a {@link RawAnnotationFilter} that accepts the same annotations by raw type
+   * name. This is true only if {@link RawAnnotationFilter#acceptDescriptor acceptDescriptor()} is declared by the
+   * class that declares {@link AnnotationFilter#acceptAnnotation acceptAnnotation()}, or by a subclass. So a subclass
+   * that overrides only acceptAnnotation() is matched by name instead.
+   */
+  private static boolean isRawFilter( AnnotationFilter filter)
+    {
+    try
+      {
+      Class<?> type = filter.getClass();
+      return
+        filter instanceof RawAnnotationFilter
+        && type.getMethod( "acceptAnnotation", String.class).getDeclaringClass()
+           .isAssignableFrom( type.getMethod( "acceptDescriptor", ByteBuffer.class, int.class, int.class, int.class).getDeclaringClass());
+      }
+    catch( Exception e)
+      {
+      throw new IllegalStateException( String.format( "Can't find filter methods for %s", filter), e);
+      }
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( "filter", getFilter())
+      .toString();
+    }
+
+  private final AnnotationFilter filter_;
+  private final RawAnnotationFilter rawFilter_;
+  private ScanStatistics statistics_;
+  private ScanCache cache_;
+  private ScanListener listener_;
+  private int maxOpenArchives_;
+  private volatile ArchivePool archives_;
+  private boolean closed_;
+  private int release_;
+  private boolean shadowing_;
+  private ShadowReport shadowReport_;
+  private volatile ClassPathShadows shadows_;
+  }
@@ -0,0 +1,75 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.File;
+
+/**
+ * Receives events that describe the progress of a search for annotated class elements.
+ * <P/>
+ * All times are given in nanoseconds. The events for the classes in a class path element are reported on the same
+ * thread, after the {@link #elementStarted elementStarted} event and before the {@link #elementEnded elementEnded}
+ * event for that element. A class path element may be scanned in several parts, for example by
+ * {@link Finder#findParallel}, and each part reports its own start and end events. Classes skipped by name, without
+ * reading any class data, are not reported. Events may be reported concurrently by different threads, so
+ * implementations must be thread-safe. If the consumer of the results stops before the scan of an element is complete,
+ * no {@link #elementEnded elementEnded} event is reported for that element. When no listener is given, no event is
+ * created and no time is measured.
+ */
+public interface ScanListener
+  {
+  /**
+   * Reports that the scan of a class path element has started.
+   */
+  default void elementStarted( File element, ElementKind kind)
+    {
+    }
+
+  /**
+   * Reports that the scan of a class path element has ended, after spending the given time reading and parsing
+   * its classes. This time doesn't include the time spent by consumers of the results.
+   */
+  default void elementEnded( File element, ElementKind kind, long nanos)
+    {
+    }
+
+  /**
+   * Reports that the data for a class was read from the given file. <CODE>bytesRead</CODE> is the number of bytes
+   * read from the file. If the data was compressed, <CODE>bytesInflated</CODE> is the size of the data after
+   * inflating. Otherwise, <CODE>bytesInflated</CODE> is 0.
+   */
+  default void classRead( File file, long bytesRead, long bytesInflated, long nanos)
+    {
+    }
+
+  /**
+   * Reports that the given class was parsed, finding the given number of annotations accepted by the filter.
+   */
+  default void classParsed( String className, int annotations, long nanos)
+    {
+    }
+
+  /**
+   * Reports that a class was skipped after reading its data. If the class was skipped before its name was read,
+   * <CODE>className</CODE> is null.
+   */
+  default void classSkipped( String className, SkipReason reason, long nanos)
+    {
+    }
+
+  /**
+   * Identifies a kind of class path element.
+   */
+  enum ElementKind { DIRECTORY, JAR, CLASS_FILE}
+
+  /**
+   * Identifies the reason for skipping a class: either the constant pool shows that the class can't contain any
+   * accepted annotation, or the filter doesn't accept the class.
+   */
+  enum SkipReason { NO_ACCEPTED_ANNOTATION, CLASS_NOT_ACCEPTED}
+  }
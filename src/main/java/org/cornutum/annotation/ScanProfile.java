@@ -0,0 +1,345 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A {@link ScanListener} that aggregates the cost of scanning each class path element.
+ * <P/>
+ * For each class path element, a ScanProfile accumulates the time spent, the classes read, the bytes read and inflated,
+ * and the annotations found. A ScanProfile also records a histogram of the time spent in each {@link Phase} of reading
+ * a class. Results from several searches are accumulated until {@link #clear cleared}.
+ */
+public class ScanProfile implements ScanListener
+  {
+  /**
+   * Creates a new ScanProfile instance.
+   */
+  public ScanProfile()
+    {
+    }
+
+  public void elementStarted( File element, ElementKind kind)
+    {
+    current_.set( elements_.computeIfAbsent( element, e -> new ElementProfile( e, kind)));
+    }
+
+  public void elementEnded( File element, ElementKind kind, long nanos)
+    {
+    ElementProfile profile = current_.get();
+    if( profile != null)
+      {
+      profile.nanos_.add( nanos);
+      current_.remove();
+      }
+    }
+
+  public void classRead( File file, long bytesRead, long bytesInflated, long nanos)
+    {
+    histograms_[ Phase.READ.ordinal()].record( nanos);
+    ElementProfile profile = current_.get();
+    if( profile != null)
+      {
+      profile.classes_.increment();
+      profile.bytesRead_.add( bytesRead);
+      profile.bytesInflated_.add( bytesInflated);
+      }
+    }
+
+  public void classParsed( String className, int annotations, long nanos)
+    {
+    histograms_[ Phase.PARSE.ordinal()].record( nanos);
+    ElementProfile profile = current_.get();
+    if( profile != null)
+      {
+      profile.annotations_.add( annotations);
+      }
+    }
+
+  public void classSkipped( String className, SkipReason reason, long nanos)
+    {
+    histograms_[ Phase.PARSE.ordinal()].record( nanos);
+    ElementProfile profile = current_.get();
+    if( profile != null)
+      {
+      profile.classesSkipped_.increment();
+      }
+    }
+
+  /**
+   * Returns the profiles for all class path elements scanned.
+   */
+  public Collection<ElementProfile> getElements()
+    {
+    return elements_.values();
+    }
+
+  /**
+   * Returns the profile for the given class path element, or null if this element has not been scanned.
+   */
+  public ElementProfile getElement( File element)
+    {
+    return elements_.get( element);
+    }
+
+  /**
+   * Returns the profiles for the given number of class path elements that took the most time to scan, slowest first.
+   */
+  public List<ElementProfile> getSlowest( int count)
+    {
+    return
+      elements_.values().stream()
+      .sorted( Comparator.comparingLong( ElementProfile::getNanos).reversed())
+      .limit( count)
+      .collect( toList());
+    }
+
+  /**
+   * Returns the histogram of the time spent in the given phase.
+   */
+  public Histogram getHistogram( Phase phase)
+    {
+    return histograms_[ phase.ordinal()];
+    }
+
+  /**
+   * Discards all results.
+   */
+  public void clear()
+    {
+    elements_.clear();
+    for( Phase phase : Phase.values())
+      {
+      histograms_[ phase.ordinal()] = new Histogram();
+      }
+    }
+
+  /**
+   * Returns a report that lists the given number of slowest class path elements, followed by the histogram
+   * for each phase.
+   */
+  public String report( int count)
+    {
+    StringBuilder report = new StringBuilder();
+    report.append( String.format( "%12s %8s %8s %12s %12s %8s  %s%n", "micros", "classes", "skipped", "read", "inflated", "found", "element"));
+    for( ElementProfile profile : getSlowest( count))
+      {
+      report.append(
+        String.format(
+          "%12d %8d %8d %12d %12d %8d  %s%n",
+          profile.getNanos() / 1000,
+          profile.getClasses(),
+          profile.getClassesSkipped(),
+          profile.getBytesRead(),
+          profile.getBytesInflated(),
+          profile.getAnnotations(),
+          profile.getElement()));
+      }
+
+    for( Phase phase : Phase.values())
+      {
+      Histogram histogram = getHistogram( phase);
+      report.append( String.format( "%n%s: count=%d", phase, histogram.getCount()));
+      report.append( String.format( ", p50<%dns", histogram.getPercentile( 0.50)));
+      report.append( String.format( ", p90<%dns", histogram.getPercentile( 0.90)));
+      report.append( String.format( ", p99<%dns", histogram.getPercentile( 0.99)));
+      report.append( String.format( ", max<%dns", histogram.getPercentile( 1.00)));
+      report.append( String.format( "%n"));
+      }
+
+    return report.toString();
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( "elements", elements_.size())
+      .toString();
+    }
+
+  /**
+   * Identifies a phase of reading a class: reading the class data, or parsing the class data.
+   */
+  public enum Phase { READ, PARSE}
+
+  /**
+   * The aggregated cost of scanning a class path element.
+   */
+  public static class ElementProfile
+    {
+    private ElementProfile( File element, ElementKind kind)
+      {
+      element_ = element;
+      kind_ = kind;
+      }
+
+    /**
+     * Returns the class path element.
+     */
+    public File getElement()
+      {
+      return element_;
+      }
+
+    /**
+     * Returns the kind of class path element.
+     */
+    public ElementKind getKind()
+      {
+      return kind_;
+      }
+
+    /**
+     * Returns the time spent scanning this element, in nanoseconds.
+     */
+    public long getNanos()
+      {
+      return nanos_.sum();
+      }
+
+    /**
+     * Returns the number of classes read.
+     */
+    public long getClasses()
+      {
+      return classes_.sum();
+      }
+
+    /**
+     * Returns the number of classes skipped after reading.
+     */
+    public long getClassesSkipped()
+      {
+      return classesSkipped_.sum();
+      }
+
+    /**
+     * Returns the number of bytes read.
+     */
+    public long getBytesRead()
+      {
+      return bytesRead_.sum();
+      }
+
+    /**
+     * Returns the number of bytes produced by inflating compressed class data.
+     */
+    public long getBytesInflated()
+      {
+      return bytesInflated_.sum();
+      }
+
+    /**
+     * Returns the number of accepted annotations found.
+     */
+    public long getAnnotations()
+      {
+      return annotations_.sum();
+      }
+
+    public String toString()
+      {
+      return
+        ToString.of( this)
+        .append( element_)
+        .append( "nanos", getNanos())
+        .append( "classes", getClasses())
+        .toString();
+      }
+
+    private final File element_;
+    private final ElementKind kind_;
+    private final LongAdder nanos_ = new LongAdder();
+    private final LongAdder classes_ = new LongAdder();
+    private final LongAdder classesSkipped_ = new LongAdder();
+    private final LongAdder bytesRead_ = new LongAdder();
+    private final LongAdder bytesInflated_ = new LongAdder();
+    private final LongAdder annotations_ = new LongAdder();
+    }
+
+  /**
+   * A histogram of times, in nanoseconds. Each bucket <CODE>i</CODE> counts the times less than <CODE>2^i</CODE>
+   * and not counted by a smaller bucket.
+   */
+  public static class Histogram
+    {
+    private Histogram()
+      {
+      }
+
+    /**
+     * Returns the number of times recorded.
+     */
+    public long getCount()
+      {
+      long count = 0;
+      for( int i = 0; i < buckets_.length(); i++)
+        {
+        count += buckets_.get(i);
+        }
+      return count;
+      }
+
+    /**
+     * Returns the number of times recorded in the given bucket.
+     */
+    public long getBucket( int bucket)
+      {
+      return buckets_.get( bucket);
+      }
+
+    /**
+     * Returns the number of buckets.
+     */
+    public int getBuckets()
+      {
+      return buckets_.length();
+      }
+
+    /**
+     * Returns an upper bound for the given fraction of the times recorded, as the power of 2 that bounds its bucket.
+     * Returns 0 if no times are recorded.
+     */
+    public long getPercentile( double fraction)
+      {
+      long count = getCount();
+      long rank = (long) Math.ceil( fraction * count);
+      long upper = 0;
+      for( int i = 0; i < buckets_.length() && count > 0 && rank > 0; i++)
+        {
+        rank -= buckets_.get(i);
+        upper = i == 63? Long.MAX_VALUE : 1L << i;
+        }
+      return upper;
+      }
+
+    /**
+     * Records the given time.
+     */
+    private void record( long nanos)
+      {
+      buckets_.incrementAndGet( Math.min( 63, 64 - Long.numberOfLeadingZeros( Math.max( 0, nanos))));
+      }
+
+    private final AtomicLongArray buckets_ = new AtomicLongArray( 64);
+    }
+
+  private final Map<File,ElementProfile> elements_ = new ConcurrentHashMap<File,ElementProfile>();
+  private final Histogram[] histograms_ = { new Histogram(), new Histogram()};
+  private final ThreadLocal<ElementProfile> current_ = new ThreadLocal<ElementProfile>();
+  }
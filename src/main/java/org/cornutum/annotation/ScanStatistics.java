@@ -0,0 +1,141 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the classes examined during a search for annotated class elements.
+ */
+public class ScanStatistics
+  {
+  /**
+   * Creates a new ScanStatistics instance.
+   */
+  public ScanStatistics()
+    {
+    }
+
+  /**
+   * Returns the number of class definitions read.
+   */
+  public long getClasses()
+    {
+    return classes_.sum();
+    }
+
+  /**
+   * Returns the number of classes rejected after reading the constant pool, because
+   * the constant pool shows that the class can't contain any accepted annotation.
+   */
+  public long getClassesRejected()
+    {
+    return classesRejected_.sum();
+    }
+
+  /**
+   * Returns the number of class path elements for which cached results were used.
+   */
+  public long getElementsCached()
+    {
+    return elementsCached_.sum();
+    }
+
+  /**
+   * Returns the number of class path elements for which results were selected from an {@link AnnotationIndex}.
+   */
+  public long getElementsIndexed()
+    {
+    return elementsIndexed_.sum();
+    }
+
+  /**
+   * Returns the number of class files skipped because they are shadowed by the same class file in an earlier
+   * class path element.
+   */
+  public long getClassesShadowed()
+    {
+    return classesShadowed_.sum();
+    }
+
+  /**
+   * Returns the number of JAR archives opened. An archive may be opened more than once if it was closed while idle.
+   */
+  public long getArchivesOpened()
+    {
+    return archivesOpened_.sum();
+    }
+
+  /**
+   * Records that a class definition was read.
+   */
+  void classRead()
+    {
+    classes_.increment();
+    }
+
+  /**
+   * Records that a class was rejected after reading the constant pool.
+   */
+  void classRejected()
+    {
+    classesRejected_.increment();
+    }
+
+  /**
+   * Records that cached results were used for a class path element.
+   */
+  void elementCached()
+    {
+    elementsCached_.increment();
+    }
+
+  /**
+   * Records that results for a class path element were selected from an index.
+   */
+  void elementIndexed()
+    {
+    elementsIndexed_.increment();
+    }
+
+  /**
+   * Records that a shadowed class file was skipped.
+   */
+  void classShadowed()
+    {
+    classesShadowed_.increment();
+    }
+
+  /**
+   * Records that a JAR archive was opened.
+   */
+  void archiveOpened()
+    {
+    archivesOpened_.increment();
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( "classes", getClasses())
+      .append( "rejected", getClassesRejected())
+      .append( "cached", getElementsCached())
+      .append( "indexed", getElementsIndexed())
+      .append( "shadowed", getClassesShadowed())
+      .append( "archives", getArchivesOpened())
+      .toString();
+    }
+
+  private final LongAdder classes_ = new LongAdder();
+  private final LongAdder classesRejected_ = new LongAdder();
+  private final LongAdder elementsCached_ = new LongAdder();
+  private final LongAdder elementsIndexed_ = new LongAdder();
+  private final LongAdder classesShadowed_ = new LongAdder();
+  private final LongAdder archivesOpened_ = new LongAdder();
+  }
@@ -0,0 +1,106 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lists the class files skipped by a {@link Finder#shadowing shadowing} search because the same class file appears
+ * in an earlier class path element.
+ */
+public class ShadowReport
+  {
+  /**
+   * Creates a new ShadowReport instance.
+   */
+  public ShadowReport()
+    {
+    }
+
+  /**
+   * Returns the shadowed class files found so far, in class path order.
+   */
+  public synchronized List<Shadowed> getShadowed()
+    {
+    return new ArrayList<Shadowed>( shadowed_);
+    }
+
+  /**
+   * Records a shadowed class file.
+   */
+  synchronized void add( Shadowed shadowed)
+    {
+    shadowed_.add( shadowed);
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( "shadowed", getShadowed().size())
+      .toString();
+    }
+
+  /**
+   * Describes a shadowed class file.
+   */
+  public static class Shadowed
+    {
+    /**
+     * Creates a new Shadowed instance.
+     */
+    public Shadowed( String classFilePath, File element, File shadowedBy)
+      {
+      classFilePath_ = classFilePath;
+      element_ = element;
+      shadowedBy_ = shadowedBy;
+      }
+
+    /**
+     * Returns the path of the class file, relative to its class path root.
+     */
+    public String getClassFilePath()
+      {
+      return classFilePath_;
+      }
+
+    /**
+     * Returns the class path element containing the shadowed class file.
+     */
+    public File getElement()
+      {
+      return element_;
+      }
+
+    /**
+     * Returns the earlier class path element containing the same class file.
+     */
+    public File getShadowedBy()
+      {
+      return shadowedBy_;
+      }
+
+    public String toString()
+      {
+      return
+        ToString.of( this)
+        .append( getClassFilePath())
+        .append( "element", getElement().getName())
+        .append( "shadowedBy", getShadowedBy().getName())
+        .toString();
+      }
+
+    private final String classFilePath_;
+    private final File element_;
+    private final File shadowedBy_;
+    }
+
+  private final List<Shadowed> shadowed_ = new ArrayList<Shadowed>();
+  }
@@ -0,0 +1,691 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import static java.nio.file.StandardWatchEventKinds.*;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Maintains the class elements associated with specified annotations as the contents of class path elements change.
+ * <P/>
+ * When {@link #start started}, a WatchingFinder scans all class path elements and registers every directory
+ * with a {@link WatchService}. Each {@link #update} then parses only the class files that have been created or modified
+ * since the last update, drops the results for class files that have been deleted, and reports the resulting
+ * {@link Delta} to all {@link Listener listeners}. JAR files and individual class files are not watched. Instead,
+ * {@link #checkFiles} compares the current fingerprint of each such element with the fingerprint last scanned,
+ * and scans again only the elements that have changed. A class path directory that doesn't exist yet is watched
+ * when {@link #checkFiles} first finds it.
+ */
+public class WatchingFinder implements Closeable
+  {
+  /**
+   * Creates a new WatchingFinder instance using a {@link AllAnnotated default filter}.
+   */
+  public WatchingFinder()
+    {
+    this( null);
+    }
+
+  /**
+   * Creates a new WatchingFinder instance using the specified {@link #filter filter}.
+   */
+  public WatchingFinder( AnnotationFilter filter)
+    {
+    filter( filter);
+    }
+
+  /**
+   * Find annotated class references accepted by the given {@link AnnotationFilter filter}.
+   * If <CODE>filter</CODE> is null, a {@link AllAnnotated default filter} is used.
+   */
+  public WatchingFinder filter( AnnotationFilter filter)
+    {
+    filter_ = Optional.ofNullable( filter).orElse( AllAnnotated.INSTANCE);
+    return this;
+    }
+
+  /**
+   * Find annotated class elements among one of the given class path elements.
+   * Each file must be a *.class file, a directory, or a JAR file.
+   */
+  public WatchingFinder inClasses( File... classPath)
+    {
+    return inClasses( Arrays.asList( classPath));
+    }
+
+  /**
+   * Find annotated class elements among one of the given class path elements.
+   * Each file must be a *.class file, a directory, or a JAR file.
+   */
+  public WatchingFinder inClasses( Collection<File> classPath)
+    {
+    classPath_.addAll( classPath);
+    return this;
+    }
+
+  /**
+   * Reports each change to the annotated elements found to the given listener.
+   */
+  public WatchingFinder listener( Listener listener)
+    {
+    listeners_.add( listener);
+    return this;
+    }
+
+  /**
+   * Scans all class path elements and starts watching for changes to all class path directories.
+   */
+  public synchronized WatchingFinder start()
+    {
+    if( watcher_ == null)
+      {
+      try
+        {
+        watcher_ = FileSystems.getDefault().newWatchService();
+        }
+      catch( IOException e)
+        {
+        throw new IllegalStateException( "Can't create watch service", e);
+        }
+
+      scan_ = new ScanContext( filter_);
+      for( File file : classPath_)
+        {
+        Element element = isDirectory( file)? new DirectoryElement( file) : new FileElement( file);
+        element.scan( new Delta());
+        elements_.add( element);
+        }
+      }
+
+    return this;
+    }
+
+  /**
+   * Returns the annotated elements currently found among the class path elements.
+   */
+  public synchronized Stream<Annotated> find()
+    {
+    return
+      elements_.stream()
+      .flatMap( Element::getAnnotated)
+      .collect( toList())
+      .stream();
+    }
+
+  /**
+   * Updates the annotated elements found for all changes to class path directories reported so far, without waiting.
+   * Returns the resulting changes.
+   */
+  public Delta update()
+    {
+    Delta delta = new Delta();
+    synchronized( this)
+      {
+      for( WatchKey key; (key = getWatcher().poll()) != null; update( key, delta));
+      }
+
+    return notify( delta);
+    }
+
+  /**
+   * Waits up to the given time for any change to class path directories and updates the annotated elements found for all
+   * changes reported. Returns the resulting changes.
+   */
+  public Delta update( long timeout, TimeUnit unit) throws InterruptedException
+    {
+    Delta delta = new Delta();
+    WatchKey first = getWatcher().poll( timeout, unit);
+    synchronized( this)
+      {
+      for( WatchKey key = first; key != null; key = getWatcher().poll())
+        {
+        update( key, delta);
+        }
+      }
+
+    return notify( delta);
+    }
+
+  /**
+   * Scans again any JAR file or class file element that has changed since it was last scanned, and any class path
+   * directory that is not yet watched but now exists. Returns the resulting changes.
+   */
+  public Delta checkFiles()
+    {
+    Delta delta = new Delta();
+    synchronized( this)
+      {
+      for( Element element : elements_)
+        {
+        element.check( delta);
+        }
+      }
+
+    return notify( delta);
+    }
+
+  /**
+   * Stops watching for changes.
+   */
+  public synchronized void close() throws IOException
+    {
+    if( watcher_ != null)
+      {
+      watcher_.close();
+      scan_.close();
+      }
+    }
+
+  /**
+   * Updates the annotated elements found for the events reported by the given key.
+   */
+  private void update( WatchKey key, Delta delta)
+    {
+    Watched watched = watched_.get( key);
+    for( WatchEvent<?> event : key.pollEvents())
+      {
+      if( watched == null)
+        {
+        // Directory no longer watched.
+        }
+      else if( event.kind() == OVERFLOW)
+        {
+        watched.getElement().scan( delta);
+        }
+      else
+        {
+        Path path = watched.getDir().resolve( (Path) event.context());
+        String memberPath = ClassFileWalk.memberPath( watched.getPackagePath(), path.getFileName().toString());
+        if( event.kind() == ENTRY_DELETE)
+          {
+          watched.getElement().deleted( path, delta);
+          }
+        else
+          {
+          watched.getElement().changed( path, memberPath, event.kind() == ENTRY_CREATE, delta);
+          }
+        }
+      }
+
+    if( !key.reset())
+      {
+      // Directory no longer accessible, so drop its results.
+      watched_.remove( key);
+      if( watched != null)
+        {
+        watched.getElement().deleted( watched.getDir(), delta);
+        }
+      }
+    }
+
+  /**
+   * Returns true if the given class path element is a directory. A class path element that doesn't exist yet is
+   * expected to be a directory unless named like a JAR file or a class file.
+   */
+  private static boolean isDirectory( File file)
+    {
+    String name = file.getName();
+    return
+      file.isDirectory()
+      || !(file.exists() || name.endsWith( ".jar") || name.endsWith( ".class"));
+    }
+
+  /**
+   * Reports the given changes to all listeners.
+   */
+  private Delta notify( Delta delta)
+    {
+    if( !delta.isEmpty())
+      {
+      for( Listener listener : listeners_)
+        {
+        listener.annotatedChanged( delta);
+        }
+      }
+    return delta;
+    }
+
+  /**
+   * Returns the watch service used by this finder.
+   */
+  private WatchService getWatcher()
+    {
+    if( watcher_ == null)
+      {
+      throw new IllegalStateException( "Not started");
+      }
+    return watcher_;
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( "filter", filter_)
+      .append( "classes", classPath_.stream().map( File::getName).collect( toList()))
+      .toString();
+    }
+
+  /**
+   * Receives the changes to the annotated elements found by a WatchingFinder.
+   */
+  public interface Listener
+    {
+    /**
+     * Reports the given changes.
+     */
+    void annotatedChanged( Delta delta);
+    }
+
+  /**
+   * Describes the annotated elements added and removed by an update.
+   */
+  public static class Delta
+    {
+    /**
+     * Returns the annotated elements added.
+     */
+    public List<Annotated> getAdded()
+      {
+      return unmodifiableList( added_);
+      }
+
+    /**
+     * Returns the annotated elements removed.
+     */
+    public List<Annotated> getRemoved()
+      {
+      return unmodifiableList( removed_);
+      }
+
+    /**
+     * Returns true if no annotated elements were added or removed.
+     */
+    public boolean isEmpty()
+      {
+      return added_.isEmpty() && removed_.isEmpty();
+      }
+
+    /**
+     * Records that the given results replace the previous results.
+     */
+    private void replace( List<Annotated> previous, List<Annotated> current)
+      {
+      if( !previous.equals( current))
+        {
+        removed_.addAll( previous);
+        added_.addAll( current);
+        }
+      }
+
+    public String toString()
+      {
+      return
+        ToString.of( this)
+        .append( "added", added_.size())
+        .append( "removed", removed_.size())
+        .toString();
+      }
+
+    private final List<Annotated> added_ = new ArrayList<Annotated>();
+    private final List<Annotated> removed_ = new ArrayList<Annotated>();
+    }
+
+  /**
+   * Maintains the annotated elements found in a class path element.
+   */
+  private abstract class Element
+    {
+    /**
+     * Returns the annotated elements currently found in this class path element.
+     */
+    public abstract Stream<Annotated> getAnnotated();
+
+    /**
+     * Scans this entire class path element.
+     */
+    public abstract void scan( Delta delta);
+
+    /**
+     * Updates the results for the given file, which has been created or modified.
+     */
+    public void changed( Path path, String memberPath, boolean created, Delta delta)
+      {
+      }
+
+    /**
+     * Drops the results for the given file, which has been deleted.
+     */
+    public void deleted( Path path, Delta delta)
+      {
+      }
+
+    /**
+     * Scans this class path element again if it has changed since last scanned.
+     */
+    public void check( Delta delta)
+      {
+      }
+    }
+
+  /**
+   * Maintains the annotated elements found in a class path directory, using the results for each class file.
+   */
+  private class DirectoryElement extends Element
+    {
+    public DirectoryElement( File dir)
+      {
+      dir_ = dir;
+      }
+
+    public Stream<Annotated> getAnnotated()
+      {
+      return results_.values().stream().flatMap( List::stream);
+      }
+
+    public void scan( Delta delta)
+      {
+      Set<Path> found = new HashSet<Path>();
+      watch( dir_.toPath(), "", found, delta);
+
+      for( Iterator<Map.Entry<Path,List<Annotated>>> results = results_.entrySet().iterator(); results.hasNext(); )
+        {
+        Map.Entry<Path,List<Annotated>> classResults = results.next();
+        if( !found.contains( classResults.getKey()))
+          {
+          delta.replace( classResults.getValue(), emptyList());
+          results.remove();
+          }
+        }
+      }
+
+    public void changed( Path path, String memberPath, boolean created, Delta delta)
+      {
+      BasicFileAttributes attributes;
+      try
+        {
+        attributes = java.nio.file.Files.readAttributes( path, BasicFileAttributes.class);
+        }
+      catch( IOException e)
+        {
+        // Already deleted, so wait for the delete event.
+        attributes = null;
+        }
+
+      if( attributes == null)
+        {
+        // Nothing to update
+        }
+      else if( attributes.isDirectory())
+        {
+        if( created)
+          {
+          // Class files may be created in a new directory before it is watched.
+          watch( path, memberPath, new HashSet<Path>(), delta);
+          }
+        }
+      else if( path.getFileName().toString().endsWith( ".class") && filter_.acceptClassFile( memberPath))
+        {
+        put( path, delta);
+        }
+      }
+
+    public void deleted( Path path, Delta delta)
+      {
+      List<Annotated> classResults = results_.remove( path);
+      if( classResults != null)
+        {
+        delta.replace( classResults, emptyList());
+        }
+      else if( dirs_.remove( path))
+        {
+        // A watched directory, so drop the results for all class files it contained.
+        dirs_.removeIf( dir -> dir.startsWith( path));
+        for( Iterator<Map.Entry<Path,List<Annotated>>> results = results_.entrySet().iterator(); results.hasNext(); )
+          {
+          Map.Entry<Path,List<Annotated>> dirResults = results.next();
+          if( dirResults.getKey().startsWith( path))
+            {
+            delta.replace( dirResults.getValue(), emptyList());
+            results.remove();
+            }
+          }
+        }
+      }
+
+    /**
+     * Scans this directory if it is not yet watched but now exists.
+     */
+    public void check( Delta delta)
+      {
+      if( !dirs_.contains( dir_.toPath()) && dir_.isDirectory())
+        {
+        scan( delta);
+        }
+      }
+
+    /**
+     * Watches the given directory, which contains the package with the given path, and updates the results for all
+     * accepted class files in this directory and its descendants.
+     */
+    private void watch( Path dir, String packagePath, Set<Path> found, Delta delta)
+      {
+      if( filter_.acceptPackagePath( packagePath) && register( dir, packagePath))
+        {
+        for( ClassFileWalk.Member member : ClassFileWalk.members( dir))
+          {
+          String memberPath = ClassFileWalk.memberPath( packagePath, member.getPath().getFileName().toString());
+          if( member.isDirectory())
+            {
+            watch( member.getPath(), memberPath, found, delta);
+            }
+          else if( filter_.acceptClassFile( memberPath))
+            {
+            put( member.getPath(), delta);
+            found.add( member.getPath());
+            }
+          }
+        }
+      }
+
+    /**
+     * Starts watching the given directory, which contains the package with the given path.
+     * Returns false if the directory can't be watched.
+     */
+    private boolean register( Path dir, String packagePath)
+      {
+      boolean registered;
+      try
+        {
+        watched_.put( dir.register( watcher_, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), new Watched( this, dir, packagePath));
+        dirs_.add( dir);
+        registered = true;
+        }
+      catch( IOException e)
+        {
+        // Already deleted?
+        registered = false;
+        }
+
+      return registered;
+      }
+
+    /**
+     * Updates the results for the given class file.
+     */
+    private void put( Path classFile, Delta delta)
+      {
+      List<Annotated> annotated;
+      try
+        {
+        annotated = Iterators.toList( new ClassFileData( classFile.toFile()).getAnnotated( scan_));
+        }
+      catch( Exception e)
+        {
+        // Incomplete? Parse again when next modified.
+        annotated = emptyList();
+        }
+
+      delta.replace( Optional.ofNullable( results_.put( classFile, annotated)).orElse( emptyList()), annotated);
+      }
+
+    private final File dir_;
+    private final Map<Path,List<Annotated>> results_ = new LinkedHashMap<Path,List<Annotated>>();
+    private final Set<Path> dirs_ = new HashSet<Path>();
+    }
+
+  /**
+   * Maintains the annotated elements found in a JAR file or a class file.
+   */
+  private class FileElement extends Element
+    {
+    public FileElement( File file)
+      {
+      file_ = file;
+      }
+
+    public Stream<Annotated> getAnnotated()
+      {
+      return annotated_.stream();
+      }
+
+    public void scan( Delta delta)
+      {
+      fingerprint_ = getFingerprint();
+
+      // Use a new context for each scan, so that no archive opened by a failed scan is reused.
+      List<Annotated> annotated;
+      ScanContext scan = new ScanContext( filter_);
+      try
+        {
+        annotated =
+          StreamSupport.stream( new ClassPathSpliterator( singletonList( file_), scan, true), false)
+          .collect( toList());
+        }
+      catch( Exception e)
+        {
+        // Unreadable? Scan again when next changed.
+        annotated = emptyList();
+        }
+      finally
+        {
+        scan.close();
+        }
+
+      delta.replace( annotated_, annotated);
+      annotated_ = annotated;
+      }
+
+    /**
+     * Scans this file again if it has changed since last scanned.
+     */
+    public void check( Delta delta)
+      {
+      if( !getFingerprint().equals( fingerprint_))
+        {
+        scan( delta);
+        }
+      }
+
+    /**
+     * Returns the fingerprint for the current contents of this file.
+     */
+    private String getFingerprint()
+      {
+      try
+        {
+        if( !file_.getName().endsWith( ".jar"))
+          {
+          return ScanCache.directoryFingerprint( file_.getParentFile(), singletonList( file_));
+          }
+
+        try( ZipArchive archive = JarAnnotated.archive( file_))
+          {
+          return ScanCache.jarFingerprint( file_, JarAnnotated.entryReaders( archive, scan_.getRelease()));
+          }
+        }
+      catch( Exception e)
+        {
+        // Missing or unreadable.
+        return "";
+        }
+      }
+
+    private final File file_;
+    private String fingerprint_;
+    private List<Annotated> annotated_ = emptyList();
+    }
+
+  /**
+   * Identifies a watched directory.
+   */
+  private static class Watched
+    {
+    public Watched( Element element, Path dir, String packagePath)
+      {
+      element_ = element;
+      dir_ = dir;
+      packagePath_ = packagePath;
+      }
+
+    public Element getElement()
+      {
+      return element_;
+      }
+
+    public Path getDir()
+      {
+      return dir_;
+      }
+
+    public String getPackagePath()
+      {
+      return packagePath_;
+      }
+
+    private final Element element_;
+    private final Path dir_;
+    private final String packagePath_;
+    }
+
+  private AnnotationFilter filter_;
+  private Set<File> classPath_ = new LinkedHashSet<File>();
+  private List<Listener> listeners_ = new CopyOnWriteArrayList<Listener>();
+  private WatchService watcher_;
+  private ScanContext scan_;
+  private final List<Element> elements_ = new ArrayList<Element>();
+  private final Map<WatchKey,Watched> watched_ = new HashMap<WatchKey,Watched>();
+  }
@@ -0,0 +1,616 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.IntFunction;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads the entries of a ZIP archive, such as a JAR file, directly from the archive's central directory.
+ * <P/>
+ * The archive file is {@link Buffers#read(File) memory-mapped} (unless it is small enough to read more cheaply
+ * into a heap buffer). The data for a STORED entry is returned as a slice of this buffer, without copying. The data
+ * for a DEFLATED entry is inflated into a buffer sized from the uncompressed size recorded in the central directory.
+ * Unlike {@link java.util.jar.JarFile}, a ZipArchive does not verify signatures or read the manifest.
+ * <P/>
+ * A ZipArchive is immutable after it is created, so its entries can be read concurrently by different threads.
+ * When {@link #close closed}, a ZipArchive releases its reference to the archive buffer, so that the buffer, including
+ * any memory mapping, can be reclaimed even if the ZipArchive remains reachable. Entries can't be read after the
+ * ZipArchive is closed.
+ * <P/>
+ * An entry of a ZipArchive may itself be a {@link #getNested nested archive}, which is read in place from the data for
+ * that entry: a slice of the archive buffer for a STORED entry, or a heap buffer holding the inflated data for a
+ * DEFLATED entry. The {@link #getFile file} for a nested archive is given by the path of the entry, relative to the
+ * file for the enclosing archive. Closing a ZipArchive also closes its nested archives. Nested archives held in heap
+ * buffers can also be {@link #closeInflated closed} separately, so that they are not all kept in memory at once.
+ */
+public class ZipArchive implements Closeable
+  {
+  /**
+   * Creates a new ZipArchive instance.
+   */
+  public ZipArchive( File file) throws IOException
+    {
+    file_ = file;
+    buffer_ = Buffers.read( file).duplicate().order( ByteOrder.LITTLE_ENDIAN);
+    entries_ = Collections.unmodifiableList( readCentralDirectory());
+    entriesByName_ = byName( entries_);
+    path_ = null;
+    inflated_ = false;
+    }
+
+  /**
+   * Creates a new ZipArchive instance for the nested archive given by the specified entry and data.
+   */
+  private ZipArchive( ZipArchive parent, Entry entry, ByteBuffer data) throws IOException
+    {
+    file_ = new File( parent.getFile(), entry.getName());
+    buffer_ = data.duplicate().order( ByteOrder.LITTLE_ENDIAN);
+    entries_ = Collections.unmodifiableList( readCentralDirectory());
+    entriesByName_ = byName( entries_);
+    path_ = entry.getName();
+    inflated_ = entry.getMethod() == DEFLATED;
+    }
+
+  /**
+   * Returns the archive file.
+   */
+  public File getFile()
+    {
+    return file_;
+    }
+
+  /**
+   * If this is a nested archive, returns the name of its entry in the enclosing archive. Otherwise, returns null.
+   */
+  public String getPath()
+    {
+    return path_;
+    }
+
+  /**
+   * Returns the entries of this archive, in central directory order.
+   */
+  public List<Entry> getEntries()
+    {
+    return entries_;
+    }
+
+  /**
+   * Returns the entry with the given name.
+   */
+  public Optional<Entry> getEntry( String name)
+    {
+    return Optional.ofNullable( entriesByName_.get( name));
+    }
+
+  /**
+   * Returns a buffer containing the uncompressed data for the given entry. The data for a STORED entry is a slice of
+   * the archive buffer. The data for a DEFLATED entry is inflated using the given {@link Inflater} into a heap buffer
+   * obtained from the given allocator, which must return a buffer with position 0 and at least the requested capacity,
+   * backed by an accessible array at offset 0. Throws an {@link IllegalStateException} if this archive is closed.
+   */
+  public ByteBuffer getData( Entry entry, Inflater inflater, IntFunction<ByteBuffer> allocator) throws IOException
+    {
+    // Read the archive buffer only once, in case this archive is closed concurrently.
+    ByteBuffer buffer = buffer_;
+    if( buffer == null)
+      {
+      throw new IllegalStateException( String.format( "%s: archive is closed", entry));
+      }
+
+    int start = getDataOffset( buffer, entry);
+    int size = toInt( entry.getSize(), "size", entry);
+    int compressedSize = toInt( entry.getCompressedSize(), "compressed size", entry);
+
+    ByteBuffer data;
+    if( entry.getMethod() == STORED)
+      {
+      data = slice( buffer, start, size);
+      }
+    else if( entry.getMethod() == DEFLATED)
+      {
+      data = inflate( buffer, entry, start, compressedSize, size, inflater, allocator);
+      }
+    else
+      {
+      throw new ZipException( String.format( "%s: unsupported compression method=%s", entry, entry.getMethod()));
+      }
+
+    return data;
+    }
+
+  /**
+   * Returns an input stream for the uncompressed data for the given entry.
+   */
+  public InputStream getInputStream( Entry entry) throws IOException
+    {
+    ByteBuffer data;
+    Inflater inflater = new Inflater( true);
+    try
+      {
+      data = getData( entry, inflater, ByteBuffer::allocate);
+      }
+    finally
+      {
+      inflater.end();
+      }
+
+    int length = data.remaining();
+    byte[] bytes;
+    int offset;
+    if( data.hasArray())
+      {
+      bytes = data.array();
+      offset = data.arrayOffset() + data.position();
+      }
+    else
+      {
+      bytes = new byte[ length];
+      offset = 0;
+      data.get( bytes);
+      }
+
+    return new ByteArrayInputStream( bytes, offset, length);
+    }
+
+  /**
+   * Returns the nested archive contained in the given entry. Each nested archive is read only once, when first
+   * requested.
+   */
+  public ZipArchive getNested( Entry entry) throws IOException
+    {
+    ZipArchive nested;
+    synchronized( nested_)
+      {
+      nested = nested_.get( entry.getName());
+      if( nested == null)
+        {
+        Inflater inflater = new Inflater( true);
+        try
+          {
+          nested = new ZipArchive( this, entry, getData( entry, inflater, ByteBuffer::allocate));
+          }
+        finally
+          {
+          inflater.end();
+          }
+        nested_.put( entry.getName(), nested);
+        }
+      }
+
+    return nested;
+    }
+
+  /**
+   * Returns the nested archive contained in the entry with the given name.
+   */
+  public ZipArchive getNested( String name) throws IOException
+    {
+    return
+      getNested(
+        getEntry( name)
+        .orElseThrow( () -> new ZipException( String.format( "%s: no nested archive=%s", file_, name))));
+    }
+
+  /**
+   * Returns true if this archive has been closed.
+   */
+  public boolean isClosed()
+    {
+    return buffer_ == null;
+    }
+
+  /**
+   * Closes the nested archives held in heap buffers, which are read again if requested later.
+   */
+  public void closeInflated()
+    {
+    synchronized( nested_)
+      {
+      for( Iterator<ZipArchive> nested = nested_.values().iterator(); nested.hasNext(); )
+        {
+        ZipArchive archive = nested.next();
+        if( archive.inflated_)
+          {
+          archive.close();
+          nested.remove();
+          }
+        else
+          {
+          archive.closeInflated();
+          }
+        }
+      }
+    }
+
+  /**
+   * Releases the archive buffer.
+   */
+  public void close()
+    {
+    buffer_ = null;
+    synchronized( nested_)
+      {
+      nested_.values().forEach( ZipArchive::close);
+      nested_.clear();
+      }
+    }
+
+  /**
+   * Inflates the data for a DEFLATED entry in the given archive buffer.
+   */
+  private ByteBuffer inflate( ByteBuffer buffer, Entry entry, int start, int compressedSize, int size, Inflater inflater, IntFunction<ByteBuffer> allocator) throws IOException
+    {
+    // The same array holds the inflated data, followed by the compressed input when it must be copied from the archive.
+    boolean copyInput = !buffer.hasArray();
+    byte[] bytes = allocator.apply( copyInput? size + compressedSize : size).array();
+
+    byte[] input;
+    int inputOffset;
+    if( copyInput)
+      {
+      ByteBuffer compressed = buffer.duplicate();
+      ((Buffer) compressed).position( start);
+      compressed.get( bytes, size, compressedSize);
+      input = bytes;
+      inputOffset = size;
+      }
+    else
+      {
+      input = buffer.array();
+      inputOffset = buffer.arrayOffset() + start;
+      }
+
+    try
+      {
+      inflater.reset();
+      inflater.setInput( input, inputOffset, compressedSize);
+
+      int length = 0;
+      for( int n; length < size && !inflater.finished(); length += n)
+        {
+        if( (n = inflater.inflate( bytes, length, size - length)) == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+          {
+          break;
+          }
+        }
+
+      if( length < size)
+        {
+        throw new ZipException( String.format( "%s: expected %s bytes, found %s", entry, size, length));
+        }
+      }
+    catch( DataFormatException e)
+      {
+      throw new ZipException( String.format( "%s: invalid compressed data: %s", entry, e.getMessage()));
+      }
+
+    return ByteBuffer.wrap( bytes, 0, size);
+    }
+
+  /**
+   * Returns the offset of the data for the given entry in the given archive buffer.
+   */
+  private int getDataOffset( ByteBuffer buffer, Entry entry) throws IOException
+    {
+    int header = toInt( entry.getOffset(), "offset", entry);
+    if( header + LOCAL_HEADER_SIZE > buffer.limit() || buffer.getInt( header) != LOCAL_HEADER_SIGNATURE)
+      {
+      throw new ZipException( String.format( "%s: invalid local header at offset=%s", entry, header));
+      }
+
+    return
+      header
+      + LOCAL_HEADER_SIZE
+      + (buffer.getShort( header + 26) & 0xffff)
+      + (buffer.getShort( header + 28) & 0xffff);
+    }
+
+  /**
+   * Returns the given entries by name. If more than one entry has the same name, the first is used.
+   */
+  private static Map<String,Entry> byName( List<Entry> entries)
+    {
+    Map<String,Entry> byName = new HashMap<String,Entry>( entries.size() * 2);
+    for( Entry entry : entries)
+      {
+      byName.putIfAbsent( entry.getName(), entry);
+      }
+    return byName;
+    }
+
+  /**
+   * Returns the entries listed in the central directory.
+   */
+  private List<Entry> readCentralDirectory() throws IOException
+    {
+    int end = findEndOfCentralDirectory();
+    long count = getUnsignedShort( end + 10);
+    long offset = getUnsignedInt( end + 16);
+
+    // Is this a ZIP64 archive?
+    int locator = end - ZIP64_LOCATOR_SIZE;
+    if( (count == 0xffff || offset == 0xffffffffL) && locator >= 0 && buffer_.getInt( locator) == ZIP64_LOCATOR_SIGNATURE)
+      {
+      // Yes, read the ZIP64 end of central directory record.
+      int end64 = toInt( buffer_.getLong( locator + 8), "ZIP64 end of central directory");
+      if( buffer_.getInt( end64) != ZIP64_END_SIGNATURE)
+        {
+        throw new ZipException( String.format( "%s: invalid ZIP64 end of central directory", this));
+        }
+      count = buffer_.getLong( end64 + 32);
+      offset = buffer_.getLong( end64 + 48);
+      }
+
+    List<Entry> entries = new ArrayList<Entry>( (int) Math.min( count, 0xffff));
+    byte[] nameBytes = new byte[ 256];
+    for( int header = toInt( offset, "central directory offset"); entries.size() < count; )
+      {
+      if( header + CENTRAL_HEADER_SIZE > buffer_.limit() || buffer_.getInt( header) != CENTRAL_HEADER_SIGNATURE)
+        {
+        throw new ZipException( String.format( "%s: invalid central directory header at offset=%s", this, header));
+        }
+
+      int method = getUnsignedShort( header + 10);
+      long crc = getUnsignedInt( header + 16);
+      long compressedSize = getUnsignedInt( header + 20);
+      long size = getUnsignedInt( header + 24);
+      int nameLength = getUnsignedShort( header + 28);
+      int extraLength = getUnsignedShort( header + 30);
+      int commentLength = getUnsignedShort( header + 32);
+      long localOffset = getUnsignedInt( header + 42);
+
+      int name = header + CENTRAL_HEADER_SIZE;
+      if( nameBytes.length < nameLength)
+        {
+        nameBytes = new byte[ nameLength];
+        }
+      for( int i = 0; i < nameLength; i++)
+        {
+        nameBytes[i] = buffer_.get( name + i);
+        }
+
+      // Replace any ZIP64 values from the extra field.
+      for( int extra = name + nameLength, extraEnd = extra + extraLength; extra + 4 <= extraEnd; )
+        {
+        int id = getUnsignedShort( extra);
+        int dataSize = getUnsignedShort( extra + 2);
+        if( id == ZIP64_EXTRA_ID)
+          {
+          int value = extra + 4;
+          if( size == 0xffffffffL)
+            {
+            size = buffer_.getLong( value);
+            value += 8;
+            }
+          if( compressedSize == 0xffffffffL)
+            {
+            compressedSize = buffer_.getLong( value);
+            value += 8;
+            }
+          if( localOffset == 0xffffffffL)
+            {
+            localOffset = buffer_.getLong( value);
+            }
+          }
+        extra += 4 + dataSize;
+        }
+
+      entries.add( new Entry( new String( nameBytes, 0, nameLength, UTF_8), method, crc, compressedSize, size, localOffset));
+      header = name + nameLength + extraLength + commentLength;
+      }
+
+    return entries;
+    }
+
+  /**
+   * Returns the offset of the end of central directory record.
+   */
+  private int findEndOfCentralDirectory() throws IOException
+    {
+    int end;
+    int min = Math.max( 0, buffer_.limit() - END_SIZE - 0xffff);
+    for( end = buffer_.limit() - END_SIZE; end >= min && buffer_.getInt( end) != END_SIGNATURE; end--);
+
+    if( end < min)
+      {
+      throw new ZipException( String.format( "%s: can't find end of central directory", this));
+      }
+
+    return end;
+    }
+
+  /**
+   * Returns a big-endian slice of the given archive buffer.
+   */
+  private ByteBuffer slice( ByteBuffer buffer, int start, int size)
+    {
+    ByteBuffer slice = buffer.duplicate();
+    ((Buffer) slice).position( start);
+    ((Buffer) slice).limit( start + size);
+    return slice.slice().order( ByteOrder.BIG_ENDIAN);
+    }
+
+  /**
+   * Returns the unsigned 16-bit value at the given offset.
+   */
+  private int getUnsignedShort( int offset)
+    {
+    return buffer_.getShort( offset) & 0xffff;
+    }
+
+  /**
+   * Returns the unsigned 32-bit value at the given offset.
+   */
+  private long getUnsignedInt( int offset)
+    {
+    return buffer_.getInt( offset) & 0xffffffffL;
+    }
+
+  /**
+   * Returns the given archive value as an int.
+   */
+  private int toInt( long value, String name) throws ZipException
+    {
+    if( value < 0 || value > Integer.MAX_VALUE)
+      {
+      throw new ZipException( String.format( "%s: %s=%s exceeds the maximum buffer size", this, name, value));
+      }
+    return (int) value;
+    }
+
+  /**
+   * Returns the given entry value as an int.
+   */
+  private int toInt( long value, String name, Entry entry) throws ZipException
+    {
+    if( value < 0 || value > Integer.MAX_VALUE)
+      {
+      throw new ZipException( String.format( "%s: %s=%s exceeds the maximum buffer size", entry, name, value));
+      }
+    return (int) value;
+    }
+
+  public String toString()
+    {
+    return
+      ToString.of( this)
+      .append( getFile().getName())
+      .toString();
+    }
+
+  /**
+   * Describes an entry in a {@link ZipArchive}.
+   */
+  public static class Entry
+    {
+    /**
+     * Creates a new Entry instance.
+     */
+    public Entry( String name, int method, long crc, long compressedSize, long size, long offset)
+      {
+      name_ = name;
+      method_ = method;
+      crc_ = crc;
+      compressedSize_ = compressedSize;
+      size_ = size;
+      offset_ = offset;
+      }
+
+    /**
+     * Returns the entry name.
+     */
+    public String getName()
+      {
+      return name_;
+      }
+
+    /**
+     * Returns the compression method for this entry.
+     */
+    public int getMethod()
+      {
+      return method_;
+      }
+
+    /**
+     * Returns the CRC-32 checksum of the uncompressed data.
+     */
+    public long getCrc()
+      {
+      return crc_;
+      }
+
+    /**
+     * Returns the size of the compressed data.
+     */
+    public long getCompressedSize()
+      {
+      return compressedSize_;
+      }
+
+    /**
+     * Returns the size of the uncompressed data.
+     */
+    public long getSize()
+      {
+      return size_;
+      }
+
+    /**
+     * Returns the archive offset of the local header for this entry.
+     */
+    public long getOffset()
+      {
+      return offset_;
+      }
+
+    public String toString()
+      {
+      return
+        ToString.of( this)
+        .append( getName())
+        .toString();
+      }
+
+    private final String name_;
+    private final int method_;
+    private final long crc_;
+    private final long compressedSize_;
+    private final long size_;
+    private final long offset_;
+    }
+
+  private final File file_;
+  private volatile ByteBuffer buffer_;
+  private final List<Entry> entries_;
+  private final Map<String,Entry> entriesByName_;
+  private final String path_;
+  private final boolean inflated_;
+  private final Map<String,ZipArchive> nested_ = new HashMap<String,ZipArchive>();
+
+  /**
+   * The compression method for uncompressed entries.
+   */
+  public static final int STORED = 0;
+
+  /**
+   * The compression method for DEFLATE entries.
+   */
+  public static final int DEFLATED = 8;
+
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int LOCAL_HEADER_SIZE = 30;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int CENTRAL_HEADER_SIZE = 46;
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int END_SIZE = 22;
+  private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int ZIP64_LOCATOR_SIZE = 20;
+  private static final int ZIP64_EXTRA_ID = 0x0001;
+  }
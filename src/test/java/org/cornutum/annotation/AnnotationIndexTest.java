@@ -0,0 +1,204 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import static org.cornutum.annotation.TestFiles.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Runs tests for {@link AnnotationIndex}.
+ */
+public class AnnotationIndexTest
+  {
+  @Test
+  public void whenDirectoryIndexed() throws Exception
+    {
+    // Given...
+    File dir = classesDir();
+    AnnotationFilter filter = new PackageFilter( Deprecated.class);
+    List<Annotated> expected = new Finder( filter).inClasses( dir).find().collect( toList());
+
+    // When...
+    AnnotationIndex.write( dir);
+    ScanStatistics statistics = new ScanStatistics();
+    List<Annotated> annotated = new Finder( filter).inClasses( dir).statistics( statistics).find().collect( toList());
+
+    // Then...
+    assertThat( "Annotated", annotated, is( expected));
+    assertThat( "Indexed", statistics.getElementsIndexed(), is( 1L));
+    assertThat( "Classes", statistics.getClasses(), is( 0L));
+
+    // Given...
+    File classFile = new File( dir, "ClassDataTest.class");
+    classFile.setLastModified( new File( dir, AnnotationIndex.PATH).lastModified() + 10000);
+
+    // When...
+    statistics = new ScanStatistics();
+    annotated = new Finder( filter).inClasses( dir).statistics( statistics).find().collect( toList());
+
+    // Then...
+    assertThat( "Annotated", annotated, is( expected));
+    assertThat( "Indexed", statistics.getElementsIndexed(), is( 0L));
+    assertThat( "Classes", statistics.getClasses(), is( 2L));
+    }
+
+  @Test
+  public void whenJarIndexed() throws Exception
+    {
+    // Given...
+    File dir = classesDir();
+    AnnotationFilter filter = new PackageFilter( Deprecated.class);
+    File expectedJar = jar( dir, "expected.jar");
+    List<Annotated> expected =
+      new Finder( filter).inClasses( expectedJar).find()
+      .map( annotated -> new AnnotatedField( annotated.getAnnotation(), annotated.getClassName(), ((AnnotatedField) annotated).getField(), annotated.isRuntime(), new File( temp_.getRoot(), "indexed.jar")))
+      .collect( toList());
+
+    AnnotationIndex.write( dir);
+    File jar = jar( dir, "indexed.jar");
+
+    // When...
+    ScanStatistics statistics = new ScanStatistics();
+    List<Annotated> annotated = new Finder( filter).inClasses( jar).statistics( statistics).find().collect( toList());
+
+    // Then...
+    assertThat( "Annotated", annotated, is( expected));
+    assertThat( "Indexed", statistics.getElementsIndexed(), is( 1L));
+    assertThat( "Classes", statistics.getClasses(), is( 0L));
+
+    // Given...
+    new File( dir, "FinderTest.class").delete();
+    File repacked = jar( dir, "repacked.jar");
+
+    // When...
+    statistics = new ScanStatistics();
+    annotated = new Finder( filter).inClasses( repacked).statistics( statistics).find().collect( toList());
+
+    // Then...
+    assertThat( "Annotated", annotated.size(), is( 1));
+    assertThat( "Indexed", statistics.getElementsIndexed(), is( 0L));
+    assertThat( "Classes", statistics.getClasses(), is( 1L));
+    }
+
+  @Test
+  public void whenModuleInfo() throws Exception
+    {
+    // Given...
+    File dir = classesDir();
+    moduleInfo( dir);
+    AnnotationFilter filter = new PackageFilter( Deprecated.class);
+    List<Annotated> expected = new Finder( filter).inClasses( dir).find().collect( toList());
+
+    // When...
+    AnnotationIndex.write( dir);
+    ScanStatistics statistics = new ScanStatistics();
+    List<Annotated> annotated = new Finder( filter).inClasses( dir).statistics( statistics).find().collect( toList());
+
+    // Then...
+    assertThat( "Annotated", annotated, is( expected));
+    assertThat( "Indexed", statistics.getElementsIndexed(), is( 1L));
+    assertThat( "Classes", statistics.getClasses(), is( 0L));
+
+    // When...
+    File jar = jar( dir, "indexed.jar");
+    statistics = new ScanStatistics();
+    annotated = new Finder( filter).inClasses( jar).statistics( statistics).find().collect( toList());
+
+    // Then...
+    assertThat( "Annotated", annotated.size(), is( 1));
+    assertThat( "Indexed", statistics.getElementsIndexed(), is( 1L));
+    assertThat( "Classes", statistics.getClasses(), is( 0L));
+    }
+
+  /**
+   * Returns a new class directory.
+   */
+  private File classesDir() throws Exception
+    {
+    File dir = temp_.newFolder( "classes");
+    java.nio.file.Files.copy( getResourceFile( getClass(), "ClassDataTest.class").toPath(), new File( dir, "ClassDataTest.class").toPath());
+    java.nio.file.Files.copy( getResourceFile( getClass(), "FinderTest.class").toPath(), new File( dir, "FinderTest.class").toPath());
+    return dir;
+    }
+
+  /**
+   * Writes a module descriptor for an empty module to the given directory.
+   */
+  private void moduleInfo( File dir) throws Exception
+    {
+    try( DataOutputStream output = new DataOutputStream( new FileOutputStream( new File( dir, "module-info.class"))))
+      {
+      output.writeInt( 0xCAFEBABE);
+      output.writeShort( 0);
+      output.writeShort( 53);
+
+      output.writeShort( 6);
+      output.writeByte( 7);
+      output.writeShort( 2);
+      output.writeByte( 1);
+      output.writeUTF( "module-info");
+      output.writeByte( 1);
+      output.writeUTF( "Module");
+      output.writeByte( 19);
+      output.writeShort( 5);
+      output.writeByte( 1);
+      output.writeUTF( "example");
+
+      output.writeShort( 0x8000);
+      output.writeShort( 1);
+      output.writeShort( 0);
+      output.writeShort( 0);
+      output.writeShort( 0);
+      output.writeShort( 0);
+
+      output.writeShort( 1);
+      output.writeShort( 3);
+      output.writeInt( 16);
+      output.writeShort( 4);
+      for( int i = 0; i < 7; i++)
+        {
+        output.writeShort( 0);
+        }
+      }
+    }
+
+  /**
+   * Returns a new JAR file containing all files in the given directory.
+   */
+  private File jar( File dir, String name) throws Exception
+    {
+    File jar = new File( temp_.getRoot(), name);
+    Collection<File> files = Files.allFiles( dir);
+    try( JarOutputStream output = new JarOutputStream( new FileOutputStream( jar)))
+      {
+      for( File file : files)
+        {
+        output.putNextEntry( new JarEntry( dir.toPath().relativize( file.toPath()).toString().replace( File.separatorChar, '/')));
+        java.nio.file.Files.copy( file.toPath(), output);
+        }
+      }
+    return jar;
+    }
+
+  @Rule
+  public TemporaryFolder temp_ = new TemporaryFolder();
+  }
@@ -0,0 +1,154 @@
+//////////////////////////////////////////////////////////////////////////////
+// 
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import static org.cornutum.annotation.Files.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Runs tests for {@link ArchivePool}.
+ */
+public class ArchivePoolTest
+  {
+  @Test
+  public void whenReleased()
+    {
+    // Given...
+    File hamcrest = classPathFor( "org.hamcrest.collection").iterator().next();
+    File junit = classPathFor( "org.junit.runner").iterator().next();
+    ScanStatistics statistics = new ScanStatistics();
+    ArchivePool archives = new ArchivePool( 1, statistics);
+
+    // When...
+    ZipArchive hamcrestArchive = archives.acquire( hamcrest);
+    ZipArchive junitArchive = archives.acquire( junit);
+
+    // Then...
+    assertThat( "Open", archives.getOpen(), is( 2));
+    assertThat( "Same archive", archives.acquire( hamcrest), is( sameInstance( hamcrestArchive)));
+
+    // When...
+    archives.release( hamcrestArchive);
+    archives.release( hamcrestArchive);
+
+    // Then...
+    assertThat( "Open", archives.getOpen(), is( 1));
+    assertThat( "Idle closed", hamcrestArchive.isClosed(), is( true));
+    assertThat( "In use closed", junitArchive.isClosed(), is( false));
+
+    // When...
+    archives.release( junitArchive);
+
+    // Then...
+    assertThat( "Open", archives.getOpen(), is( 1));
+    assertThat( "Idle reused", archives.acquire( junit), is( sameInstance( junitArchive)));
+    assertThat( "Reopened", archives.acquire( hamcrest), is( not( sameInstance( hamcrestArchive))));
+    assertThat( "Opened", statistics.getArchivesOpened(), is( 3L));
+    }
+
+  @Test
+  public void whenNestedReleased() throws Exception
+    {
+    // Given...
+    ByteArrayOutputStream innerJar = new ByteArrayOutputStream();
+    try( JarOutputStream inner = new JarOutputStream( innerJar))
+      {
+      inner.putNextEntry( new JarEntry( "inner.txt"));
+      inner.write( "Hello, world!".getBytes( "UTF-8"));
+      }
+
+    File jar = temp_.newFile( "outer.jar");
+    try( JarOutputStream outer = new JarOutputStream( new FileOutputStream( jar)))
+      {
+      outer.putNextEntry( new JarEntry( "lib/inner.jar"));
+      outer.write( innerJar.toByteArray());
+      }
+
+    ArchivePool archives = new ArchivePool( 4, new ScanStatistics());
+    ZipArchive archive = archives.acquire( jar);
+
+    // When...
+    ZipArchive nested = archive.getNested( "lib/inner.jar");
+
+    // Then...
+    assertThat( "Nested entry", nested.getEntry( "inner.txt").isPresent(), is( true));
+    assertThat( "Nested reused", archive.getNested( "lib/inner.jar"), is( sameInstance( nested)));
+
+    // When...
+    archives.release( archive);
+
+    // Then...
+    assertThat( "Closed", archive.isClosed(), is( false));
+    assertThat( "Nested closed", nested.isClosed(), is( true));
+    assertThat( "Nested reopened", archives.acquire( jar).getNested( "lib/inner.jar").isClosed(), is( false));
+    }
+
+  @Test
+  public void whenRetired()
+    {
+    // Given...
+    File hamcrest = classPathFor( "org.hamcrest.collection").iterator().next();
+    ArchivePool archives = new ArchivePool( 4, new ScanStatistics());
+    ZipArchive archive = archives.acquire( hamcrest);
+    archives.acquire( hamcrest);
+
+    // When...
+    archives.retire( archive);
+
+    // Then...
+    assertThat( "Closed", archive.isClosed(), is( false));
+
+    // When...
+    archives.retire( archive);
+
+    // Then...
+    assertThat( "Closed", archive.isClosed(), is( true));
+    assertThat( "Open", archives.getOpen(), is( 0));
+    }
+
+  @Test
+  public void whenClosed()
+    {
+    // Given...
+    File hamcrest = classPathFor( "org.hamcrest.collection").iterator().next();
+    ArchivePool archives = new ArchivePool( 4, new ScanStatistics());
+    ZipArchive archive = archives.acquire( hamcrest);
+
+    // When...
+    archives.close();
+
+    // Then...
+    assertThat( "Closed", archive.isClosed(), is( true));
+    assertThat( "Open", archives.getOpen(), is( 0));
+
+    IllegalStateException failure = null;
+    try
+      {
+      archives.acquire( hamcrest);
+      }
+    catch( IllegalStateException e)
+      {
+      failure = e;
+      }
+    assertThat( "Acquire failure", failure, is( notNullValue()));
+    }
+
+  @Rule
+  public TemporaryFolder temp_ = new TemporaryFolder();
+  }
@@ -0,0 +1,118 @@
+//////////////////////////////////////////////////////////////////////////////
+// 
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import static org.cornutum.annotation.Iterators.toStream;
+import static org.cornutum.annotation.TestFiles.*;
+
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.List;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Runs tests for {@link Buffers}
+ */
+public class BuffersTest
+  {
+  @Test
+  public void whenDirectBuffer()
+    {
+    // Given...
+    String classFileName = String.format( "%s.class", ClassDataTest.class.getSimpleName());
+    File classFile = getResourceFile( getClass(), classFileName);
+    ClassData classData = new DirectBufferData( classFile);
+    AnnotationFilter filter = new PackageFilter( FixMethodOrder.class, Test.class);
+
+    // When..
+    List<Annotated> annotated =
+      toStream( classData.getAnnotated( filter))
+      .collect( toList());
+
+    // Then...
+    assertThat(
+      "Annotated",
+      annotated,
+      contains(
+        new AnnotatedMethod( Test.class, ClassDataTest.class.getName(), "whenClassFile", true, null),
+        new AnnotatedClass( FixMethodOrder.class, ClassDataTest.class.getName(), true, null)));
+    }
+
+  @Test
+  public void whenStream()
+    {
+    // Given...
+    byte[] bytes = new byte[ 5000];
+    for( int i = 0; i < bytes.length; i++)
+      {
+      bytes[i] = (byte) i;
+      }
+
+    // When...
+    ByteBuffer buffer = readAll( bytes, 100);
+
+    // Then...
+    assertThat( "Remaining", buffer.remaining(), is( bytes.length));
+    assertThat( "Last", buffer.get( bytes.length - 1), is( bytes[ bytes.length - 1]));
+
+    // When...
+    buffer = readAll( bytes, bytes.length);
+
+    // Then...
+    assertThat( "Remaining", buffer.remaining(), is( bytes.length));
+    assertThat( "Last", buffer.get( bytes.length - 1), is( bytes[ bytes.length - 1]));
+    }
+
+  private ByteBuffer readAll( byte[] bytes, int size)
+    {
+    try
+      {
+      return Buffers.read( new ByteArrayInputStream( bytes), size);
+      }
+    catch( Exception e)
+      {
+      throw new IllegalStateException( e);
+      }
+    }
+
+  /**
+   * Provides class data from a direct buffer.
+   */
+  private static class DirectBufferData extends ClassData
+    {
+    public DirectBufferData( File file)
+      {
+      file_ = file;
+      }
+
+    protected InputStream getInputStream()
+      {
+      throw new UnsupportedOperationException();
+      }
+
+    protected ByteBuffer getBuffer( ClassParser parser)
+      {
+      ByteBuffer heap = Buffers.read( file_);
+      ByteBuffer direct = ByteBuffer.allocateDirect( heap.remaining() + 3);
+      direct.put( new byte[3]);
+      direct.put( heap);
+      ((Buffer) direct).position( 3);
+      return direct;
+      }
+
+    private final File file_;
+    }
+  }
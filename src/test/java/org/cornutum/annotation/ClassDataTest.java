@@ -47,6 +47,25 @@ public class ClassDataTest
       contains(
         new AnnotatedMethod( Test.class, getClass().getName(), "whenClassFile", true, classFile),
         new AnnotatedClass( FixMethodOrder.class, getClass().getName(), true, classFile)));
+
+    // When...
+    List<Annotated> deprecated =
+      toStream( classData.getAnnotated( new PackageFilter( Deprecated.class)))
+      .collect( toList());
+
+    // Then...
+    assertThat(
+      "Other filter",
+      deprecated,
+      contains( new AnnotatedField( Deprecated.class, getClass().getName(), "stringField", true, classFile)));
+
+    // When...
+    List<Annotated> again =
+      toStream( classData.getAnnotated( filter))
+      .collect( toList());
+
+    // Then...
+    assertThat( "Same filter", again, is( annotated));
     }
 
   @Deprecated
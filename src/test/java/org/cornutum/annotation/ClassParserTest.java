@@ -0,0 +1,75 @@
+//////////////////////////////////////////////////////////////////////////////
+// 
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import static org.cornutum.annotation.Files.*;
+import static org.cornutum.annotation.TestFiles.*;
+
+import org.junit.Test;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.File;
+import java.util.List;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Runs tests for {@link ClassParser}
+ */
+public class ClassParserTest
+  {
+  @Test
+  public void whenReused()
+    {
+    // Given...
+    List<ClassData> classes =
+      classFiles( getTargetDir( getClass()))
+      .stream()
+      .map( ClassFileData::new)
+      .collect( toList());
+
+    ClassParser parser = new ClassParser();
+
+    for( ClassData classData : classes)
+      {
+      // When...
+      List<Annotated> reused = parser.parse( classData, AllAnnotated.INSTANCE);
+      List<Annotated> fresh = new ClassParser().parse( classData, AllAnnotated.INSTANCE);
+
+      // Then...
+      assertThat( classData.toString(), reused, is( fresh));
+      }
+
+    // Given...
+    File classFile = getResourceFile( getClass(), String.format( "%s.class", getClass().getSimpleName()));
+
+    // When...
+    List<Annotated> annotated = parser.parse( new ClassFileData( classFile), new PackageFilter( Test.class));
+
+    // Then...
+    assertThat(
+      "Annotated",
+      annotated,
+      contains( new AnnotatedMethod( Test.class, getClass().getName(), "whenReused", true, classFile)));
+
+    // Given...
+    AnnotationFilter deprecated = new PackageFilter( Deprecated.class);
+    AnnotationFilter test = new PackageFilter( Test.class);
+
+    for( ClassData classData : classes)
+      {
+      // When...
+      List<Annotated> reusedDeprecated = parser.parse( classData, deprecated);
+      List<Annotated> reusedTest = parser.parse( classData, test);
+
+      // Then...
+      assertThat( classData.toString(), reusedDeprecated, is( new ClassParser().parse( classData, deprecated)));
+      assertThat( classData.toString(), reusedTest, is( new ClassParser().parse( classData, test)));
+      }
+    }
+  }
@@ -86,4 +86,49 @@ public class FilesTest
         "Hotel.class",
         "Kilo.class"));
     }
+
+  @Test
+  public void whenClassFileIterator()
+    {
+    // Given...
+    File dir = getResourceFile( getClass(), "Files");
+
+    // When...
+    List<File> files = Iterators.toList( Files.classFileIterator( dir));
+
+    // Then...
+    assertThat( "Files", files, is( Files.classFiles( dir)));
+
+    // Given...
+    dir = getTargetDir( getClass());
+
+    // When...
+    files = Iterators.toList( Files.classFileIterator( dir));
+
+    // Then...
+    assertThat( "Files", files, is( Files.classFiles( dir)));
+    }
+  
+  @Test
+  public void whenClassFileIteratorFiltered()
+    {
+    // Given...
+    File dir = getResourceFile( getClass(), "Files");
+    AnnotationFilter filter = new PackageFilter().inPackage( "Delta.Foxtrot.Golf");
+
+    // When...
+    List<File> files = Iterators.toList( Files.classFileIterator( dir, filter));
+
+    // Then...
+    assertThat( "Files", files, containsInAnyOrder( new File( dir, "Delta/Foxtrot/Golf/Hotel.class")));
+
+    // Given...
+    filter = new PackageFilter().inPackage( "", "Delta");
+
+    // When...
+    files = Iterators.toList( Files.classFileIterator( dir, filter));
+
+    // Then...
+    assertThat( "Files", files, containsInAnyOrder( new File( dir, "Charlie.class"), new File( dir, "Delta/Kilo.class")));
+    }
   }
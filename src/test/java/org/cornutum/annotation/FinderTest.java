@@ -10,12 +10,24 @@ package org.cornutum.annotation;
 import static org.cornutum.annotation.Files.*;
 import static org.cornutum.annotation.TestFiles.*;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
 
 import java.io.File;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 import static java.util.stream.Collectors.toList;
 
 /**
@@ -55,4 +67,499 @@ public class FinderTest
         new AnnotatedMethod( Deprecated.class, "org.hamcrest.text.IsEmptyString", "isEmptyOrNullString", true, jar)
         ));
     }
+  
+  @Test
+  public void whenClassesRejected()
+    {
+    // Given...
+    File dir = getResourceFile( getClass(), "Files");
+    File file = getResourceFile( getClass(), String.format( "%s.class", ClassDataTest.class.getSimpleName()));
+    ScanStatistics statistics = new ScanStatistics();
+    Finder finder = new Finder().filter( new PackageFilter( Deprecated.class)).inClasses( dir, file).statistics( statistics);
+
+    // When...
+    List<Annotated> annotated = finder.find().collect( toList());
+
+    // Then...
+    assertThat(
+      "Annotated",
+      annotated,
+      contains( new AnnotatedField( Deprecated.class, "org.cornutum.annotation.ClassDataTest", "stringField", true, file)));
+
+    assertThat( "Classes", statistics.getClasses(), is( 4L));
+    assertThat( "Rejected", statistics.getClassesRejected(), is( 3L));
+
+    // Given...
+    statistics = new ScanStatistics();
+    finder = new Finder().filter( new PackageFilter( Override.class)).inClasses( dir, file).statistics( statistics);
+
+    // When...
+    annotated = finder.find().collect( toList());
+
+    // Then...
+    assertThat( "Annotated", annotated, empty());
+    assertThat( "Classes", statistics.getClasses(), is( 4L));
+    assertThat( "Rejected", statistics.getClassesRejected(), is( 4L));
+    }
+
+  @Test
+  public void whenPackagesPruned()
+    {
+    // Given...
+    File dir = new File( getTargetDir( getClass()), "test-classes");
+    File jar = classPathFor( "org.hamcrest.collection").iterator().next();
+    AnnotationFilter filter = new PackageFilter( Deprecated.class).inPackage( "org.cornutum.annotation.examples", "org.hamcrest.text");
+    AnnotationFilter unpruned =
+      new AnnotationFilter()
+        {
+        public Optional<String> acceptAnnotation( String rawTypeName)
+          {
+          return filter.acceptAnnotation( rawTypeName);
+          }
+
+        public boolean acceptClass( String className)
+          {
+          return filter.acceptClass( className);
+          }
+        };
+    List<Annotated> expected = new Finder( unpruned).inClasses( dir, jar).find().collect( toList());
+
+    // When...
+    ScanStatistics statistics = new ScanStatistics();
+    List<Annotated> annotated = new Finder( filter).inClasses( dir, jar).statistics( statistics).find().collect( toList());
+
+    // Then...
+    long examples = Files.classFiles( new File( dir, "org/cornutum/annotation/examples")).size();
+    long text = JarAnnotated.entryReaders( jar).stream().filter( reader -> reader.getEntry().getName().startsWith( "org/hamcrest/text/")).count();
+    assertThat( "Annotated", annotated, is( expected));
+    assertThat( "Annotated", annotated.size(), is( 2));
+    assertThat( "Classes", statistics.getClasses(), is( examples + text));
+
+    // When...
+    statistics = new ScanStatistics();
+    annotated = new Finder( filter).inClasses( dir, jar).statistics( statistics).findParallel().collect( toList());
+
+    // Then...
+    assertThat( "Annotated", annotated, is( expected));
+    assertThat( "Classes", statistics.getClasses(), is( examples + text));
+    }
+
+  @Test
+  public void whenListener()
+    {
+    // Given...
+    File dir = new File( getTargetDir( getClass()), "test-classes");
+    File jar = classPathFor( "org.hamcrest.collection").iterator().next();
+    AnnotationFilter filter = new PackageFilter( Deprecated.class).inPackage( "org.cornutum.annotation.examples", "org.hamcrest");
+    List<Annotated> expected = new Finder( filter).inClasses( dir, jar).find().collect( toList());
+
+    // When...
+    ScanStatistics statistics = new ScanStatistics();
+    ScanProfile profile = new ScanProfile();
+    List<Annotated> annotated = new Finder( filter).inClasses( dir, jar).statistics( statistics).listener( profile).find().collect( toList());
+
+    // Then...
+    assertThat( "Annotated", annotated, is( expected));
+    assertThat( "Elements", profile.getElements().size(), is( 2));
+    assertThat( "Slowest", profile.getSlowest( 1).size(), is( 1));
+    assertThat( "Dir kind", profile.getElement( dir).getKind(), is( ScanListener.ElementKind.DIRECTORY));
+    assertThat( "Jar kind", profile.getElement( jar).getKind(), is( ScanListener.ElementKind.JAR));
+    assertThat( "Jar inflated", profile.getElement( jar).getBytesInflated(), greaterThan( profile.getElement( jar).getBytesRead()));
+    assertThat( "Dir inflated", profile.getElement( dir).getBytesInflated(), is( 0L));
+    assertThat(
+      "Classes",
+      profile.getElements().stream().mapToLong( ScanProfile.ElementProfile::getClasses).sum(),
+      is( statistics.getClasses()));
+    assertThat(
+      "Annotations",
+      profile.getElements().stream().mapToLong( ScanProfile.ElementProfile::getAnnotations).sum(),
+      is( (long) expected.size()));
+    assertThat( "Read", profile.getHistogram( ScanProfile.Phase.READ).getCount(), is( statistics.getClasses()));
+    assertThat( "Parsed", profile.getHistogram( ScanProfile.Phase.PARSE).getCount(), is( statistics.getClasses()));
+
+    // When...
+    ScanProfile parallelProfile = new ScanProfile();
+    annotated = new Finder( filter).inClasses( dir, jar).listener( parallelProfile).findParallel().collect( toList());
+
+    // Then...
+    assertThat( "Annotated", annotated, is( expected));
+    assertThat( "Elements", parallelProfile.getElements().size(), is( 2));
+    assertThat(
+      "Classes",
+      parallelProfile.getElements().stream().mapToLong( ScanProfile.ElementProfile::getClasses).sum(),
+      is( statistics.getClasses()));
+    assertThat( "Report", parallelProfile.report( 2), containsString( jar.getPath()));
+    }
+
+  @Test
+  public void whenMaxOpenArchives()
+    {
+    // Given...
+    File hamcrest = classPathFor( "org.hamcrest.collection").iterator().next();
+    File junit = classPathFor( "org.junit.runner").iterator().next();
+    List<Annotated> expected = new Finder().inClasses( hamcrest, junit).find().collect( toList());
+
+    // When...
+    ScanStatistics statistics = new ScanStatistics();
+    List<Annotated> annotated;
+    try( Stream<Annotated> found = new Finder().inClasses( hamcrest, junit).maxOpenArchives( 0).statistics( statistics).findParallel())
+      {
+      annotated = found.collect( toList());
+      }
+
+    // Then...
+    assertThat( "Annotated", annotated, is( expected));
+    assertThat( "Archives opened", statistics.getArchivesOpened(), greaterThanOrEqualTo( 2L));
+
+    // When...
+    Optional<Annotated> first;
+    try( Stream<Annotated> found = new Finder().inClasses( hamcrest, junit).find())
+      {
+      first = found.findFirst();
+      }
+
+    // Then...
+    assertThat( "First", first, is( Optional.of( expected.get(0))));
+    }
+
+  @Test
+  public void whenFindParallel()
+    {
+    // Given...
+    File dir = getTargetDir( getClass());
+    File hamcrest = classPathFor( "org.hamcrest.collection").iterator().next();
+    File junit = classPathFor( "org.junit").iterator().next();
+    ScanStatistics sequentialStatistics = new ScanStatistics();
+    List<Annotated> sequential = new Finder().inClasses( dir, hamcrest, junit).statistics( sequentialStatistics).find().collect( toList());
+
+    // When...
+    ScanStatistics orderedStatistics = new ScanStatistics();
+    List<Annotated> ordered = new Finder().inClasses( dir, hamcrest, junit).statistics( orderedStatistics).findParallel().collect( toList());
+
+    // Then...
+    assertThat( "Ordered", ordered, is( sequential));
+    assertThat( "Classes", orderedStatistics.getClasses(), is( sequentialStatistics.getClasses()));
+
+    // When...
+    List<Annotated> unordered = new Finder().inClasses( dir, hamcrest, junit).findParallel( false).collect( toList());
+
+    // Then...
+    assertThat( "Unordered", unordered, containsInAnyOrder( sequential.toArray()));
+    }
+
+  @Test
+  public void whenCached() throws Exception
+    {
+    // Given...
+    File cacheDir = temp_.newFolder( "cache");
+    File dir = temp_.newFolder( "classes");
+    File classFile = new File( dir, "ClassDataTest.class");
+    java.nio.file.Files.copy( getResourceFile( getClass(), "ClassDataTest.class").toPath(), classFile.toPath());
+    java.nio.file.Files.copy( getResourceFile( getClass(), "FinderTest.class").toPath(), new File( dir, "FinderTest.class").toPath());
+    File jar = classPathFor( "org.hamcrest.collection").iterator().next();
+
+    ScanStatistics statistics = new ScanStatistics();
+    List<Annotated> expected = new Finder().inClasses( dir, jar).statistics( statistics).find().collect( toList());
+    long classes = statistics.getClasses();
+
+    // When...
+    statistics = new ScanStatistics();
+    List<Annotated> annotated = new Finder().inClasses( dir, jar).cacheDir( cacheDir).statistics( statistics).find().collect( toList());
+
+    // Then...
+    assertThat( "Annotated", annotated, is( expected));
+    assertThat( "Classes", statistics.getClasses(), is( classes));
+    assertThat( "Cached", statistics.getElementsCached(), is( 0L));
+
+    // When...
+    statistics = new ScanStatistics();
+    annotated = new Finder().inClasses( dir, jar).cacheDir( cacheDir).statistics( statistics).find().collect( toList());
+
+    // Then...
+    assertThat( "Annotated", annotated, is( expected));
+    assertThat( "Classes", statistics.getClasses(), is( 0L));
+    assertThat( "Cached", statistics.getElementsCached(), is( 2L));
+
+    // Given...
+    classFile.setLastModified( classFile.lastModified() + 10000);
+
+    // When...
+    statistics = new ScanStatistics();
+    annotated = new Finder().inClasses( dir, jar).cacheDir( cacheDir).statistics( statistics).find().collect( toList());
+
+    // Then...
+    assertThat( "Annotated", annotated, is( expected));
+    assertThat( "Classes", statistics.getClasses(), is( 2L));
+    assertThat( "Cached", statistics.getElementsCached(), is( 1L));
+
+    // Given...
+    File parallelCacheDir = temp_.newFolder( "parallelCache");
+    new Finder().inClasses( dir, jar).cacheDir( parallelCacheDir).findParallel().collect( toList());
+
+    // When...
+    statistics = new ScanStatistics();
+    annotated = new Finder().inClasses( dir, jar).cacheDir( parallelCacheDir).statistics( statistics).find().collect( toList());
+
+    // Then...
+    assertThat( "Annotated", annotated, is( expected));
+    assertThat( "Cached", statistics.getElementsCached(), is( 2L));
+    }
+
+  @Test
+  public void whenShadowing() throws Exception
+    {
+    // Given...
+    File jar = classPathFor( "org.hamcrest.collection").iterator().next();
+    File copy = new File( temp_.newFolder( "lib"), jar.getName());
+    java.nio.file.Files.copy( jar.toPath(), copy.toPath());
+    File dir = temp_.newFolder( "classes");
+    java.nio.file.Files.copy( getResourceFile( getClass(), "ClassDataTest.class").toPath(), new File( dir, "ClassDataTest.class").toPath());
+    File dirCopy = temp_.newFolder( "classesCopy");
+    java.nio.file.Files.copy( getResourceFile( getClass(), "ClassDataTest.class").toPath(), new File( dirCopy, "ClassDataTest.class").toPath());
+
+    ScanStatistics expectedStatistics = new ScanStatistics();
+    List<Annotated> expected = new Finder().inClasses( dir, copy).statistics( expectedStatistics).find().collect( toList());
+
+    // When...
+    ScanStatistics statistics = new ScanStatistics();
+    ShadowReport report = new ShadowReport();
+    List<Annotated> annotated =
+      new Finder()
+      .inClasses( dir, copy, dirCopy, jar)
+      .shadowing( report)
+      .statistics( statistics)
+      .find()
+      .collect( toList());
+
+    // Then...
+    long entries = JarAnnotated.entryReaders( jar).size();
+    assertThat( "Annotated", annotated, is( expected));
+    assertThat( "Classes", statistics.getClasses(), is( expectedStatistics.getClasses()));
+    assertThat( "Shadowed", statistics.getClassesShadowed(), is( entries + 1));
+    assertThat( "Report", (long) report.getShadowed().size(), is( entries + 1));
+
+    ShadowReport.Shadowed first = report.getShadowed().get(0);
+    assertThat( "Shadowed path", first.getClassFilePath(), is( "ClassDataTest.class"));
+    assertThat( "Shadowed element", first.getElement(), is( dirCopy));
+    assertThat( "Shadowed by", first.getShadowedBy(), is( dir));
+    assertThat(
+      "Shadowed by jar",
+      report.getShadowed().stream().skip(1).allMatch( shadowed -> shadowed.getElement().equals( jar) && shadowed.getShadowedBy().equals( copy)),
+      is( true));
+
+    // When...
+    List<Annotated> parallel = new Finder().inClasses( dir, copy, dirCopy, jar).shadowing().findParallel().collect( toList());
+
+    // Then...
+    assertThat( "Parallel", parallel, is( expected));
+
+    // When...
+    statistics = new ScanStatistics();
+    List<Annotated> all = new Finder().inClasses( dir, copy, dirCopy, jar).statistics( statistics).find().collect( toList());
+
+    // Then...
+    assertThat( "All", all.size(), is( expected.size() * 2));
+    assertThat( "Not shadowed", statistics.getClassesShadowed(), is( 0L));
+    }
+
+  @Test
+  public void whenTypesAccepted()
+    {
+    // Given...
+    File dir = getTargetDir( getClass());
+    List<Annotated> all = new Finder( new PackageFilter( Test.class, Rule.class, Deprecated.class)).inClasses( dir).find().collect( toList());
+
+    for( Annotated.Type type : Annotated.Type.values())
+      {
+      // When...
+      List<Annotated> annotated =
+        new Finder( new PackageFilter( Test.class, Rule.class, Deprecated.class).types( type))
+        .inClasses( dir)
+        .find()
+        .collect( toList());
+
+      // Then...
+      assertThat( String.format( "Type=%s", type), annotated, is( all.stream().filter( a -> a.getType() == type).collect( toList())));
+      }
+
+    for( RetentionPolicy retention : new RetentionPolicy[]{ RetentionPolicy.RUNTIME, RetentionPolicy.CLASS})
+      {
+      // When...
+      List<Annotated> annotated =
+        new Finder( new PackageFilter( Test.class, Rule.class, Deprecated.class).retention( retention))
+        .inClasses( dir)
+        .find()
+        .collect( toList());
+
+      // Then...
+      assertThat(
+        String.format( "Retention=%s", retention),
+        annotated,
+        is( all.stream().filter( a -> a.isRuntime() == (retention == RetentionPolicy.RUNTIME)).collect( toList())));
+      }
+
+    // Given...
+    File classFile = getResourceFile( getClass(), "FinderTest.class");
+
+    // When...
+    List<Annotated> fields = new ClassParser().parse( new ClassFileData( classFile), new PackageFilter( Test.class, Rule.class).types( Annotated.Type.FIELD));
+
+    // Then...
+    assertThat( "Fields", fields, contains( new AnnotatedField( Rule.class, getClass().getName(), "temp_", true, classFile)));
+    }
+
+  @Test
+  public void whenParametersAndTypeUses() throws Exception
+    {
+    // Given...
+    File dir = temp_.newFolder( "classes");
+    File classFile = new File( dir, "FinderTest$Parameterized.class");
+    java.nio.file.Files.copy( getResourceFile( getClass(), classFile.getName()).toPath(), classFile.toPath());
+    String className = Parameterized.class.getName();
+    PackageFilter filter = new PackageFilter( Checked.class, Named.class).types( Annotated.Type.PARAMETER, Annotated.Type.TYPE_USE);
+
+    // When...
+    List<Annotated> annotated = new Finder( filter).inClasses( dir).find().collect( toList());
+
+    // Then...
+    assertThat(
+      "Annotated",
+      annotated,
+      containsInAnyOrder(
+        new AnnotatedParameter( Named.class, className, "update", 0, false, classFile),
+        new AnnotatedTypeUse( Checked.class, className, null, AnnotatedTypeUse.Target.CLASS_TYPE_PARAMETER, 0, true, classFile),
+        new AnnotatedTypeUse( Checked.class, className, null, AnnotatedTypeUse.Target.SUPERTYPE, 0, true, classFile),
+        new AnnotatedTypeUse( Checked.class, className, "name_", AnnotatedTypeUse.Target.FIELD, -1, true, classFile),
+        new AnnotatedTypeUse( Checked.class, className, "update", AnnotatedTypeUse.Target.METHOD_RETURN, -1, true, classFile),
+        new AnnotatedTypeUse( Checked.class, className, "update", AnnotatedTypeUse.Target.METHOD_PARAMETER, 2, true, classFile),
+        new AnnotatedTypeUse( Checked.class, className, "update", AnnotatedTypeUse.Target.METHOD_PARAMETER, 2, true, classFile),
+        new AnnotatedTypeUse( Checked.class, className, "update", AnnotatedTypeUse.Target.THROWS, 0, true, classFile)));
+
+    // When...
+    List<Annotated> defaults = new Finder( new PackageFilter( Checked.class, Named.class)).inClasses( dir).find().collect( toList());
+
+    // Then...
+    assertThat( "Defaults", defaults, empty());
+
+    // Given...
+    File cacheDir = temp_.newFolder( "cache");
+    new Finder( filter).inClasses( dir).cacheDir( cacheDir).find().collect( toList());
+
+    // When...
+    ScanStatistics statistics = new ScanStatistics();
+    List<Annotated> cached = new Finder( filter).inClasses( dir).cacheDir( cacheDir).statistics( statistics).find().collect( toList());
+
+    // Then...
+    assertThat( "Cached", cached, is( annotated));
+    assertThat( "Elements cached", statistics.getElementsCached(), is( 1L));
+    }
+
+  @Retention( RetentionPolicy.RUNTIME)
+  @Target( { ElementType.TYPE_USE, ElementType.TYPE_PARAMETER})
+  @interface Checked
+    {
+    }
+
+  @Retention( RetentionPolicy.CLASS)
+  @Target( ElementType.PARAMETER)
+  @interface Named
+    {
+    }
+
+  static class Parameterized<@Checked T> implements @Checked Runnable
+    {
+    public @Checked String update( @Named String name, int count, @Checked List<@Checked T> values) throws @Checked IllegalStateException
+      {
+      return name_ = name;
+      }
+
+    public void run()
+      {
+      }
+
+    @Checked String name_;
+    }
+
+  @Test
+  public void whenElementValues() throws Exception
+    {
+    // Given...
+    File dir = temp_.newFolder( "classes");
+    File classFile = new File( dir, "FinderTest$Valuable.class");
+    java.nio.file.Files.copy( getResourceFile( getClass(), classFile.getName()).toPath(), classFile.toPath());
+    PackageFilter filter = new PackageFilter( Valued.class);
+
+    Map<String,Object> expected = new HashMap<String,Object>();
+    expected.put( "number", 1);
+    expected.put( "big", 2L);
+    expected.put( "small", (short) 3);
+    expected.put( "ratio", 0.5);
+    expected.put( "scale", 1.5f);
+    expected.put( "letter", 'x');
+    expected.put( "flag", true);
+    expected.put( "kind", new ElementValues.EnumValue( ElementType.class.getName(), "FIELD"));
+    expected.put( "type", new ElementValues.ClassValue( "java.lang.String[]"));
+    expected.put(
+      "retention",
+      new ElementValues.AnnotationValue(
+        Retention.class.getName(),
+        Collections.singletonMap( "value", new ElementValues.EnumValue( RetentionPolicy.class.getName(), "CLASS"))));
+    expected.put( "tags", Arrays.asList( "a", "b"));
+
+    // When...
+    List<Annotated> annotated = new Finder( filter).inClasses( dir).find().collect( toList());
+
+    // Then...
+    assertThat( "Annotated", annotated, contains( new AnnotatedClass( Valued.class, Valuable.class.getName(), true, classFile)));
+    assertThat( "Values", annotated.get(0).getValues(), is( expected));
+    assertThat( "Default", annotated.get(0).getValue( "text"), is( Optional.empty()));
+
+    // Given...
+    File cacheDir = temp_.newFolder( "cache");
+    new Finder( filter).inClasses( dir).cacheDir( cacheDir).find().collect( toList());
+
+    // When...
+    ScanStatistics statistics = new ScanStatistics();
+    List<Annotated> cached = new Finder( filter).inClasses( dir).cacheDir( cacheDir).statistics( statistics).find().collect( toList());
+
+    // Then...
+    assertThat( "Elements cached", statistics.getElementsCached(), is( 1L));
+    assertThat( "Cached values", cached.get(0).getValues(), is( expected));
+    }
+
+  @Retention( RetentionPolicy.RUNTIME)
+  @interface Valued
+    {
+    int number();
+    long big();
+    short small();
+    double ratio();
+    float scale();
+    char letter();
+    boolean flag();
+    ElementType kind();
+    Class<?> type();
+    Retention retention();
+    String[] tags();
+    String text() default "";
+    }
+
+  @Valued(
+    number = 1,
+    big = 2L,
+    small = 3,
+    ratio = 0.5,
+    scale = 1.5f,
+    letter = 'x',
+    flag = true,
+    kind = ElementType.FIELD,
+    type = String[].class,
+    retention = @Retention( RetentionPolicy.CLASS),
+    tags = { "a", "b"})
+  static class Valuable
+    {
+    }
+
+  @Rule
+  public TemporaryFolder temp_ = new TemporaryFolder();
   }
@@ -9,13 +9,27 @@ package org.cornutum.annotation;
 
 import static org.cornutum.annotation.Files.*;
 import static org.cornutum.annotation.Iterators.*;
+import static org.cornutum.annotation.TestFiles.*;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 
 /**
@@ -45,4 +59,195 @@ public class JarAnnotatedTest
         new AnnotatedMethod( Deprecated.class, "org.hamcrest.text.IsEmptyString", "isEmptyOrNullString", true, jar)));
     }
 
+  @Test
+  public void whenNestedArchives() throws Exception
+    {
+    // Given...
+    File hamcrest = classPathFor( "org.hamcrest.collection").iterator().next();
+    String entryName = "org/hamcrest/text/IsEmptyString.class";
+    byte[] classBytes;
+    try( ZipArchive archive = new ZipArchive( hamcrest))
+      {
+      classBytes = toBytes( archive, entryName);
+      }
+
+    ByteArrayOutputStream innerJar = new ByteArrayOutputStream();
+    try( JarOutputStream inner = new JarOutputStream( innerJar))
+      {
+      write( inner, entryName, classBytes, false);
+      }
+
+    File jar = temp_.newFile( "app.jar");
+    try( JarOutputStream outer = new JarOutputStream( new FileOutputStream( jar)))
+      {
+      write( outer, "BOOT-INF/classes/" + entryName, classBytes, false);
+      write( outer, "BOOT-INF/lib/stored.jar", innerJar.toByteArray(), true);
+      write( outer, "BOOT-INF/lib/deflated.jar", innerJar.toByteArray(), false);
+      write( outer, "BOOT-INF/classes/org/hamcrest/Other.class", classBytes, false);
+      }
+
+    AnnotationFilter filter = new PackageFilter( Deprecated.class).inPackage( "org.hamcrest.text");
+    File stored = new File( jar, "BOOT-INF/lib/stored.jar");
+    File deflated = new File( jar, "BOOT-INF/lib/deflated.jar");
+
+    // When...
+    List<Annotated> annotated = toStream( new JarAnnotated( jar, filter)).collect( toList());
+
+    // Then...
+    assertThat(
+      "Annotated",
+      annotated,
+      contains(
+        new AnnotatedMethod( Deprecated.class, "org.hamcrest.text.IsEmptyString", "isEmptyString", true, jar),
+        new AnnotatedMethod( Deprecated.class, "org.hamcrest.text.IsEmptyString", "isEmptyOrNullString", true, jar),
+        new AnnotatedMethod( Deprecated.class, "org.hamcrest.text.IsEmptyString", "isEmptyString", true, stored),
+        new AnnotatedMethod( Deprecated.class, "org.hamcrest.text.IsEmptyString", "isEmptyOrNullString", true, stored),
+        new AnnotatedMethod( Deprecated.class, "org.hamcrest.text.IsEmptyString", "isEmptyString", true, deflated),
+        new AnnotatedMethod( Deprecated.class, "org.hamcrest.text.IsEmptyString", "isEmptyOrNullString", true, deflated)));
+
+    // When...
+    File cacheDir = temp_.newFolder( "cache");
+    new Finder( filter).inClasses( jar).cacheDir( cacheDir).find().collect( toList());
+    ScanStatistics statistics = new ScanStatistics();
+    List<Annotated> cached = new Finder( filter).inClasses( jar).cacheDir( cacheDir).statistics( statistics).findParallel().collect( toList());
+
+    // Then...
+    assertThat( "Cached", cached, is( annotated));
+    assertThat( "Elements cached", statistics.getElementsCached(), is( 1L));
+    }
+
+  @Test
+  public void whenMultiRelease() throws Exception
+    {
+    // Given...
+    File hamcrest = classPathFor( "org.hamcrest.collection").iterator().next();
+    String entryName = "org/hamcrest/text/IsEmptyString.class";
+    byte[] baseBytes;
+    try( ZipArchive archive = new ZipArchive( hamcrest))
+      {
+      baseBytes = toBytes( archive, entryName);
+      }
+    byte[] variantBytes = java.nio.file.Files.readAllBytes( getResourceFile( getClass(), "ClassDataTest.class").toPath());
+
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().put( new Attributes.Name( "Multi-Release"), "true");
+    File jar = temp_.newFile( "multi.jar");
+    try( JarOutputStream output = new JarOutputStream( new FileOutputStream( jar), manifest))
+      {
+      write( output, entryName, baseBytes, false);
+      write( output, "META-INF/versions/9/" + entryName, variantBytes, false);
+      write( output, "META-INF/versions/99/" + entryName, baseBytes, false);
+      }
+
+    File plainJar = temp_.newFile( "plain.jar");
+    try( JarOutputStream output = new JarOutputStream( new FileOutputStream( plainJar)))
+      {
+      write( output, entryName, baseBytes, false);
+      write( output, "META-INF/versions/9/" + entryName, variantBytes, false);
+      }
+
+    AnnotationFilter filter = new PackageFilter( Deprecated.class);
+
+    // When...
+    ScanStatistics statistics = new ScanStatistics();
+    List<String> classes = new Finder( filter).inClasses( jar).release( 8).statistics( statistics).find().map( Annotated::getClassName).distinct().collect( toList());
+
+    // Then...
+    assertThat( "Classes for release 8", classes, contains( "org.hamcrest.text.IsEmptyString"));
+    assertThat( "Classes read for release 8", statistics.getClasses(), is( 1L));
+
+    // When...
+    statistics = new ScanStatistics();
+    classes = new Finder( filter).inClasses( jar).release( 11).statistics( statistics).find().map( Annotated::getClassName).distinct().collect( toList());
+
+    // Then...
+    assertThat( "Classes for release 11", classes, contains( "org.cornutum.annotation.ClassDataTest"));
+    assertThat( "Classes read for release 11", statistics.getClasses(), is( 1L));
+
+    // When...
+    classes = new Finder( filter).inClasses( jar).release( 99).find().map( Annotated::getClassName).distinct().collect( toList());
+
+    // Then...
+    assertThat( "Classes for release 99", classes, contains( "org.hamcrest.text.IsEmptyString"));
+
+    // When...
+    classes = new Finder( filter).inClasses( plainJar).release( 11).find().map( Annotated::getClassName).distinct().collect( toList());
+
+    // Then...
+    assertThat( "Classes for plain JAR", classes, contains( "org.hamcrest.text.IsEmptyString"));
+    }
+
+  @Test
+  public void whenUnreadable() throws Exception
+    {
+    // Given...
+    File hamcrest = classPathFor( "org.hamcrest.collection").iterator().next();
+    String entryName = "org/hamcrest/text/IsEmptyString.class";
+    byte[] classBytes;
+    try( ZipArchive archive = new ZipArchive( hamcrest))
+      {
+      classBytes = toBytes( archive, entryName);
+      }
+
+    File jar = temp_.newFile( "unreadable.jar");
+    try( JarOutputStream output = new JarOutputStream( new FileOutputStream( jar)))
+      {
+      write( output, entryName, Arrays.copyOf( classBytes, classBytes.length - 16), false);
+      }
+
+    ScanContext scan = new ScanContext( new PackageFilter( Deprecated.class));
+
+    // When...
+    RuntimeException failure = null;
+    try
+      {
+      StreamSupport.stream( new ClassPathSpliterator( singletonList( jar), scan, true), false).count();
+      }
+    catch( RuntimeException e)
+      {
+      failure = e;
+      }
+
+    // Then...
+    assertThat( "Failure", failure, is( notNullValue()));
+    assertThat( "Open", scan.getArchives().getOpen(), is( 0));
+    }
+
+  /**
+   * Returns the data for the given entry.
+   */
+  private byte[] toBytes( ZipArchive archive, String entryName) throws Exception
+    {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try( InputStream input = archive.getInputStream( archive.getEntry( entryName).get()))
+      {
+      byte[] buffer = new byte[ 4096];
+      for( int n; (n = input.read( buffer)) >= 0; bytes.write( buffer, 0, n));
+      }
+    return bytes.toByteArray();
+    }
+
+  /**
+   * Writes a JAR entry with the given data.
+   */
+  private void write( JarOutputStream output, String name, byte[] data, boolean stored) throws Exception
+    {
+    JarEntry entry = new JarEntry( name);
+    if( stored)
+      {
+      CRC32 crc = new CRC32();
+      crc.update( data, 0, data.length);
+      entry.setMethod( JarEntry.STORED);
+      entry.setSize( data.length);
+      entry.setCompressedSize( data.length);
+      entry.setCrc( crc.getValue());
+      }
+    output.putNextEntry( entry);
+    output.write( data);
+    output.closeEntry();
+    }
+
+  @Rule
+  public TemporaryFolder temp_ = new TemporaryFolder();
   }
@@ -0,0 +1,210 @@
+//////////////////////////////////////////////////////////////////////////////
+// 
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import static org.cornutum.annotation.ClassData.rawTypeName;
+import static org.cornutum.annotation.TestFiles.*;
+
+import org.junit.Test;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.lang.annotation.RetentionPolicy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * Runs tests for {@link PackageFilter}.
+ */
+public class PackageFilterTest
+  {
+  @Test
+  public void whenAcceptDescriptor()
+    {
+    // Given...
+    String[] annotations =
+      IntStream.range( 0, 100)
+      .mapToObj( i -> String.format( "org.cornutum.annotation.Annotation%s", i))
+      .toArray( String[]::new);
+    PackageFilter filter = new PackageFilter( annotations);
+
+    for( String annotation : annotations)
+      {
+      // When...
+      int id = acceptDescriptor( filter, rawTypeName( annotation));
+
+      // Then...
+      assertThat( annotation, id, is( not( RawAnnotationFilter.REJECT)));
+      assertThat( annotation, filter.getAnnotation( id), is( annotation));
+      }
+
+    // When...
+    int id = acceptDescriptor( filter, rawTypeName( "org.cornutum.annotation.Annotation100"));
+
+    // Then...
+    assertThat( "Not accepted", id, is( RawAnnotationFilter.REJECT));
+    }
+  
+  @Test
+  public void whenAcceptAnnotationOverridden()
+    {
+    // Given...
+    PackageFilter filter =
+      new PackageFilter( Deprecated.class)
+        {
+        public Optional<String> acceptAnnotation( String rawTypeName)
+          {
+          return
+            rawTypeName.equals( rawTypeName( Test.class))
+            ? Optional.of( Test.class.getName())
+            : super.acceptAnnotation( rawTypeName);
+          }
+        };
+
+    // When...
+    List<Annotated> annotated = Iterators.toList( new ClassFileData( getResourceFile( getClass(), "PackageFilterTest.class")).getAnnotated( filter));
+
+    // Then...
+    assertThat( "Overridden", annotated, hasItem( new AnnotatedMethod( Test.class, getClass().getName(), "whenAcceptAnnotationOverridden", true, getResourceFile( getClass(), "PackageFilterTest.class"))));
+    }
+
+  @Test
+  public void whenAcceptAllDescriptors()
+    {
+    // Given...
+    AllAnnotated filter = new AllAnnotated();
+    String deprecated = rawTypeName( Deprecated.class);
+    String test = rawTypeName( Test.class);
+
+    // When...
+    int deprecatedId = acceptDescriptor( filter, deprecated);
+    int testId = acceptDescriptor( filter, test);
+
+    // Then...
+    assertThat( "Deprecated", filter.getAnnotation( deprecatedId), is( Deprecated.class.getName()));
+    assertThat( "Test", filter.getAnnotation( testId), is( Test.class.getName()));
+    assertThat( "Deprecated again", acceptDescriptor( filter, deprecated), is( deprecatedId));
+    assertThat( "Same name", filter.getAnnotation( deprecatedId), is( sameInstance( filter.getAnnotation( acceptDescriptor( filter, deprecated)))));
+    }
+
+  @Test
+  public void whenAcceptManyDescriptors()
+    {
+    // Given...
+    AllAnnotated filter = new AllAnnotated();
+    int count = 5000;
+
+    // When...
+    int[] ids = IntStream.range( 0, count).map( i -> acceptDescriptor( filter, rawTypeName( "com.acme.Annotation" + i))).toArray();
+
+    // Then...
+    for( int i = 0; i < count; i++)
+      {
+      assertThat( "Id", ids[i], is( i));
+      assertThat( "Annotation", filter.getAnnotation( ids[i]), is( "com.acme.Annotation" + i));
+      assertThat( "Accepted again", acceptDescriptor( filter, rawTypeName( "com.acme.Annotation" + i)), is( ids[i]));
+      }
+    }
+
+  @Test
+  public void whenAcceptClass()
+    {
+    // Given...
+    PackageFilter filter =
+      new PackageFilter( Deprecated.class)
+      .inPackage( "com.acme.api", "com.acme.widgets.**", "org/example")
+      .excludePackage( "com.acme.widgets.generated.**", "com.acme.widgets.internal");
+
+    // Then...
+    assertThat( "Exact package", filter.acceptClass( "com.acme.api.Widget"), is( true));
+    assertThat( "Exact package subpackage", filter.acceptClass( "com.acme.api.v2.Widget"), is( false));
+    assertThat( "Exact package parent", filter.acceptClass( "com.acme.Widget"), is( false));
+    assertThat( "Slashed package", filter.acceptClass( "org.example.Widget"), is( true));
+    assertThat( "Subtree root", filter.acceptClass( "com.acme.widgets.Widget"), is( true));
+    assertThat( "Subtree member", filter.acceptClass( "com.acme.widgets.shapes.round.Circle"), is( true));
+    assertThat( "Excluded subtree", filter.acceptClass( "com.acme.widgets.generated.Widget"), is( false));
+    assertThat( "Excluded subtree member", filter.acceptClass( "com.acme.widgets.generated.v1.Widget"), is( false));
+    assertThat( "Excluded package", filter.acceptClass( "com.acme.widgets.internal.Widget"), is( false));
+    assertThat( "Excluded package subpackage", filter.acceptClass( "com.acme.widgets.internal.util.Widget"), is( true));
+    assertThat( "Unnamed package", filter.acceptClass( "Widget"), is( false));
+    assertThat( "Other package", filter.acceptClass( "io.acme.Widget"), is( false));
+
+    assertThat( "Class file", filter.acceptClassFile( "com/acme/widgets/shapes/Square.class"), is( true));
+    assertThat( "Class file", filter.acceptClassFile( "com/acme/widgets/generated/Square.class"), is( false));
+
+    assertThat( "Package path", filter.acceptPackagePath( ""), is( true));
+    assertThat( "Package path", filter.acceptPackagePath( "com/acme"), is( true));
+    assertThat( "Package path", filter.acceptPackagePath( "com/acme/api"), is( true));
+    assertThat( "Package path", filter.acceptPackagePath( "com/acme/api/v2"), is( false));
+    assertThat( "Package path", filter.acceptPackagePath( "com/acme/widgets/generated"), is( false));
+    assertThat( "Package path", filter.acceptPackagePath( "com/acme/widgets/generated/v1"), is( false));
+    assertThat( "Package path", filter.acceptPackagePath( "com/acme/widgets/internal"), is( true));
+    assertThat( "Package path", filter.acceptPackagePath( "com/acme/widgets/shapes"), is( true));
+    assertThat( "Package path", filter.acceptPackagePath( "io"), is( false));
+    }
+
+  @Test
+  public void whenExcludeOnly()
+    {
+    // Given...
+    PackageFilter filter = new PackageFilter( Deprecated.class).excludePackage( "com.acme.generated.**");
+
+    // Then...
+    assertThat( "Unnamed package", filter.acceptClass( "Widget"), is( true));
+    assertThat( "Other package", filter.acceptClass( "com.acme.Widget"), is( true));
+    assertThat( "Excluded", filter.acceptClass( "com.acme.generated.Widget"), is( false));
+    assertThat( "Package path", filter.acceptPackagePath( "com/acme"), is( true));
+    assertThat( "Package path", filter.acceptPackagePath( "com/acme/generated/v1"), is( false));
+
+    // Given...
+    filter.inPackage( "com.acme.generated.api");
+
+    // Then...
+    assertThat( "Included", filter.acceptClass( "com.acme.generated.api.Widget"), is( true));
+    assertThat( "Not included", filter.acceptClass( "com.acme.Widget"), is( false));
+    assertThat( "Package path", filter.acceptPackagePath( "com/acme/generated"), is( true));
+    }
+
+  @Test
+  public void whenTypesAndRetention()
+    {
+    // Given...
+    PackageFilter filter = new PackageFilter( Deprecated.class);
+    String fingerprint = filter.getFingerprint().get();
+
+    // When...
+    filter.types( Annotated.Type.CLASS).retention( RetentionPolicy.RUNTIME);
+
+    // Then...
+    assertThat( "Class", filter.acceptType( Annotated.Type.CLASS), is( true));
+    assertThat( "Method", filter.acceptType( Annotated.Type.METHOD), is( false));
+    assertThat( "Field", filter.acceptType( Annotated.Type.FIELD), is( false));
+    assertThat( "Runtime", filter.acceptRetention( RetentionPolicy.RUNTIME), is( true));
+    assertThat( "Class retention", filter.acceptRetention( RetentionPolicy.CLASS), is( false));
+    assertThat( "Fingerprint", filter.getFingerprint().get(), is( not( fingerprint)));
+
+    // When...
+    filter.types().retention();
+
+    // Then...
+    assertThat( "Method", filter.acceptType( Annotated.Type.METHOD), is( true));
+    assertThat( "Class retention", filter.acceptRetention( RetentionPolicy.CLASS), is( true));
+    assertThat( "Fingerprint", filter.getFingerprint().get(), is( fingerprint));
+    }
+
+  private int acceptDescriptor( RawAnnotationFilter filter, String rawTypeName)
+    {
+    byte[] bytes = String.format( "xx%s", rawTypeName).getBytes( StandardCharsets.UTF_8);
+    ByteBuffer buffer = ByteBuffer.wrap( bytes);
+    int length = bytes.length - 2;
+    return filter.acceptDescriptor( buffer, 2, length, RawAnnotationFilter.hash( buffer, 2, length));
+    }
+  }
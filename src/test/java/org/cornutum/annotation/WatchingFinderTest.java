@@ -0,0 +1,156 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import static org.cornutum.annotation.Files.*;
+import static org.cornutum.annotation.TestFiles.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Runs tests for {@link WatchingFinder}.
+ */
+public class WatchingFinderTest
+  {
+  @Test
+  public void whenClassFilesChanged() throws Exception
+    {
+    // Given...
+    File dir = temp_.newFolder( "classes");
+    File packageDir = new File( dir, "org/cornutum/annotation");
+    packageDir.mkdirs();
+    File classFile = new File( packageDir, "ClassDataTest.class");
+    java.nio.file.Files.copy( getResourceFile( getClass(), "ClassDataTest.class").toPath(), classFile.toPath());
+
+    AnnotationFilter filter = new PackageFilter( Deprecated.class);
+    List<WatchingFinder.Delta> deltas = new ArrayList<WatchingFinder.Delta>();
+    try( WatchingFinder finder = new WatchingFinder( filter).inClasses( dir).listener( deltas::add).start())
+      {
+      List<Annotated> expected = new Finder( filter).inClasses( dir).find().collect( toList());
+
+      // Then...
+      assertThat( "Annotated", finder.find().collect( toList()), is( expected));
+      assertThat( "Annotated", expected.size(), is( 1));
+
+      // When...
+      classFile.delete();
+      WatchingFinder.Delta delta = awaitUpdate( finder, d -> !d.getRemoved().isEmpty());
+
+      // Then...
+      assertThat( "Removed", delta.getRemoved(), is( expected));
+      assertThat( "Added", delta.getAdded(), empty());
+      assertThat( "Annotated", finder.find().collect( toList()), empty());
+
+      // When...
+      File newDir = new File( packageDir, "examples");
+      newDir.mkdirs();
+      File newClassFile = new File( newDir, "ClassDataTest.class");
+      java.nio.file.Files.copy( getResourceFile( getClass(), "ClassDataTest.class").toPath(), newClassFile.toPath());
+      delta = awaitUpdate( finder, d -> !d.getAdded().isEmpty());
+
+      // Then...
+      assertThat( "Added", delta.getAdded().size(), is( 1));
+      assertThat( "Added", delta.getAdded().get(0).getFile(), is( newClassFile));
+      assertThat( "Annotated", finder.find().collect( toList()), is( delta.getAdded()));
+      assertThat( "Listener", deltas.isEmpty(), is( false));
+      }
+    }
+
+  @Test
+  public void whenJarChanged() throws Exception
+    {
+    // Given...
+    File jar = new File( temp_.getRoot(), "classes.jar");
+    File hamcrest = classPathFor( "org.hamcrest.collection").iterator().next();
+    File junit = classPathFor( "org.junit").iterator().next();
+    java.nio.file.Files.copy( hamcrest.toPath(), jar.toPath());
+
+    AnnotationFilter filter = new PackageFilter( Deprecated.class);
+    try( WatchingFinder finder = new WatchingFinder( filter).inClasses( jar).start())
+      {
+      // When...
+      WatchingFinder.Delta delta = finder.checkFiles();
+
+      // Then...
+      assertThat( "Unchanged", delta.isEmpty(), is( true));
+      assertThat( "Annotated", finder.find().count(), is( new Finder( filter).inClasses( hamcrest).find().count()));
+
+      // When...
+      java.nio.file.Files.copy( junit.toPath(), jar.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+      delta = finder.checkFiles();
+
+      // Then...
+      assertThat( "Added", delta.getAdded().size(), is( (int) new Finder( filter).inClasses( junit).find().count()));
+      assertThat( "Removed", delta.getRemoved().size(), is( (int) new Finder( filter).inClasses( hamcrest).find().count()));
+      }
+    }
+
+  @Test
+  public void whenDirectoryCreated() throws Exception
+    {
+    // Given...
+    File dir = new File( temp_.getRoot(), "classes");
+    AnnotationFilter filter = new PackageFilter( Deprecated.class);
+    try( WatchingFinder finder = new WatchingFinder( filter).inClasses( dir).start())
+      {
+      // When...
+      WatchingFinder.Delta delta = finder.checkFiles();
+
+      // Then...
+      assertThat( "Unchanged", delta.isEmpty(), is( true));
+      assertThat( "Annotated", finder.find().count(), is( 0L));
+
+      // When...
+      File packageDir = new File( dir, "org/cornutum/annotation");
+      packageDir.mkdirs();
+      File classFile = new File( packageDir, "ClassDataTest.class");
+      java.nio.file.Files.copy( getResourceFile( getClass(), "ClassDataTest.class").toPath(), classFile.toPath());
+      delta = finder.checkFiles();
+
+      // Then...
+      assertThat( "Added", delta.getAdded().size(), is( 1));
+      assertThat( "Added", delta.getAdded().get(0).getFile(), is( classFile));
+
+      // When...
+      classFile.delete();
+      delta = awaitUpdate( finder, d -> !d.getRemoved().isEmpty());
+
+      // Then...
+      assertThat( "Removed", delta.getRemoved().size(), is( 1));
+      assertThat( "Annotated", finder.find().count(), is( 0L));
+      }
+    }
+
+  /**
+   * Waits for an update that satisfies the given condition.
+   */
+  private WatchingFinder.Delta awaitUpdate( WatchingFinder finder, Predicate<WatchingFinder.Delta> condition) throws Exception
+    {
+    WatchingFinder.Delta delta = null;
+    long deadline = System.currentTimeMillis() + 30000;
+    while( (delta == null || !condition.test( delta)) && System.currentTimeMillis() < deadline)
+      {
+      delta = finder.update( 100, TimeUnit.MILLISECONDS);
+      }
+    return delta;
+    }
+
+  @Rule
+  public TemporaryFolder temp_ = new TemporaryFolder();
+  }
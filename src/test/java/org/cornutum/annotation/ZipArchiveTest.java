@@ -0,0 +1,151 @@
+//////////////////////////////////////////////////////////////////////////////
+//
+//                    Copyright 2025, Cornutum Project
+//                             www.cornutum.org
+//
+//////////////////////////////////////////////////////////////////////////////
+
+package org.cornutum.annotation;
+
+import static org.cornutum.annotation.Files.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Runs tests for {@link ZipArchive}.
+ */
+public class ZipArchiveTest
+  {
+  @Test
+  public void whenSameAsJarFile() throws Exception
+    {
+    // Given...
+    File jar = classPathFor( "org.hamcrest.collection").iterator().next();
+
+    // When...
+    ZipArchive archive = new ZipArchive( jar);
+
+    // Then...
+    try( JarFile jarFile = new JarFile( jar))
+      {
+      List<JarEntry> expected = Collections.list( jarFile.entries());
+      assertThat(
+        "Entries",
+        archive.getEntries().stream().map( ZipArchive.Entry::getName).collect( toList()),
+        is( expected.stream().map( JarEntry::getName).collect( toList())));
+
+      Inflater inflater = new Inflater( true);
+      for( ZipArchive.Entry entry : archive.getEntries())
+        {
+        JarEntry jarEntry = jarFile.getJarEntry( entry.getName());
+        assertThat( entry.getName() + " CRC", entry.getCrc(), is( jarEntry.getCrc()));
+        assertThat(
+          entry.getName(),
+          toBytes( archive.getData( entry, inflater, ByteBuffer::allocate)),
+          is( toBytes( Buffers.read( jarFile.getInputStream( jarEntry), (int) jarEntry.getSize()))));
+        }
+      }
+    }
+
+  @Test
+  public void whenStoredAndDeflated() throws Exception
+    {
+    // Given...
+    byte[] small = "Hello, world!".getBytes( "UTF-8");
+    byte[] large = new byte[ 2 * Buffers.MAP_THRESHOLD];
+    new Random( 1234).nextBytes( large);
+    File jar = temp_.newFile( "test.jar");
+
+    try( JarOutputStream output = new JarOutputStream( new FileOutputStream( jar)))
+      {
+      output.putNextEntry( storedEntry( "stored.bin", small));
+      output.write( small);
+      output.putNextEntry( new JarEntry( "deflated.bin"));
+      output.write( small);
+      output.putNextEntry( new JarEntry( "large.bin"));
+      output.write( large);
+      output.putNextEntry( storedEntry( "empty.bin", new byte[0]));
+      }
+
+    // When...
+    ZipArchive archive = new ZipArchive( jar);
+
+    // Then...
+    List<ZipArchive.Entry> entries = archive.getEntries();
+    assertThat(
+      "Entries",
+      entries.stream().map( ZipArchive.Entry::getName).collect( toList()),
+      contains( "stored.bin", "deflated.bin", "large.bin", "empty.bin"));
+
+    assertThat( "Stored method", entries.get(0).getMethod(), is( ZipArchive.STORED));
+    assertThat( "Deflated method", entries.get(1).getMethod(), is( ZipArchive.DEFLATED));
+
+    Inflater inflater = new Inflater( true);
+    assertThat( "Stored", toBytes( archive.getData( entries.get(0), inflater, ByteBuffer::allocate)), is( small));
+    assertThat( "Deflated", toBytes( archive.getData( entries.get(1), inflater, ByteBuffer::allocate)), is( small));
+    assertThat( "Large", toBytes( archive.getData( entries.get(2), inflater, ByteBuffer::allocate)), is( large));
+    assertThat( "Empty", toBytes( archive.getData( entries.get(3), inflater, ByteBuffer::allocate)), is( new byte[0]));
+    assertThat( "Stream", toBytes( Buffers.read( archive.getInputStream( entries.get(1)), -1)), is( small));
+
+    // When...
+    archive.close();
+
+    // Then...
+    IllegalStateException failure = null;
+    try
+      {
+      archive.getData( entries.get(0), inflater, ByteBuffer::allocate);
+      }
+    catch( IllegalStateException e)
+      {
+      failure = e;
+      }
+    assertThat( "Closed failure", failure, is( notNullValue()));
+    }
+
+  /**
+   * Returns a STORED entry for the given data.
+   */
+  private JarEntry storedEntry( String name, byte[] data)
+    {
+    CRC32 crc = new CRC32();
+    crc.update( data);
+
+    JarEntry entry = new JarEntry( name);
+    entry.setMethod( JarEntry.STORED);
+    entry.setSize( data.length);
+    entry.setCompressedSize( data.length);
+    entry.setCrc( crc.getValue());
+    return entry;
+    }
+
+  /**
+   * Returns the bytes remaining in the given buffer.
+   */
+  private byte[] toBytes( ByteBuffer buffer)
+    {
+    byte[] bytes = new byte[ buffer.remaining()];
+    buffer.duplicate().get( bytes);
+    return bytes;
+    }
+
+  @Rule
+  public TemporaryFolder temp_ = new TemporaryFolder();
+  }